@@ -0,0 +1,138 @@
+package HospitalNotificationSystem;
+
+/**
+ * CircuitBreaker
+ * Stops calls to the Telegram Bot API while it appears to be down.
+ *
+ * The breaker starts CLOSED and lets every request through. After
+ * hms.notify.breakerFailures consecutive failures (I/O errors, timeouts and
+ * server errors) it OPENs and refuses requests for hms.notify.breakerOpenMillis
+ * milliseconds. The first request after that is let through as a probe
+ * (HALF_OPEN): if it succeeds the breaker closes again, if it fails the
+ * breaker opens for another period. Any response below 500, including a 429,
+ * shows the API is reachable and counts as a success here.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * State
+     * States of the breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /** Consecutive failures that open the breaker. */
+    private final int failureThreshold;
+
+    /** Time the breaker stays open before it lets a probe through, in milliseconds. */
+    private final long openMillis;
+
+    /** Current state. */
+    private State state;
+
+    /** Consecutive failures while closed. */
+    private int failures;
+
+    /** Time the open period ends, from System.currentTimeMillis. */
+    private long openUntil;
+
+    /** Whether the half-open probe is still waiting for its outcome. */
+    private boolean probing;
+
+    /**
+     * Constructs a breaker from the hms.notify.breaker properties.
+     */
+    public CircuitBreaker() {
+        this(Integer.getInteger("hms.notify.breakerFailures", 5),
+             Long.getLong("hms.notify.breakerOpenMillis", 30_000));
+    }
+
+    /**
+     * Constructs a closed breaker.
+     *
+     * @param failureThreshold Consecutive failures that open the breaker.
+     * @param openMillis Time the breaker stays open before it lets a probe through.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(1, openMillis);
+        this.state = State.CLOSED;
+    }
+
+    /**
+     * Asks whether a request may be sent. Once the open period has passed,
+     * lets exactly one probe through.
+     *
+     * @return True if the request may be sent; its outcome must then be
+     *         reported through onSuccess or onFailure.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    /**
+     * Reports a request that reached the API.
+     */
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    /**
+     * Reports a request that failed to reach the API.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+            failures = 0;
+            probing = false;
+        }
+    }
+
+    /**
+     * Gets the time until the breaker lets a request through again.
+     *
+     * @return Milliseconds to wait, 0 if requests may be sent now.
+     */
+    public synchronized long remainingOpenMillis() {
+        switch (state) {
+            case OPEN:
+                return Math.max(0, openUntil - System.currentTimeMillis());
+            case HALF_OPEN:
+                // The probe decides; look again shortly
+                return probing ? Math.min(openMillis, 1_000) : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the current state.
+     *
+     * @return The state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,34 @@
+package HospitalNotificationSystem;
+
+import java.io.IOException;
+
+/**
+ * CircuitOpenException
+ * Thrown instead of sending a request while the CircuitBreaker is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Time until the breaker lets a request through again, in milliseconds. */
+    private final long retryAfterMillis;
+
+    /**
+     * Constructs the exception.
+     *
+     * @param retryAfterMillis Time until the breaker lets a request through again.
+     */
+    public CircuitOpenException(long retryAfterMillis) {
+        super("Telegram is unavailable; not sending for " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Gets the time until the breaker lets a request through again.
+     *
+     * @return Milliseconds to wait.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
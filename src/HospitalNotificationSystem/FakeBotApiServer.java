@@ -0,0 +1,277 @@
+package HospitalNotificationSystem;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * FakeBotApiServer
+ * Local stand-in for the Telegram Bot API, for running the notification
+ * system without internet access or a real bot.
+ *
+ * The server answers POST /bot{token}/sendMessage on the loopback interface.
+ * Each request waits latencyMillis plus up to jitterMillis, then fails with a
+ * 500 with probability errorRate, is refused with a 429 carrying retry_after
+ * with probability throttleRate, and is otherwise accepted with a 200. Point
+ * the application at it by setting hms.telegram.baseUrl to getBaseUrl().
+ */
+public final class FakeBotApiServer {
+
+    /** The underlying HTTP server. */
+    private final HttpServer server;
+
+    /** Threads handling requests, so slow responses overlap. */
+    private final ExecutorService handlers;
+
+    /** Fixed delay before each response, in milliseconds. */
+    private volatile long latencyMillis;
+
+    /** Upper bound of the random delay added to each response, in milliseconds. */
+    private volatile long jitterMillis;
+
+    /** Fraction of requests answered with a 500. */
+    private volatile double errorRate;
+
+    /** Fraction of requests answered with a 429. */
+    private volatile double throttleRate;
+
+    /** Wait named in 429 responses, in seconds. */
+    private volatile int retryAfterSeconds;
+
+    /** Called with the chat ID and text of every accepted message, or null. */
+    private volatile BiConsumer<String, String> listener;
+
+    /** Requests received. */
+    private final LongAdder requests = new LongAdder();
+
+    /** Requests answered with a 200. */
+    private final LongAdder accepted = new LongAdder();
+
+    /** Requests answered with a 500. */
+    private final LongAdder errors = new LongAdder();
+
+    /** Requests answered with a 429. */
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * Constructs a server on a free loopback port that accepts every request
+     * at once. Call start to begin serving.
+     *
+     * @param threads Number of threads handling requests.
+     * @throws IOException If the port cannot be bound.
+     */
+    public FakeBotApiServer(int threads) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.retryAfterSeconds = 1;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.handlers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "fake-bot-api-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops serving requests and ends the handler threads.
+     */
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Gets the URL to use as hms.telegram.baseUrl.
+     *
+     * @return The base URL of the server.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sets the delay before each response.
+     *
+     * @param latencyMillis Fixed delay in milliseconds.
+     * @param jitterMillis Upper bound of the random delay added, in milliseconds.
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+    }
+
+    /**
+     * Sets the fraction of requests answered with a 500.
+     *
+     * @param errorRate Fraction between 0 and 1.
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Sets the fraction of requests answered with a 429.
+     *
+     * @param throttleRate Fraction between 0 and 1.
+     * @param retryAfterSeconds Wait named in the responses, in seconds.
+     */
+    public void setThrottleRate(double throttleRate, int retryAfterSeconds) {
+        this.throttleRate = throttleRate;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    /**
+     * Sets the callback receiving every accepted message.
+     *
+     * @param listener Called with the chat ID and text, on a handler thread.
+     */
+    public void setListener(BiConsumer<String, String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the number of requests received.
+     *
+     * @return Requests received.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a 200.
+     *
+     * @return Accepted requests.
+     */
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a 500.
+     *
+     * @return Failed requests.
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a 429.
+     *
+     * @return Throttled requests.
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Answers one request.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.increment();
+            if (!exchange.getRequestMethod().equals("POST") || !exchange.getRequestURI().getPath().endsWith("/sendMessage")) {
+                respond(exchange, 404, "{\"ok\":false,\"error_code\":404,\"description\":\"Not Found\"}");
+                return;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            double roll = random.nextDouble();
+            if (roll < errorRate) {
+                errors.increment();
+                respond(exchange, 500, "{\"ok\":false,\"error_code\":500,\"description\":\"Internal Server Error\"}");
+            } else if (roll < errorRate + throttleRate) {
+                throttled.increment();
+                int retryAfter = retryAfterSeconds;
+                respond(exchange, 429, "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after "
+                        + retryAfter + "\",\"parameters\":{\"retry_after\":" + retryAfter + "}}");
+            } else {
+                accepted.increment();
+                BiConsumer<String, String> callback = listener;
+                if (callback != null) {
+                    callback.accept(stringField(body, "chat_id"), stringField(body, "text"));
+                }
+                respond(exchange, 200, "{\"ok\":true,\"result\":{}}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string field from a flat JSON object, undoing the escapes
+     * TelegramClient writes.
+     *
+     * @param json The JSON object.
+     * @param name The field name.
+     * @return The field value, or null if the field is missing.
+     */
+    static String stringField(String json, String name) {
+        String key = "\"" + name + "\":\"";
+        int start = json.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = start + key.length(); i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\' && i + 1 < json.length()) {
+                char escaped = json.charAt(++i);
+                switch (escaped) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    default: sb.append(escaped);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -2,11 +2,6 @@ package HospitalNotificationSystem;
 
 import HospitalNotificationSystem.HNS_interfaces.TeleBotInterface;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 /**
  * HNSTelegramBot
@@ -18,28 +13,17 @@ import java.nio.file.Paths;
  */
 public class HNSTelegramBot implements TeleBotInterface{
     
-    /** 
-     * File path for storing Telegram bot details.
-     * 
-     * The file containing the Telegram bot token and chat ID. This can be 
-     * updated when changing laptops or configurations.
-     */
-    protected String filePath = "C:/Users/Werner Soon Shi Xu/Downloads/telegramDetails.txt";
-    
     /**
      * Method to retrieve the chat ID.
      * 
      * Subclasses should implement this method to provide the specific chat ID 
-     * from the stored file or other configuration.
+     * from the cached TelegramCredentials.
      * 
-     * @throws IOException If an error occurs while reading the chat ID from the file.
+     * @throws IOException If no Telegram credentials are available.
      */
     public void getChatId() throws IOException{
-        String content = new String(Files.readAllBytes(Paths.get(filePath))).trim();
-
-        // Split the content using the "|" separator
-        String[] parts = content.split("\\|");
-        System.out.printf("BotToken : %s, chatId: %s\n", parts[0].trim(), parts[1].trim());
+        TelegramCredentials credentials = TelegramCredentialsProvider.getInstance().get();
+        System.out.printf("BotToken : %s, chatId: %s\n", credentials.getBotToken(), credentials.getChatId(null, null));
     }
 
     /**
@@ -53,39 +37,58 @@ public class HNSTelegramBot implements TeleBotInterface{
      * @param chatId The chat ID of the recipient.
      * @param botToken The bot token to authenticate the request.
      * 
+     * While the circuit breaker of the TelegramClient is open, the message is 
+     * not sent and an error is printed at once.
+     * 
      * @throws IOException If an error occurs while sending the message.
      */
     public void sendToTele(String message, String chatId, String botToken) {
         try {
-            // Build the API URL using the bot token
-            String apiUrl = "https://api.telegram.org/bot" + botToken + "/sendMessage";
-
-            // Create the payload containing the message and chat ID in JSON format
-            String payload = "{\"chat_id\":\"" + chatId + "\",\"text\":\"" + message + "\"}";
-
-            // Open a connection to the Telegram API
-            URL url = new URL(apiUrl);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
-            // Send the payload to Telegram
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = payload.getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
-
             // Check the response code from Telegram's server
-            int responseCode = conn.getResponseCode();
+            int responseCode = post(message, chatId, botToken);
             if (responseCode == 200) {
                 System.out.println("Message sent successfully!");
             } else {
                 System.out.println("Error: " + responseCode);
             }
 
+        } catch (CircuitOpenException e) {
+            // Telegram is known to be down; report it without waiting for a timeout
+            System.out.println("Error: " + e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Queues a message for a Telegram bot.
+     * 
+     * The message goes through the NotificationCoalescer, which merges 
+     * messages for the same chat into digests, and then the 
+     * NotificationOutbox, which sends them in the background and retries them 
+     * if Telegram cannot be reached, so the caller does not wait for the 
+     * network.
+     * 
+     * @param message The message to send to the Telegram chat.
+     * @param chatId The chat ID of the recipient.
+     * @param botToken The bot token to authenticate the request.
+     */
+    public void queueToTele(String message, String chatId, String botToken) {
+        NotificationCoalescer.getInstance().add(message, chatId, botToken);
+    }
+
+    /**
+     * Posts a message to the Telegram Bot API through the shared
+     * TelegramClient and returns the response code.
+     * 
+     * @param message The message to send to the Telegram chat.
+     * @param chatId The chat ID of the recipient.
+     * @param botToken The bot token to authenticate the request.
+     * @return The HTTP response code from Telegram's server.
+     * 
+     * @throws IOException If the request cannot be sent.
+     */
+    int post(String message, String chatId, String botToken) throws IOException {
+        return TelegramClient.getInstance().sendMessage(message, chatId, botToken).statusCode();
+    }
 }
@@ -0,0 +1,130 @@
+package HospitalNotificationSystem;
+
+/**
+ * Notification
+ * A Telegram message waiting in the notification outbox.
+ *
+ * Holds the message together with the chat and bot it is addressed to, and
+ * counts the delivery attempts made so far.
+ */
+public final class Notification {
+
+    /** The message to send. */
+    private final String message;
+
+    /** The chat ID of the recipient. */
+    private final String chatId;
+
+    /** The Telegram bot token used for authentication. */
+    private final String botToken;
+
+    /** Number of delivery attempts made so far. */
+    private int attempts;
+
+    /** ID of the notification in the outbox log. */
+    private long logId;
+
+    /** Whether the rate limiter already granted the next attempt. */
+    private volatile boolean admitted;
+
+    /**
+     * Constructs a notification that has not been attempted yet.
+     *
+     * @param message The message to send.
+     * @param chatId The chat ID of the recipient.
+     * @param botToken The bot token to authenticate the request.
+     */
+    public Notification(String message, String chatId, String botToken) {
+        this.message = message;
+        this.chatId = chatId;
+        this.botToken = botToken;
+    }
+
+    /**
+     * Gets the message to send.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the chat ID of the recipient.
+     *
+     * @return The chat ID.
+     */
+    public String getChatId() {
+        return chatId;
+    }
+
+    /**
+     * Gets the bot token used for authentication.
+     *
+     * @return The bot token.
+     */
+    public String getBotToken() {
+        return botToken;
+    }
+
+    /**
+     * Gets the number of delivery attempts made so far.
+     *
+     * @return The number of attempts.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Records a delivery attempt.
+     *
+     * @return The number of attempts including this one.
+     */
+    int recordAttempt() {
+        return ++attempts;
+    }
+
+    /**
+     * Takes back the last recorded attempt, for a request that was never sent.
+     */
+    void forgetAttempt() {
+        attempts--;
+    }
+
+    /**
+     * Checks whether the rate limiter already granted the next attempt.
+     *
+     * @return True if the next attempt may be sent without asking again.
+     */
+    boolean isAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Records whether the rate limiter granted the next attempt.
+     *
+     * @param admitted True once a token was taken for the next attempt.
+     */
+    void setAdmitted(boolean admitted) {
+        this.admitted = admitted;
+    }
+
+    /**
+     * Gets the ID of the notification in the outbox log.
+     *
+     * @return The log ID.
+     */
+    long getLogId() {
+        return logId;
+    }
+
+    /**
+     * Sets the ID of the notification in the outbox log.
+     *
+     * @param logId The log ID.
+     */
+    void setLogId(long logId) {
+        this.logId = logId;
+    }
+}
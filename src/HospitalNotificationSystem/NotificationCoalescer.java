@@ -0,0 +1,237 @@
+package HospitalNotificationSystem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NotificationCoalescer
+ * Singleton stage that groups notifications per recipient into digests.
+ *
+ * The first message for a chat opens a batch; messages for the same chat and
+ * bot that arrive while the batch is open join it. A batch is handed to the
+ * NotificationOutbox as one message when its window has passed, when it holds
+ * hms.notify.digestMaxMessages messages, or when the next message would make
+ * the digest longer than Telegram allows. A message therefore waits at most
+ * hms.notify.digestWindowMillis before it is queued for sending; a window of
+ * 0 turns coalescing off.
+ *
+ * Each message is recorded in the outbox log as it joins a batch, and its
+ * record is acknowledged once the digest holding it is queued, so messages of
+ * an open batch survive a crash. After a restart they are sent one by one; a
+ * crash between queuing the digest and writing the acknowledgements sends
+ * them again.
+ */
+public final class NotificationCoalescer {
+
+    /** Longest text sent as one Telegram message. */
+    private static final int MAX_DIGEST_LENGTH = 4000;
+
+    /** Singleton instance of the NotificationCoalescer class. */
+    private static NotificationCoalescer instance;
+
+    /**
+     * Batch
+     * Messages collected for one recipient.
+     */
+    private static final class Batch {
+
+        /** The chat ID of the recipient. */
+        private final String chatId;
+
+        /** The bot token used for authentication. */
+        private final String botToken;
+
+        /** Messages in arrival order. */
+        private final List<String> messages = new ArrayList<>();
+
+        /** The messages as recorded in the outbox log, in arrival order. */
+        private final List<Notification> held = new ArrayList<>();
+
+        /** Length of the digest built from the messages so far. */
+        private int length;
+
+        /** Scheduled flush at the end of the window. */
+        private ScheduledFuture<?> flush;
+
+        Batch(String chatId, String botToken) {
+            this.chatId = chatId;
+            this.botToken = botToken;
+        }
+    }
+
+    /** Open batches keyed by bot token and chat ID. */
+    private final Map<String, Batch> batches;
+
+    /** Thread flushing batches whose window has passed. */
+    private final ScheduledExecutorService timer;
+
+    /** Time a batch stays open, in milliseconds. */
+    private final long windowMillis;
+
+    /** Messages per batch that flush it immediately. */
+    private final int maxMessages;
+
+    /**
+     * Private constructor to prevent direct instantiation. Starts the
+     * outbox, whose shutdown hook sends the open batches.
+     */
+    private NotificationCoalescer() {
+        this.batches = new HashMap<>();
+        this.windowMillis = Math.max(0, Long.getLong("hms.notify.digestWindowMillis", 1_000));
+        this.maxMessages = Math.max(1, Integer.getInteger("hms.notify.digestMaxMessages", 10));
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notification-digest");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // The outbox's shutdown hook sends the open batches
+        NotificationOutbox.getInstance();
+    }
+
+    /**
+     * Retrieves the singleton instance of the NotificationCoalescer class.
+     *
+     * @return Singleton instance of the NotificationCoalescer class.
+     */
+    public static synchronized NotificationCoalescer getInstance() {
+        if (instance == null) {
+            instance = new NotificationCoalescer();
+        }
+        return instance;
+    }
+
+    /**
+     * Sends the open batches now, if the coalescer has been started.
+     */
+    static synchronized void flushOpenBatches() {
+        if (instance != null) {
+            instance.flushAll();
+        }
+    }
+
+    /**
+     * Adds a message to the batch of its recipient.
+     *
+     * @param message The message to send.
+     * @param chatId The chat ID of the recipient.
+     * @param botToken The bot token to authenticate the request.
+     */
+    public void add(String message, String chatId, String botToken) {
+        if (windowMillis == 0) {
+            NotificationOutbox.getInstance().enqueue(new Notification(message, chatId, botToken));
+            return;
+        }
+
+        // Recorded before it joins a batch, so a crash before the digest is queued does not lose it
+        Notification part = new Notification(message, chatId, botToken);
+        NotificationOutbox.getInstance().hold(part);
+
+        String key = botToken + "|" + chatId;
+        Batch full = null;
+        Batch flushNow = null;
+        synchronized (this) {
+            Batch batch = batches.get(key);
+            if (batch != null && batch.length + entryLength(batch.messages.size() + 1, message) > MAX_DIGEST_LENGTH) {
+                // The message does not fit: send what is there and start over
+                full = close(key, batch);
+                batch = null;
+            }
+            if (batch == null) {
+                Batch opened = new Batch(chatId, botToken);
+                opened.flush = timer.schedule(() -> flush(key, opened), windowMillis, TimeUnit.MILLISECONDS);
+                batches.put(key, opened);
+                batch = opened;
+            }
+            batch.messages.add(message);
+            batch.held.add(part);
+            batch.length += entryLength(batch.messages.size(), message);
+            if (batch.messages.size() >= maxMessages) {
+                flushNow = close(key, batch);
+            }
+        }
+        send(full);
+        send(flushNow);
+    }
+
+    /**
+     * Sends every open batch now.
+     *
+     * @return True if any batch was sent.
+     */
+    public boolean flushAll() {
+        List<Batch> open;
+        synchronized (this) {
+            open = new ArrayList<>(batches.values());
+            for (Batch batch : open) {
+                batch.flush.cancel(false);
+            }
+            batches.clear();
+        }
+        for (Batch batch : open) {
+            send(batch);
+        }
+        return !open.isEmpty();
+    }
+
+    /**
+     * Sends a batch whose window has passed, unless it was sent already.
+     */
+    private void flush(String key, Batch batch) {
+        synchronized (this) {
+            if (batches.get(key) != batch) {
+                return;
+            }
+            close(key, batch);
+        }
+        send(batch);
+    }
+
+    /**
+     * Removes an open batch and cancels its timer. Call while holding the lock.
+     */
+    private Batch close(String key, Batch batch) {
+        batches.remove(key);
+        batch.flush.cancel(false);
+        return batch;
+    }
+
+    /**
+     * Queues a batch as one message: the message itself if it is alone, or a
+     * numbered digest.
+     */
+    private void send(Batch batch) {
+        if (batch == null) {
+            return;
+        }
+        String text;
+        if (batch.messages.size() == 1) {
+            text = batch.messages.get(0);
+        } else {
+            StringBuilder sb = new StringBuilder();
+            sb.append(batch.messages.size()).append(" notifications:");
+            for (int i = 0; i < batch.messages.size(); i++) {
+                sb.append('\n').append(i + 1).append(". ").append(batch.messages.get(i));
+            }
+            text = sb.toString();
+        }
+        NotificationOutbox outbox = NotificationOutbox.getInstance();
+        outbox.enqueue(new Notification(text, batch.chatId, batch.botToken));
+        for (Notification part : batch.held) {
+            outbox.release(part);
+        }
+    }
+
+    /**
+     * Gets the length a message adds to a digest as its n-th entry.
+     */
+    private static int entryLength(int n, String message) {
+        return (n == 1 ? 20 : 0) + String.valueOf(n).length() + 3 + message.length();
+    }
+}
@@ -0,0 +1,207 @@
+package HospitalNotificationSystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * NotificationLoadTest
+ * Load driver that pushes notifications through NotifyDoctor and
+ * NotifyPharmacist into a FakeBotApiServer and reports throughput and
+ * latency.
+ *
+ * Run it as a program with key=value arguments:
+ *
+ *     java HospitalNotificationSystem.NotificationLoadTest messages=5000 producers=4
+ *
+ * messages (default 5000) notifications are sent by producers (4) threads.
+ * Every pharmacistEvery-th (10) goes to the pharmacists' chat and the rest
+ * to doctors D0001 to D{doctors} (50), each with a chat of their own. The
+ * fake server waits latencyMillis (50) plus up to jitterMillis (50) and
+ * answers errorRate (0) of the requests with a 500 and throttleRate (0) with
+ * a 429 naming retryAfter (1) seconds. The driver waits up to timeoutSeconds
+ * (120) for the outbox to drain.
+ *
+ * The outbox, coalescer and rate limiter are configured with their usual
+ * system properties, such as -Dhms.notify.senders or -Dhms.notify.maxInFlight.
+ * Unless set, the rate limits are raised so the run measures the sender pool
+ * and not Telegram's flood limits. Latency is measured per message, from the
+ * call to the notifier until the server accepts the request carrying it.
+ */
+public final class NotificationLoadTest {
+
+    /** Finds the sequence number and send time of each message in a request. */
+    private static final Pattern MARKER = Pattern.compile("#(\\d+) at (\\d+)");
+
+    private NotificationLoadTest() {}
+
+    /**
+     * Runs the load test.
+     *
+     * @param args key=value settings.
+     * @throws Exception If the server or temporary files cannot be set up.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Ignoring argument " + arg + "; expected key=value");
+                continue;
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int messages = Integer.parseInt(settings.getOrDefault("messages", "5000"));
+        int producers = Math.max(1, Integer.parseInt(settings.getOrDefault("producers", "4")));
+        int doctors = Math.max(1, Integer.parseInt(settings.getOrDefault("doctors", "50")));
+        int pharmacistEvery = Math.max(0, Integer.parseInt(settings.getOrDefault("pharmacistEvery", "10")));
+        long timeoutSeconds = Long.parseLong(settings.getOrDefault("timeoutSeconds", "120"));
+
+        FakeBotApiServer server = new FakeBotApiServer(Integer.parseInt(settings.getOrDefault("serverThreads", "64")));
+        server.setLatency(Long.parseLong(settings.getOrDefault("latencyMillis", "50")),
+                Long.parseLong(settings.getOrDefault("jitterMillis", "50")));
+        server.setErrorRate(Double.parseDouble(settings.getOrDefault("errorRate", "0")));
+        server.setThrottleRate(Double.parseDouble(settings.getOrDefault("throttleRate", "0")),
+                Integer.parseInt(settings.getOrDefault("retryAfter", "1")));
+
+        AtomicLongArray latencies = new AtomicLongArray(messages);
+        server.setListener((chatId, text) -> {
+            long now = System.nanoTime();
+            Matcher matcher = MARKER.matcher(text != null ? text : "");
+            while (matcher.find()) {
+                int id = Integer.parseInt(matcher.group(1));
+                if (id < messages) {
+                    latencies.compareAndSet(id, 0, Math.max(1, now - Long.parseLong(matcher.group(2))));
+                }
+            }
+        });
+        server.start();
+
+        // Credentials and outbox log in a scratch directory, so the real ones are not touched
+        Path dir = Files.createTempDirectory("hms-loadtest");
+        Path credentials = dir.resolve("telegramDetails.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("loadtest-token|default-chat");
+        lines.add("role|Doctor|doctors-chat");
+        lines.add("role|Pharmacist|pharmacists-chat");
+        for (int d = 1; d <= doctors; d++) {
+            lines.add("user|" + doctorId(d) + "|chat-" + doctorId(d));
+        }
+        Files.write(credentials, lines, StandardCharsets.UTF_8);
+        System.setProperty("hms.telegram.baseUrl", server.getBaseUrl());
+        System.setProperty("hms.telegram.credentials", credentials.toString());
+        System.setProperty("hms.notify.outboxFile", dir.resolve("notifications.log").toString());
+        setDefault("hms.notify.chatRate", "1000000");
+        setDefault("hms.notify.chatBurst", "1000000");
+        setDefault("hms.notify.globalRate", "1000000");
+        setDefault("hms.notify.globalBurst", "1000000");
+
+        NotifyDoctor notifyDoctor = NotifyDoctor.getInstance();
+        NotifyPharmacist notifyPharmacist = NotifyPharmacist.getInstance();
+        NotificationOutbox outbox = NotificationOutbox.getInstance();
+
+        // The notifiers print a line per message; keep the report readable
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        CountDownLatch done = new CountDownLatch(producers);
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = producer; i < messages; i += producers) {
+                    String message = "Load test message #" + i + " at " + System.nanoTime();
+                    if (pharmacistEvery > 0 && i % pharmacistEvery == 0) {
+                        notifyPharmacist.notifyPharmacistUser(message);
+                    } else {
+                        notifyDoctor.notifyDoctorUser(message, doctorId(i % doctors + 1));
+                    }
+                }
+                done.countDown();
+            }, "loadtest-producer-" + p);
+            thread.start();
+        }
+        done.await();
+        long queuedNanos = System.nanoTime() - start;
+        NotificationCoalescer.getInstance().flushAll();
+        boolean idle = outbox.awaitIdle(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        long totalNanos = System.nanoTime() - start;
+        System.setOut(console);
+
+        long[] delivered = new long[messages];
+        int count = 0;
+        for (int i = 0; i < messages; i++) {
+            long latency = latencies.get(i);
+            if (latency > 0) {
+                delivered[count++] = latency;
+            }
+        }
+        delivered = Arrays.copyOf(delivered, count);
+        Arrays.sort(delivered);
+
+        System.out.println("=== Notification Load Test ===");
+        System.out.printf("Messages: %d from %d producer(s) to %d doctor chat(s)%n", messages, producers, doctors);
+        System.out.printf("Queued in %.0f ms (%.0f msg/s)%n", queuedNanos / 1e6, messages / (queuedNanos / 1e9));
+        System.out.printf("Delivered %d/%d in %.0f ms (%.0f msg/s)%s%n", count, messages, totalNanos / 1e6,
+                count / (totalNanos / 1e9), idle ? "" : ", timed out with " + outbox.getPendingCount() + " pending");
+        System.out.printf("Server requests: %d (accepted %d, 500 %d, 429 %d)%n", server.getRequestCount(),
+                server.getAcceptedCount(), server.getErrorCount(), server.getThrottledCount());
+        if (count > 0) {
+            System.out.printf("Latency ms: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    percentile(delivered, 50), percentile(delivered, 90), percentile(delivered, 99),
+                    percentile(delivered, 99.9), delivered[count - 1] / 1e6);
+        }
+        System.out.println("Client: " + NotificationMetrics.getInstance());
+
+        server.stop();
+        cleanUp(dir);
+        System.exit(idle ? 0 : 1);
+    }
+
+    private static String doctorId(int number) {
+        return String.format("D%04d", number);
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Gets a percentile of sorted latencies.
+     *
+     * @param sorted Latencies in nanoseconds, ascending.
+     * @param percentile Percentile between 0 and 100.
+     * @return The latency in milliseconds.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(sorted.length * percentile / 100.0);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1e6;
+    }
+
+    private static void cleanUp(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            // Leave the scratch directory behind
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package HospitalNotificationSystem;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * NotificationMetrics
+ * Counters and a latency histogram for Telegram deliveries.
+ *
+ * Counts requests that were sent successfully, requests that failed, requests
+ * refused by the open CircuitBreaker and retries scheduled by the outbox.
+ * Request latencies go into a histogram with fixed, roughly logarithmic
+ * buckets, from which percentiles are read as bucket upper bounds. All
+ * updates are lock-free.
+ */
+public final class NotificationMetrics {
+
+    /** Upper bounds of the latency buckets, in milliseconds; the last bucket is unbounded. */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+        1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000
+    };
+
+    /** Singleton instance of the NotificationMetrics class. */
+    private static final NotificationMetrics INSTANCE = new NotificationMetrics();
+
+    /** Requests answered with 200. */
+    private final LongAdder sent = new LongAdder();
+
+    /** Requests that failed or were answered with another status. */
+    private final LongAdder failed = new LongAdder();
+
+    /** Requests refused by the open circuit breaker. */
+    private final LongAdder shortCircuited = new LongAdder();
+
+    /** Retries scheduled after failed requests. */
+    private final LongAdder retried = new LongAdder();
+
+    /** Request counts per latency bucket. */
+    private final LongAdder[] latencyBuckets;
+
+    /** Sum of all request latencies, in nanoseconds. */
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private NotificationMetrics() {
+        latencyBuckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+        for (int i = 0; i < latencyBuckets.length; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Retrieves the process-wide metrics.
+     *
+     * @return Singleton instance of the NotificationMetrics class.
+     */
+    public static NotificationMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records a request that got a response or failed.
+     *
+     * @param nanos Time from sending the request to its outcome.
+     * @param success True if the response was a 200.
+     */
+    public void recordRequest(long nanos, boolean success) {
+        (success ? sent : failed).increment();
+        latencyNanos.add(nanos);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && millis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        latencyBuckets[bucket].increment();
+    }
+
+    /**
+     * Records a request refused by the circuit breaker.
+     */
+    public void recordShortCircuited() {
+        shortCircuited.increment();
+    }
+
+    /**
+     * Records a scheduled retry.
+     */
+    public void recordRetried() {
+        retried.increment();
+    }
+
+    /**
+     * Gets the number of requests answered with 200.
+     *
+     * @return Sent requests.
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * Gets the number of requests that failed or got another status.
+     *
+     * @return Failed requests.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the number of requests refused by the circuit breaker.
+     *
+     * @return Short-circuited requests.
+     */
+    public long getShortCircuited() {
+        return shortCircuited.sum();
+    }
+
+    /**
+     * Gets the number of retries scheduled.
+     *
+     * @return Retries.
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    /**
+     * Gets a latency percentile as the upper bound of the bucket it falls in.
+     *
+     * @param percentile Percentile between 0 and 100.
+     * @return Latency in milliseconds, Long.MAX_VALUE if it falls in the
+     *         unbounded bucket, or 0 if nothing was recorded.
+     */
+    public long getLatencyPercentileMillis(double percentile) {
+        long[] counts = new long[latencyBuckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = latencyBuckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[i] : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the mean request latency.
+     *
+     * @return Mean latency in milliseconds, or 0 if nothing was recorded.
+     */
+    public double getMeanLatencyMillis() {
+        long count = getSent() + getFailed();
+        return count == 0 ? 0 : latencyNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Provides a one-line summary of the counters and latencies.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return String.format("sent=%d failed=%d shortCircuited=%d retried=%d latency mean=%.1fms p50<=%s p99<=%s p99.9<=%s",
+                getSent(), getFailed(), getShortCircuited(), getRetried(), getMeanLatencyMillis(),
+                bound(getLatencyPercentileMillis(50)), bound(getLatencyPercentileMillis(99)),
+                bound(getLatencyPercentileMillis(99.9)));
+    }
+
+    private static String bound(long millis) {
+        return millis == Long.MAX_VALUE ? "inf" : millis + "ms";
+    }
+}
@@ -0,0 +1,458 @@
+package HospitalNotificationSystem;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * NotificationOutbox
+ * Singleton queue that delivers Telegram notifications in the background.
+ *
+ * Notifiers hand their messages to the outbox, which only puts them on a
+ * bounded queue, so the menus never wait on the network. A small pool of
+ * sender threads takes messages off the queue and posts them through the
+ * shared TelegramClient without waiting for the response; at most
+ * hms.notify.maxInFlight requests are outstanding at a time.
+ *
+ * Before a message is sent, the RateLimiter must grant a token for its chat
+ * and a global one. A message that gets no token is parked in a FIFO queue
+ * for its chat, and later messages for that chat queue up behind it, until
+ * tokens are available again; parked messages are never dropped.
+ *
+ * Messages that fail with an I/O error or a server error are retried with
+ * exponential backoff and jitter until they have been attempted
+ * hms.notify.maxAttempts times; other failures are reported and dropped. A
+ * 429 response pauses the chat for the retry_after period it names and is
+ * retried after it without counting towards the attempts.
+ *
+ * While the TelegramClient's circuit breaker is open, messages are not sent
+ * but put back until the breaker lets a probe through, again without
+ * counting towards the attempts, so an unreachable Bot API costs neither
+ * timeouts nor attempts. Retries are counted in NotificationMetrics.
+ *
+ * Notifications that arrive while the queue is full wait and are queued
+ * once there is room, as retries are, so none is dropped.
+ *
+ * Accepted notifications are recorded in an OutboxLog (hms.notify.outboxFile)
+ * and acknowledged there once delivered or given up, so notifications still
+ * pending when the application stops are sent after the next start.
+ *
+ * Sizes and delays are read from system properties: hms.notify.queueCapacity,
+ * hms.notify.senders, hms.notify.maxInFlight, hms.notify.maxAttempts,
+ * hms.notify.backoffMillis, hms.notify.maxBackoffMillis,
+ * hms.notify.drainMillis and hms.notify.outboxFile.
+ */
+public final class NotificationOutbox {
+
+    /** Finds the retry_after parameter in a Bot API error response. */
+    private static final Pattern RETRY_AFTER = Pattern.compile("\"retry_after\"\\s*:\\s*(\\d+)");
+
+    /** Singleton instance of the NotificationOutbox class. */
+    private static NotificationOutbox instance;
+
+    /** Messages waiting for a sender thread. */
+    private final BlockingQueue<Notification> queue;
+
+    /** Threads delivering queued messages. */
+    private final ExecutorService senders;
+
+    /** Thread putting messages back on the queue once their backoff has passed. */
+    private final ScheduledExecutorService retries;
+
+    /** Client used to post the messages. */
+    private final TelegramClient client;
+
+    /** Permits for requests awaiting a response. */
+    private final Semaphore inFlight;
+
+    /** Counters of the deliveries. */
+    private final NotificationMetrics metrics;
+
+    /** Token buckets per chat and overall. */
+    private final RateLimiter limiter;
+
+    /** Messages waiting for a token, per chat ID, in arrival order. */
+    private final Map<String, Deque<Notification>> parked;
+
+    /** Messages accepted but neither delivered nor given up yet. */
+    private final AtomicInteger pending;
+
+    /** Durable record of the pending messages, or null if it could not be opened. */
+    private final OutboxLog log;
+
+    /** Delivery attempts per message before it is given up. */
+    private final int maxAttempts;
+
+    /** Backoff after the first failed attempt, in milliseconds. */
+    private final long backoffMillis;
+
+    /** Upper bound of the backoff, in milliseconds. */
+    private final long maxBackoffMillis;
+
+    /**
+     * Private constructor to prevent direct instantiation. Opens the outbox
+     * log, starts the sender threads, queues the messages left in the log and
+     * registers a shutdown hook that lets queued messages drain.
+     */
+    private NotificationOutbox() {
+        this.queue = new ArrayBlockingQueue<>(Integer.getInteger("hms.notify.queueCapacity", 1024));
+        this.client = TelegramClient.getInstance();
+        this.inFlight = new Semaphore(Math.max(1, Integer.getInteger("hms.notify.maxInFlight", 16)));
+        this.metrics = NotificationMetrics.getInstance();
+        this.limiter = new RateLimiter();
+        this.parked = new HashMap<>();
+        this.pending = new AtomicInteger();
+        this.maxAttempts = Math.max(1, Integer.getInteger("hms.notify.maxAttempts", 5));
+        this.backoffMillis = Math.max(1, Long.getLong("hms.notify.backoffMillis", 500));
+        this.maxBackoffMillis = Math.max(backoffMillis, Long.getLong("hms.notify.maxBackoffMillis", 30_000));
+
+        int senderCount = Math.max(1, Integer.getInteger("hms.notify.senders", 2));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderCount, r -> {
+            Thread thread = new Thread(r, "notification-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        String logFile = System.getProperty("hms.notify.outboxFile", "notifications.log");
+        OutboxLog opened = null;
+        try {
+            opened = new OutboxLog(logFile);
+        } catch (IOException e) {
+            System.err.println("Unable to open notification outbox " + logFile + "; pending notifications will not survive a restart: " + e.getMessage());
+        }
+        this.log = opened;
+
+        for (int i = 0; i < senderCount; i++) {
+            senders.execute(this::runSender);
+        }
+        if (log != null) {
+            for (Notification notification : log.unacknowledged()) {
+                pending.incrementAndGet();
+                requeue(notification);
+            }
+        }
+
+        long drainMillis = Long.getLong("hms.notify.drainMillis", 2_000);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            NotificationCoalescer.flushOpenBatches();
+            awaitIdle(drainMillis);
+            if (log != null) {
+                log.close();
+            }
+        }, "notification-outbox-shutdown"));
+    }
+
+    /**
+     * Retrieves the singleton instance of the NotificationOutbox class,
+     * starting its sender threads on first use.
+     *
+     * @return Singleton instance of the NotificationOutbox class.
+     */
+    public static synchronized NotificationOutbox getInstance() {
+        if (instance == null) {
+            instance = new NotificationOutbox();
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a notification for delivery without waiting for the network. If
+     * the queue is full, the notification is held back and put on the queue
+     * once there is room, like a retry; it is never dropped.
+     *
+     * @param notification The notification to deliver.
+     */
+    public void enqueue(Notification notification) {
+        pending.incrementAndGet();
+        if (log != null) {
+            log.append(notification);
+        }
+        if (!queue.offer(notification)) {
+            // Queue is full; the message stays pending in the log until there is room
+            retries.schedule(() -> requeue(notification), backoffMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records a notification in the outbox log without queueing it, while a
+     * caller holds it back, so it is sent after a restart if the caller never
+     * releases it.
+     *
+     * @param notification The notification held back.
+     */
+    void hold(Notification notification) {
+        if (log != null) {
+            log.append(notification);
+        }
+    }
+
+    /**
+     * Acknowledges a notification recorded by hold, once the caller has
+     * queued it, or a message carrying it, through enqueue.
+     *
+     * @param notification The notification released.
+     */
+    void release(Notification notification) {
+        if (log != null) {
+            log.acknowledge(notification);
+        }
+    }
+
+    /**
+     * Gets the number of notifications accepted but not yet delivered or
+     * given up.
+     *
+     * @return The number of pending notifications.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Waits until every accepted notification has been delivered or given up.
+     *
+     * @param timeoutMillis Maximum time to wait, in milliseconds.
+     * @return True if the outbox is idle, false if the timeout passed first.
+     */
+    public boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (pending.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Main loop of a sender thread.
+     */
+    private void runSender() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                dispatch(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Sends a notification if the rate limiter grants it a token, or parks it
+     * behind the other messages waiting for its chat.
+     *
+     * @param notification The notification to deliver.
+     * @throws InterruptedException If interrupted while waiting for a permit.
+     */
+    private void dispatch(Notification notification) throws InterruptedException {
+        if (notification.isAdmitted()) {
+            notification.setAdmitted(false);
+        } else {
+            String chatId = notification.getChatId();
+            synchronized (parked) {
+                Deque<Notification> waiting = parked.get(chatId);
+                if (waiting != null) {
+                    waiting.add(notification);
+                    return;
+                }
+                long waitNanos = limiter.tryAcquire(chatId);
+                if (waitNanos > 0) {
+                    waiting = new ArrayDeque<>();
+                    waiting.add(notification);
+                    parked.put(chatId, waiting);
+                    retries.schedule(() -> release(chatId), waitNanos, TimeUnit.NANOSECONDS);
+                    return;
+                }
+            }
+        }
+        deliver(notification);
+    }
+
+    /**
+     * Moves the parked messages of a chat back to the queue for as long as
+     * the rate limiter grants tokens, and schedules itself again for the rest.
+     *
+     * @param chatId The chat ID whose messages are parked.
+     */
+    private void release(String chatId) {
+        synchronized (parked) {
+            Deque<Notification> waiting = parked.get(chatId);
+            while (waiting != null && !waiting.isEmpty()) {
+                Notification head = waiting.peek();
+                if (!head.isAdmitted()) {
+                    long waitNanos = limiter.tryAcquire(chatId);
+                    if (waitNanos > 0) {
+                        retries.schedule(() -> release(chatId), waitNanos, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    head.setAdmitted(true);
+                }
+                if (!queue.offer(head)) {
+                    // Queue is full; keep the admitted message at the head and try again shortly
+                    retries.schedule(() -> release(chatId), backoffMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                waiting.poll();
+            }
+            parked.remove(chatId);
+        }
+    }
+
+    /**
+     * Starts one delivery attempt. Waits for a free in-flight permit, but not
+     * for the response.
+     *
+     * @param notification The notification to deliver.
+     * @throws InterruptedException If interrupted while waiting for a permit.
+     */
+    private void deliver(Notification notification) throws InterruptedException {
+        inFlight.acquire();
+        int attempt = notification.recordAttempt();
+        try {
+            client.sendMessageAsync(notification.getMessage(), notification.getChatId(), notification.getBotToken())
+                  .whenComplete((response, error) -> {
+                      inFlight.release();
+                      complete(notification, attempt, response, error);
+                  });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            complete(notification, attempt, null, e);
+        }
+    }
+
+    /**
+     * Handles the outcome of a delivery attempt and schedules a retry if it
+     * failed temporarily.
+     *
+     * @param notification The notification attempted.
+     * @param attempt Number of attempts made so far.
+     * @param response The response, or null if the request failed.
+     * @param error The failure, or null if a response was received.
+     */
+    private void complete(Notification notification, int attempt, HttpResponse<String> response, Throwable error) {
+        String failure;
+        boolean retryable;
+        if (error == null) {
+            int responseCode = response.statusCode();
+            if (responseCode == 200) {
+                finish(notification);
+                return;
+            }
+            if (responseCode == 429) {
+                // Flood control: wait as long as Telegram asks, without using up an attempt
+                long retryAfterMillis = retryAfterMillis(response);
+                limiter.pause(notification.getChatId(), retryAfterMillis);
+                metrics.recordRetried();
+                retries.schedule(() -> requeue(notification), Math.max(retryAfterMillis, backoff(attempt)),
+                        TimeUnit.MILLISECONDS);
+                return;
+            }
+            failure = "Error: " + responseCode;
+            retryable = responseCode >= 500;
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CircuitOpenException) {
+                // Never sent: wait for the breaker without using up an attempt
+                notification.forgetAttempt();
+                long retryAfterMillis = ((CircuitOpenException) cause).getRetryAfterMillis();
+                retries.schedule(() -> requeue(notification),
+                        retryAfterMillis + ThreadLocalRandom.current().nextLong(backoffMillis + 1), TimeUnit.MILLISECONDS);
+                return;
+            }
+            failure = cause.toString();
+            retryable = cause instanceof IOException;
+        }
+
+        if (!retryable || attempt >= maxAttempts) {
+            finish(notification);
+            System.err.println("Telegram notification to chat " + notification.getChatId()
+                    + " failed after " + attempt + " attempt(s): " + failure);
+            return;
+        }
+        metrics.recordRetried();
+        retries.schedule(() -> requeue(notification), backoff(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks a notification as delivered or given up.
+     *
+     * @param notification The notification that no longer has to be sent.
+     */
+    private void finish(Notification notification) {
+        if (log != null) {
+            log.acknowledge(notification);
+        }
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Puts a notification whose backoff has passed back on the queue, or
+     * tries again shortly if the queue is full.
+     *
+     * @param notification The notification to retry.
+     */
+    private void requeue(Notification notification) {
+        if (!queue.offer(notification)) {
+            retries.schedule(() -> requeue(notification), backoffMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reads how long Telegram asks to wait after a 429 response, from the
+     * retry_after parameter or the Retry-After header.
+     *
+     * @param response The 429 response.
+     * @return Wait in milliseconds, or the base backoff if none is given.
+     */
+    private long retryAfterMillis(HttpResponse<String> response) {
+        String body = response.body();
+        Matcher matcher = RETRY_AFTER.matcher(body != null ? body : "");
+        String seconds = matcher.find() ? matcher.group(1) : response.headers().firstValue("Retry-After").orElse(null);
+        try {
+            return seconds != null ? Long.parseLong(seconds.trim()) * 1000 : backoffMillis;
+        } catch (NumberFormatException e) {
+            return backoffMillis;
+        }
+    }
+
+    /**
+     * Computes the delay before the next attempt: the base backoff doubled
+     * for every failed attempt, capped, with up to half of it randomized.
+     *
+     * @param attempt Number of attempts made so far.
+     * @return Delay in milliseconds.
+     */
+    private long backoff(int attempt) {
+        long delay = backoffMillis << Math.min(attempt - 1, 20);
+        delay = Math.min(delay, maxBackoffMillis);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
@@ -1,8 +1,6 @@
 package HospitalNotificationSystem;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 /**
  * NotifyAdministrator
@@ -11,10 +9,13 @@ import java.nio.file.Paths;
  * This class allows sending notifications to the administrator through 
  * Telegram using the Telegram Bot API. It uses a singleton pattern to 
  * ensure only one instance of the notification system exists. The bot token 
- * and chat ID are read from a configuration file.
+ * and chat ID are taken from the cached TelegramCredentials.
  */
 public final class NotifyAdministrator extends HNSTelegramBot {
     
+    /** Role whose chat receives the notifications. */
+    private static final String ROLE = "Administrator";
+
     /** Singleton instance of the NotifyAdministrator class. */
     private static NotifyAdministrator instance_admin;
     
@@ -49,45 +50,41 @@ public final class NotifyAdministrator extends HNSTelegramBot {
     }
 
     /**
-     * Retrieves the chat ID and bot token from a configuration file.
+     * Retrieves the chat ID and bot token from the cached credentials.
      * 
-     * This method reads the configuration file specified by `filePath` to 
-     * retrieve the bot token and chat ID. The file should contain the bot 
-     * token and chat ID separated by a "|" symbol.
+     * The credentials are loaded once by the TelegramCredentialsProvider and 
+     * reloaded when the file changes; the chat ID is the one set for the 
+     * administrator role, or the default chat.
      * 
-     * @throws IOException If an error occurs while reading the file.
+     * @throws IOException If no credentials are available.
      */
     @Override
     public void getChatId() throws IOException {
-        // Read the contents of the file (Conducted this way to prevent leakage of API Key)
-        String content = new String(Files.readAllBytes(Paths.get(filePath))).trim();
-
-        // Split the content using the "|" separator
-        String[] parts = content.split("\\|");
-        botToken = parts[0].trim();
-        chatId = parts[1].trim();
+        TelegramCredentials credentials = TelegramCredentialsProvider.getInstance().get();
+        botToken = credentials.getBotToken();
+        chatId = credentials.getChatId(ROLE, null);
     }
 
     /**
      * Sends a notification message to the administrator via Telegram.
      * 
-     * This method sends a message to the administrator's Telegram chat using 
-     * the bot token and chat ID. It first retrieves the bot token and chat 
-     * ID by calling `getChatId()`, then it sends the message to Telegram.
+     * This method queues the message for the administrator's Telegram chat using 
+     * the cached bot token and chat ID, so no file is read.
      * 
      * @param message The message to send to the administrator.
      */
     public void notifyAdminUser(String message) {
+        TelegramCredentials credentials;
         try {
             // Retrieve chat ID and bot token
-            getChatId();
+            credentials = TelegramCredentialsProvider.getInstance().get();
         } catch (Exception e) {
             System.out.println("Unable to get telegram Details. Admin's telegram will not be notified.");
             return;
         }
 
-        // Send the message to the administrator via Telegram
-        super.sendToTele(message, chatId, botToken);
+        // Queue the message for the administrator's Telegram; it is sent in the background
+        super.queueToTele(message, credentials.getChatId(ROLE, null), credentials.getBotToken());
         System.out.println("Administrator Telegram Notification Success");
     }
 }
@@ -1,8 +1,6 @@
 package HospitalNotificationSystem;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 /**
  * NotifyDoctor
@@ -10,11 +8,14 @@ import java.nio.file.Paths;
  * 
  * This class allows sending notifications to a doctor through Telegram using 
  * the Telegram Bot API. It uses a singleton pattern to ensure only one instance 
- * of the notification system exists. The bot token and chat ID are read from 
- * a configuration file.
+ * of the notification system exists. The bot token and chat ID are taken from 
+ * the cached TelegramCredentials.
  */
 public final class NotifyDoctor extends HNSTelegramBot {
     
+    /** Role whose chat receives the notifications. */
+    private static final String ROLE = "Doctor";
+
     /** Singleton instance of the NotifyDoctor class. */
     private static NotifyDoctor instance_doctor;
     
@@ -49,45 +50,55 @@ public final class NotifyDoctor extends HNSTelegramBot {
     }
 
     /**
-     * Retrieves the chat ID and bot token from a configuration file.
+     * Retrieves the chat ID and bot token from the cached credentials.
      * 
-     * This method reads the configuration file specified by `filePath` to 
-     * retrieve the bot token and chat ID. The file should contain the bot 
-     * token and chat ID separated by a "|" symbol.
+     * The credentials are loaded once by the TelegramCredentialsProvider and 
+     * reloaded when the file changes; the chat ID is the one set for the 
+     * doctor role, or the default chat.
      * 
-     * @throws IOException If an error occurs while reading the file.
+     * @throws IOException If no credentials are available.
      */
     @Override
     public void getChatId() throws IOException {
-        // Read the contents of the file (Conducted this way to prevent leakage of API Key)
-        String content = new String(Files.readAllBytes(Paths.get(filePath))).trim();
-
-        // Split the content using the "|" separator
-        String[] parts = content.split("\\|");
-        botToken = parts[0].trim();  // botToken is the fifth part
-        chatId = parts[1].trim();    // chatId is the sixth part
+        TelegramCredentials credentials = TelegramCredentialsProvider.getInstance().get();
+        botToken = credentials.getBotToken();
+        chatId = credentials.getChatId(ROLE, null);
     }
 
     /**
      * Sends a notification message to the doctor via Telegram.
      * 
-     * This method sends a message to the doctor's Telegram chat using the 
-     * bot token and chat ID. It first retrieves the bot token and chat ID 
-     * by calling `getChatId()`, then it sends the message to Telegram.
+     * This method queues the message for the doctors' Telegram chat using 
+     * the cached bot token and chat ID.
      * 
      * @param message The message to send to the doctor.
      */
     public void notifyDoctorUser(String message) {
+        notifyDoctorUser(message, null);
+    }
+
+    /**
+     * Sends a notification message to one doctor via Telegram.
+     * 
+     * This method queues the message for the doctor's own Telegram chat if 
+     * one is configured, otherwise for the doctors' chat. The bot token and 
+     * chat ID come from the cached credentials, so no file is read.
+     * 
+     * @param message The message to send to the doctor.
+     * @param doctorId The hospital ID of the doctor, or null for the doctors' chat.
+     */
+    public void notifyDoctorUser(String message, String doctorId) {
+        TelegramCredentials credentials;
         try {
             // Retrieve chat ID and bot token
-            getChatId();
+            credentials = TelegramCredentialsProvider.getInstance().get();
         } catch (Exception e) {
             System.out.println("Unable to get telegram Details. Doctor's telegram will not be notified.");
             return;
         }
 
-        // Send the message to the doctor via Telegram
-        super.sendToTele(message, chatId, botToken);
+        // Queue the message for the doctor's Telegram; it is sent in the background
+        super.queueToTele(message, credentials.getChatId(ROLE, doctorId), credentials.getBotToken());
         System.out.println("Doctor Telegram Notification Success");
     }
 }
@@ -0,0 +1,269 @@
+package HospitalNotificationSystem;
+
+import db.AtomicFileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OutboxLog
+ * Append-only file recording the notifications the outbox still has to send.
+ *
+ * Every accepted notification is appended as an E record, and an A record
+ * acknowledges it once it has been delivered or given up:
+ *
+ *     E|id|chatId|botToken|base64(message)
+ *     A|id
+ *
+ * Records are collected in memory and written by a background thread every
+ * hms.notify.commitMillis milliseconds, one write and one fsync per batch, so
+ * queueing a notification never waits for the disk; a crash loses at most the
+ * last interval. When more than hms.notify.compactThreshold notifications
+ * have been acknowledged and they outnumber the unacknowledged ones, the file
+ * is rewritten with only the unacknowledged E records. On startup the E
+ * records without an A record are handed back to the outbox.
+ */
+final class OutboxLog {
+
+    /** Separator between the fields of a record. */
+    private static final String SEPARATOR = "|";
+
+    /** The log file. */
+    private final Path path;
+
+    /** Records waiting for the next group commit. */
+    private List<String> buffer;
+
+    /** E records of unacknowledged notifications by ID, in append order. */
+    private final Map<Long, String> live;
+
+    /** Acknowledgements written since the last compaction. */
+    private int acknowledged;
+
+    /** ID of the next appended notification. */
+    private long nextId;
+
+    /** Acknowledgements that make a compaction worthwhile. */
+    private final int compactThreshold;
+
+    /** Channel appending to the log file; only used while holding writeLock. */
+    private FileChannel channel;
+
+    /** Serializes writes, compactions and closing. */
+    private final Object writeLock = new Object();
+
+    /** Thread running the group commits. */
+    private final ScheduledExecutorService committer;
+
+    /**
+     * Opens a log, reading the notifications it still holds.
+     *
+     * @param fileName Name of the log file.
+     * @throws IOException If the file exists but cannot be read, or cannot be opened for appending.
+     */
+    OutboxLog(String fileName) throws IOException {
+        this.path = Paths.get(fileName);
+        this.buffer = new ArrayList<>();
+        this.live = new LinkedHashMap<>();
+        this.nextId = 1;
+        this.compactThreshold = Math.max(1, Integer.getInteger("hms.notify.compactThreshold", 1000));
+        truncateTornTail();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                replay(line);
+            }
+        }
+        this.channel = open();
+
+        long commitMillis = Math.max(1, Long.getLong("hms.notify.commitMillis", 50));
+        this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "notification-outbox-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commitQuietly, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the notifications that were not acknowledged before the log was
+     * opened, in the order they were appended.
+     *
+     * @return The unacknowledged notifications.
+     */
+    synchronized List<Notification> unacknowledged() {
+        List<Notification> notifications = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : live.entrySet()) {
+            String[] fields = entry.getValue().split("\\" + SEPARATOR, -1);
+            String message = new String(Base64.getDecoder().decode(fields[4]), StandardCharsets.UTF_8);
+            Notification notification = new Notification(message, fields[2], fields[3]);
+            notification.setLogId(entry.getKey());
+            notifications.add(notification);
+        }
+        return notifications;
+    }
+
+    /**
+     * Records a new notification and gives it its log ID. The record reaches
+     * the disk with the next group commit.
+     *
+     * @param notification The notification accepted by the outbox.
+     */
+    synchronized void append(Notification notification) {
+        long id = nextId++;
+        notification.setLogId(id);
+        String record = String.join(SEPARATOR, "E", Long.toString(id), notification.getChatId(),
+                notification.getBotToken(),
+                Base64.getEncoder().encodeToString(notification.getMessage().getBytes(StandardCharsets.UTF_8)));
+        live.put(id, record);
+        buffer.add(record);
+    }
+
+    /**
+     * Records that a notification no longer has to be sent.
+     *
+     * @param notification The delivered or abandoned notification.
+     */
+    synchronized void acknowledge(Notification notification) {
+        if (live.remove(notification.getLogId()) != null) {
+            buffer.add("A" + SEPARATOR + notification.getLogId());
+            acknowledged++;
+        }
+    }
+
+    /**
+     * Writes the buffered records and forces them to disk, then compacts the
+     * file if enough notifications have been acknowledged.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    void commit() throws IOException {
+        synchronized (writeLock) {
+            List<String> records;
+            boolean compact;
+            synchronized (this) {
+                records = buffer;
+                buffer = new ArrayList<>();
+                compact = acknowledged >= compactThreshold && acknowledged > live.size();
+            }
+            if (!records.isEmpty()) {
+                StringBuilder sb = new StringBuilder();
+                for (String record : records) {
+                    sb.append(record).append('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            }
+            if (compact) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Commits the buffered records and stops the group commits.
+     */
+    void close() {
+        committer.shutdown();
+        synchronized (writeLock) {
+            try {
+                commit();
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Unable to write notification outbox " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file with only the unacknowledged notifications. Records
+     * appended meanwhile stay buffered and go to the new file.
+     */
+    private void compact() throws IOException {
+        List<String> records;
+        synchronized (this) {
+            records = new ArrayList<>(live.values());
+            acknowledged = 0;
+        }
+        channel.close();
+        AtomicFileWriter.commit(path.toString(), records);
+        channel = open();
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException e) {
+            System.err.println("Unable to write notification outbox " + path + ": " + e.getMessage());
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Cuts off a last record that was only partly written, so the next record
+     * starts on a line of its own.
+     */
+    private void truncateTornTail() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = file.size();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            long end = size;
+            while (end > 0) {
+                last.clear();
+                file.read(last, end - 1);
+                if (last.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < size) {
+                file.truncate(end);
+            }
+        }
+    }
+
+    /**
+     * Applies one record read from the file. Malformed records, such as a
+     * line torn by a crash, are skipped.
+     */
+    private void replay(String line) {
+        String[] fields = line.split("\\" + SEPARATOR, -1);
+        try {
+            if (fields[0].equals("E") && fields.length == 5) {
+                Base64.getDecoder().decode(fields[4]);
+                long id = Long.parseLong(fields[1]);
+                live.put(id, line);
+                nextId = Math.max(nextId, id + 1);
+            } else if (fields[0].equals("A") && fields.length == 2) {
+                long id = Long.parseLong(fields[1]);
+                if (live.remove(id) != null) {
+                    acknowledged++;
+                }
+                nextId = Math.max(nextId, id + 1);
+            }
+        } catch (IllegalArgumentException e) {
+            // Torn or damaged record
+        }
+    }
+}
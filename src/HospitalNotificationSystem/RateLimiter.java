@@ -0,0 +1,151 @@
+package HospitalNotificationSystem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RateLimiter
+ * Token buckets limiting how fast messages are sent, per chat and overall.
+ *
+ * Every chat has a bucket refilled at hms.notify.chatRate messages per second
+ * holding at most hms.notify.chatBurst tokens, and all chats share a bucket
+ * refilled at hms.notify.globalRate per second holding at most
+ * hms.notify.globalBurst tokens. A message may go out when both buckets hold a
+ * token. A chat can also be paused, e.g. for the retry_after period of a 429
+ * response. Buckets of idle chats are dropped once they are full again.
+ */
+public final class RateLimiter {
+
+    /**
+     * TokenBucket
+     * Tokens available to one chat or to all chats.
+     */
+    private static final class TokenBucket {
+
+        /** Tokens added per nanosecond. */
+        private final double ratePerNano;
+
+        /** Most tokens the bucket holds. */
+        private final double capacity;
+
+        /** Tokens currently held. */
+        private double tokens;
+
+        /** Time of the last refill, from System.nanoTime. */
+        private long refilledAt;
+
+        /** No token is handed out before this time, from System.nanoTime. */
+        private long pausedUntil;
+
+        TokenBucket(double ratePerSecond, double capacity, long now) {
+            this.ratePerNano = ratePerSecond / 1e9;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refilledAt = now;
+            this.pausedUntil = now;
+        }
+
+        /**
+         * Adds the tokens earned since the last refill.
+         */
+        void refill(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+                refilledAt = now;
+            }
+        }
+
+        /**
+         * Gets the time until a token can be taken.
+         *
+         * @return Wait in nanoseconds, 0 if a token is available now.
+         */
+        long waitNanos(long now) {
+            long wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / ratePerNano);
+            return Math.max(wait, pausedUntil - now);
+        }
+
+        boolean isIdle(long now) {
+            return tokens >= capacity && pausedUntil <= now;
+        }
+    }
+
+    /** Rate of every chat bucket, in messages per second. */
+    private final double chatRate;
+
+    /** Capacity of every chat bucket. */
+    private final double chatBurst;
+
+    /** Bucket shared by all chats. */
+    private final TokenBucket global;
+
+    /** Buckets keyed by chat ID. */
+    private final Map<String, TokenBucket> chats;
+
+    /**
+     * Constructs a limiter from the hms.notify rate properties. The defaults
+     * follow the Bot API limits: about one message per second per chat and
+     * thirty per second overall.
+     */
+    public RateLimiter() {
+        this(Double.parseDouble(System.getProperty("hms.notify.chatRate", "1")),
+             Double.parseDouble(System.getProperty("hms.notify.chatBurst", "3")),
+             Double.parseDouble(System.getProperty("hms.notify.globalRate", "30")),
+             Double.parseDouble(System.getProperty("hms.notify.globalBurst", "30")));
+    }
+
+    /**
+     * Constructs a limiter with the given rates.
+     *
+     * @param chatRate Messages per second per chat.
+     * @param chatBurst Messages a chat may send at once after being idle.
+     * @param globalRate Messages per second over all chats.
+     * @param globalBurst Messages that may be sent at once over all chats.
+     */
+    public RateLimiter(double chatRate, double chatBurst, double globalRate, double globalBurst) {
+        this.chatRate = chatRate;
+        this.chatBurst = Math.max(1, chatBurst);
+        this.global = new TokenBucket(globalRate, Math.max(1, globalBurst), System.nanoTime());
+        this.chats = new HashMap<>();
+    }
+
+    /**
+     * Takes a token for a chat if both its bucket and the global bucket have
+     * one; otherwise takes nothing.
+     *
+     * @param chatId The chat ID of the recipient.
+     * @return 0 if a token was taken, or the nanoseconds to wait before trying again.
+     */
+    public synchronized long tryAcquire(String chatId) {
+        long now = System.nanoTime();
+        TokenBucket chat = bucket(chatId, now);
+        chat.refill(now);
+        global.refill(now);
+        long wait = Math.max(chat.waitNanos(now), global.waitNanos(now));
+        if (wait > 0) {
+            return wait;
+        }
+        chat.tokens -= 1;
+        global.tokens -= 1;
+        if (chats.size() > 1024) {
+            chats.values().removeIf(bucket -> bucket != chat && bucket.isIdle(now));
+        }
+        return 0;
+    }
+
+    /**
+     * Hands no tokens to a chat for a while, e.g. after a 429 response.
+     *
+     * @param chatId The chat ID of the recipient.
+     * @param millis Pause in milliseconds.
+     */
+    public synchronized void pause(String chatId, long millis) {
+        long now = System.nanoTime();
+        TokenBucket chat = bucket(chatId, now);
+        chat.pausedUntil = Math.max(chat.pausedUntil, now + millis * 1_000_000);
+    }
+
+    private TokenBucket bucket(String chatId, long now) {
+        return chats.computeIfAbsent(chatId, id -> new TokenBucket(chatRate, chatBurst, now));
+    }
+}
@@ -0,0 +1,217 @@
+package HospitalNotificationSystem;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TelegramClient
+ * Shared HTTP client for the Telegram Bot API.
+ *
+ * All notifications go through one java.net.http.HttpClient, which keeps its
+ * connections alive and multiplexes requests over HTTP/2 where the server
+ * supports it, so a message does not pay for a new TLS handshake. The
+ * sendMessage endpoint of every bot token is built once and reused.
+ *
+ * The API base URL and timeouts are read from system properties:
+ * hms.telegram.baseUrl (default https://api.telegram.org), which can point at
+ * a local stand-in server, hms.telegram.connectTimeoutMillis and
+ * hms.telegram.readTimeoutMillis.
+ *
+ * Every request passes a CircuitBreaker first. While the breaker is open a
+ * send fails at once with a CircuitOpenException instead of waiting for the
+ * timeouts, and every outcome is counted in NotificationMetrics.
+ */
+public final class TelegramClient {
+
+    /** Singleton instance configured from system properties. */
+    private static TelegramClient instance;
+
+    /** The underlying HTTP client. */
+    private final HttpClient client;
+
+    /** Base URL of the Bot API, without a trailing slash. */
+    private final String baseUrl;
+
+    /** Time allowed for a response once the request has been sent. */
+    private final Duration readTimeout;
+
+    /** sendMessage endpoints keyed by bot token. */
+    private final Map<String, URI> endpoints;
+
+    /** Breaker refusing requests while the Bot API is unreachable. */
+    private final CircuitBreaker breaker;
+
+    /** Counters and latencies of the requests sent. */
+    private final NotificationMetrics metrics;
+
+    /**
+     * Constructs a client for a Bot API server.
+     *
+     * @param baseUrl Base URL of the Bot API, e.g. https://api.telegram.org.
+     * @param connectTimeout Time allowed to open a connection.
+     * @param readTimeout Time allowed for a response once the request has been sent.
+     */
+    public TelegramClient(String baseUrl, Duration connectTimeout, Duration readTimeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.readTimeout = readTimeout;
+        this.endpoints = new ConcurrentHashMap<>();
+        this.breaker = new CircuitBreaker();
+        this.metrics = NotificationMetrics.getInstance();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Retrieves the shared client configured from system properties.
+     *
+     * @return Singleton instance of the TelegramClient class.
+     */
+    public static synchronized TelegramClient getInstance() {
+        if (instance == null) {
+            instance = new TelegramClient(
+                    System.getProperty("hms.telegram.baseUrl", "https://api.telegram.org"),
+                    Duration.ofMillis(Long.getLong("hms.telegram.connectTimeoutMillis", 5_000)),
+                    Duration.ofMillis(Long.getLong("hms.telegram.readTimeoutMillis", 10_000)));
+        }
+        return instance;
+    }
+
+    /**
+     * Sends a message and waits for the response.
+     *
+     * @param message The message to send to the Telegram chat.
+     * @param chatId The chat ID of the recipient.
+     * @param botToken The bot token to authenticate the request.
+     * @return The response from the Bot API.
+     * @throws CircuitOpenException If the circuit breaker is open.
+     * @throws IOException If the request cannot be sent or times out.
+     */
+    public HttpResponse<String> sendMessage(String message, String chatId, String botToken) throws IOException {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request(message, chatId, botToken), HttpResponse.BodyHandlers.ofString());
+            record(start, response, null);
+            return response;
+        } catch (InterruptedException e) {
+            record(start, null, e);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending Telegram message", e);
+        } catch (IOException | RuntimeException e) {
+            record(start, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a message without waiting for the response.
+     *
+     * @param message The message to send to the Telegram chat.
+     * @param chatId The chat ID of the recipient.
+     * @param botToken The bot token to authenticate the request.
+     * @return Future completed with the response from the Bot API, or
+     *         exceptionally if the request cannot be sent or times out, or
+     *         with a CircuitOpenException if the circuit breaker is open.
+     */
+    public CompletableFuture<HttpResponse<String>> sendMessageAsync(String message, String chatId, String botToken) {
+        try {
+            acquire();
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        try {
+            return client.sendAsync(request(message, chatId, botToken), HttpResponse.BodyHandlers.ofString())
+                         .whenComplete((response, error) -> record(start, response, error));
+        } catch (RuntimeException e) {
+            record(start, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the circuit breaker in front of the Bot API.
+     *
+     * @return The circuit breaker.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Lets a request pass the circuit breaker.
+     *
+     * @throws CircuitOpenException If the circuit breaker is open.
+     */
+    private void acquire() throws CircuitOpenException {
+        if (!breaker.tryAcquire()) {
+            metrics.recordShortCircuited();
+            throw new CircuitOpenException(breaker.remainingOpenMillis());
+        }
+    }
+
+    /**
+     * Reports the outcome of a request to the circuit breaker and the
+     * metrics. Server errors and failures to get a response count against
+     * the breaker; any other response shows the API is reachable.
+     */
+    private void record(long start, HttpResponse<String> response, Throwable error) {
+        metrics.recordRequest(System.nanoTime() - start, error == null && response.statusCode() == 200);
+        if (error != null || response.statusCode() >= 500) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    /**
+     * Builds the sendMessage request for a message.
+     */
+    private HttpRequest request(String message, String chatId, String botToken) {
+        URI endpoint = endpoints.computeIfAbsent(botToken, token -> URI.create(baseUrl + "/bot" + token + "/sendMessage"));
+        String payload = "{\"chat_id\":\"" + escape(chatId) + "\",\"text\":\"" + escape(message) + "\"}";
+        return HttpRequest.newBuilder(endpoint)
+                .timeout(readTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * Escapes a value for use inside a JSON string.
+     *
+     * @param value The value to escape.
+     * @return The escaped value.
+     */
+    static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
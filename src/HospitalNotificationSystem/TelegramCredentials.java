@@ -0,0 +1,122 @@
+package HospitalNotificationSystem;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * TelegramCredentials
+ * Immutable snapshot of the Telegram bot token and chat IDs.
+ *
+ * The credentials file holds the bot token and the default chat ID on its
+ * first line, separated by a "|" symbol, as it always has. Further lines may
+ * route messages for a role or a single user to their own chat:
+ *
+ *     role|Doctor|chatId
+ *     user|D001|chatId
+ *
+ * Roles and hospital IDs are matched case-insensitively. Blank lines and
+ * lines starting with # are ignored.
+ */
+public final class TelegramCredentials {
+
+    /** The Telegram bot token used for authentication. */
+    private final String botToken;
+
+    /** The chat ID used when no role or user chat is set. */
+    private final String defaultChatId;
+
+    /** Chat IDs keyed by normalized role. */
+    private final Map<String, String> roleChatIds;
+
+    /** Chat IDs keyed by normalized hospital ID. */
+    private final Map<String, String> userChatIds;
+
+    private TelegramCredentials(String botToken, String defaultChatId,
+                                Map<String, String> roleChatIds, Map<String, String> userChatIds) {
+        this.botToken = botToken;
+        this.defaultChatId = defaultChatId;
+        this.roleChatIds = Collections.unmodifiableMap(roleChatIds);
+        this.userChatIds = Collections.unmodifiableMap(userChatIds);
+    }
+
+    /**
+     * Parses the lines of a credentials file.
+     *
+     * @param lines The lines of the file.
+     * @return The parsed credentials.
+     * @throws IOException If the file has no bot token line or a malformed line.
+     */
+    public static TelegramCredentials parse(List<String> lines) throws IOException {
+        String botToken = null;
+        String defaultChatId = null;
+        Map<String, String> roleChatIds = new HashMap<>();
+        Map<String, String> userChatIds = new HashMap<>();
+
+        for (String rawLine : lines) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\|");
+            if (botToken == null) {
+                if (parts.length < 2) {
+                    throw new IOException("Expected botToken|chatId but found: " + line);
+                }
+                botToken = parts[0].trim();
+                defaultChatId = parts[1].trim();
+            } else if (parts.length == 3 && parts[0].trim().equalsIgnoreCase("role")) {
+                roleChatIds.put(normalize(parts[1]), parts[2].trim());
+            } else if (parts.length == 3 && parts[0].trim().equalsIgnoreCase("user")) {
+                userChatIds.put(normalize(parts[1]), parts[2].trim());
+            } else {
+                throw new IOException("Invalid Telegram chat mapping: " + line);
+            }
+        }
+
+        if (botToken == null) {
+            throw new IOException("No Telegram bot token found");
+        }
+        return new TelegramCredentials(botToken, defaultChatId, roleChatIds, userChatIds);
+    }
+
+    /**
+     * Gets the bot token.
+     *
+     * @return The bot token.
+     */
+    public String getBotToken() {
+        return botToken;
+    }
+
+    /**
+     * Gets the chat ID for a recipient: the user's own chat if one is set,
+     * otherwise the chat of the role, otherwise the default chat.
+     *
+     * @param role The role of the recipient, e.g. "Doctor", or null.
+     * @param hospitalID The hospital ID of the recipient, or null.
+     * @return The chat ID.
+     */
+    public String getChatId(String role, String hospitalID) {
+        if (hospitalID != null) {
+            String chatId = userChatIds.get(normalize(hospitalID));
+            if (chatId != null) {
+                return chatId;
+            }
+        }
+        if (role != null) {
+            String chatId = roleChatIds.get(normalize(role));
+            if (chatId != null) {
+                return chatId;
+            }
+        }
+        return defaultChatId;
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,152 @@
+package HospitalNotificationSystem;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * TelegramCredentialsProvider
+ * Singleton holding the current TelegramCredentials in memory.
+ *
+ * The credentials file is read once, on first use. A daemon thread watches
+ * the file's directory with a WatchService and, when the file is created or
+ * changed, parses it again and swaps in the new snapshot in one step, so
+ * notifiers always see either the old or the new credentials. If the new
+ * file cannot be parsed the old snapshot stays in use. Sending a
+ * notification only reads the snapshot and never touches the filesystem.
+ *
+ * The file is hms.telegram.credentials, by default the file the notifiers
+ * have always read.
+ */
+public final class TelegramCredentialsProvider {
+
+    /**
+     * Default location of the credentials file.
+     *
+     * The file contains the Telegram bot token and chat ID. This can be
+     * updated when changing laptops or configurations.
+     */
+    public static final String DEFAULT_PATH = "C:/Users/Werner Soon Shi Xu/Downloads/telegramDetails.txt";
+
+    /** Singleton instance of the TelegramCredentialsProvider class. */
+    private static TelegramCredentialsProvider instance;
+
+    /** The credentials file. */
+    private final Path path;
+
+    /** The current credentials, or null if none could be loaded. */
+    private volatile TelegramCredentials credentials;
+
+    /** Why the credentials could not be loaded, if they could not. */
+    private volatile String failure;
+
+    /**
+     * Private constructor to prevent direct instantiation. Loads the file and
+     * starts watching it.
+     *
+     * @param path The credentials file.
+     */
+    private TelegramCredentialsProvider(Path path) {
+        this.path = path;
+        reload();
+        watch();
+    }
+
+    /**
+     * Retrieves the singleton instance of the TelegramCredentialsProvider
+     * class, loading the credentials on first use.
+     *
+     * @return Singleton instance of the TelegramCredentialsProvider class.
+     */
+    public static synchronized TelegramCredentialsProvider getInstance() {
+        if (instance == null) {
+            instance = new TelegramCredentialsProvider(
+                    Paths.get(System.getProperty("hms.telegram.credentials", DEFAULT_PATH)));
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the current credentials.
+     *
+     * @return The current credentials snapshot.
+     * @throws IOException If no credentials have been loaded.
+     */
+    public TelegramCredentials get() throws IOException {
+        TelegramCredentials current = credentials;
+        if (current == null) {
+            throw new IOException("Telegram details not available: " + failure);
+        }
+        return current;
+    }
+
+    /**
+     * Reads and parses the credentials file, replacing the snapshot if it is
+     * valid.
+     *
+     * @return True if new credentials were loaded.
+     */
+    public boolean reload() {
+        try {
+            credentials = TelegramCredentials.parse(Files.readAllLines(path));
+            failure = null;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failure = e.toString();
+            if (credentials != null) {
+                System.err.println("Keeping previous Telegram details; unable to reload " + path + ": " + e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Starts a daemon thread reloading the credentials whenever the file is
+     * created or modified. Does nothing if the directory cannot be watched.
+     */
+    private void watch() {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        WatchService watcher;
+        try {
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Unable to watch " + directory + " for Telegram detail changes: " + e.getMessage());
+            return;
+        }
+
+        Path fileName = path.getFileName();
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (fileName.equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    if (changed) {
+                        reload();
+                    }
+                    if (!key.reset()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Stop watching
+            }
+        }, "telegram-credentials-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
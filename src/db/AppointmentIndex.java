@@ -0,0 +1,293 @@
+package db;
+
+import items.appointments.Appointment;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * AppointmentIndex
+ * Secondary indexes over the appointments held by TextDB.
+ *
+ * Appointments are indexed by ID, by doctor, by doctor and date, by doctor and status,
+ * by patient and by status. Each appointment gets a sequence number when it enters the
+ * appointments list, and every bucket is ordered by it, so a query returns its
+ * appointments in list order at the cost of the result size only.
+ *
+ * Appointments are mutable, so the keys each appointment was filed under are kept;
+ * after changing the doctor, time slot or status of an appointment, call reindex so
+ * it moves to its new buckets. Statuses are compared case-insensitively.
+ *
+ * An optional listener is told the doctor and date of every appointment that enters,
+ * leaves or moves within the index, for both its old and its new doctor-day.
+ */
+public class AppointmentIndex {
+
+    /**
+     * Entry
+     * Sequence number of an indexed appointment and the keys it is filed under.
+     */
+    private static final class Entry {
+        private final long sequence;  /**< Position of the appointment in list order. */
+        private int id;               /**< Indexed appointment ID. */
+        private String doctorId;      /**< Indexed doctor ID. */
+        private LocalDate date;       /**< Indexed appointment date. */
+        private String patientId;     /**< Indexed patient ID. */
+        private String status;        /**< Indexed normalized status. */
+
+        Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private final Map<Appointment, Entry> entries;                                 /**< Indexed appointments by identity. */
+    private final Map<Integer, TreeMap<Long, Appointment>> byId;                  /**< Appointments by ID. */
+    private final Map<String, TreeMap<Long, Appointment>> byDoctor;               /**< Appointments by doctor. */
+    private final Map<String, Map<LocalDate, TreeMap<Long, Appointment>>> byDoctorDate;  /**< Appointments by doctor, then date. */
+    private final Map<String, Map<String, TreeMap<Long, Appointment>>> byDoctorStatus;   /**< Appointments by doctor, then status. */
+    private final Map<String, TreeMap<Long, Appointment>> byPatient;              /**< Appointments by patient. */
+    private final Map<String, TreeMap<Long, Appointment>> byStatus;               /**< Appointments by status. */
+    private final BiConsumer<String, LocalDate> listener;                          /**< Told of every doctor-day whose appointments change. */
+    private long nextSequence;                                                     /**< Sequence number for the next appended appointment. */
+
+    /**
+     * Constructs an empty index.
+     */
+    public AppointmentIndex() {
+        this((doctorId, date) -> { });
+    }
+
+    /**
+     * Constructs an empty index that reports changed doctor-days.
+     *
+     * @param listener Called with the doctor ID and date of every changed appointment.
+     */
+    public AppointmentIndex(BiConsumer<String, LocalDate> listener) {
+        this.listener = listener;
+        this.entries = new IdentityHashMap<>();
+        this.byId = new HashMap<>();
+        this.byDoctor = new HashMap<>();
+        this.byDoctorDate = new HashMap<>();
+        this.byDoctorStatus = new HashMap<>();
+        this.byPatient = new HashMap<>();
+        this.byStatus = new HashMap<>();
+    }
+
+    /**
+     * Replaces the whole index with the given appointments.
+     *
+     * @param appointments Appointments in list order.
+     */
+    public void rebuild(List<Appointment> appointments) {
+        for (Entry entry : entries.values()) {
+            listener.accept(entry.doctorId, entry.date);
+        }
+        entries.clear();
+        byId.clear();
+        byDoctor.clear();
+        byDoctorDate.clear();
+        byDoctorStatus.clear();
+        byPatient.clear();
+        byStatus.clear();
+        nextSequence = 0;
+        for (Appointment appointment : appointments) {
+            add(appointment);
+        }
+    }
+
+    /**
+     * Indexes an appointment appended to the end of the appointments list.
+     *
+     * @param appointment Appointment to index.
+     */
+    public void add(Appointment appointment) {
+        Entry entry = new Entry(nextSequence++);
+        entries.put(appointment, entry);
+        file(appointment, entry);
+    }
+
+    /**
+     * Drops an appointment that was removed from the appointments list.
+     *
+     * @param appointment Removed appointment.
+     */
+    public void remove(Appointment appointment) {
+        Entry entry = entries.remove(appointment);
+        if (entry != null) {
+            unfile(entry);
+        }
+    }
+
+    /**
+     * Indexes an appointment that replaced another at the same position of the
+     * appointments list.
+     *
+     * @param previous Appointment that was replaced.
+     * @param current  Appointment now at that position.
+     */
+    public void replace(Appointment previous, Appointment current) {
+        if (previous == current) {
+            reindex(current);
+            return;
+        }
+        Entry entry = entries.remove(previous);
+        if (entry == null) {
+            add(current);
+            return;
+        }
+        unfile(entry);
+        entries.put(current, entry);
+        file(current, entry);
+    }
+
+    /**
+     * Moves an appointment to the buckets matching its current doctor, date, patient
+     * and status.
+     *
+     * @param appointment Appointment whose fields changed.
+     */
+    public void reindex(Appointment appointment) {
+        Entry entry = entries.get(appointment);
+        if (entry != null) {
+            unfile(entry);
+            file(appointment, entry);
+        }
+    }
+
+    /**
+     * Finds the first appointment in list order with the given ID.
+     *
+     * @param id Appointment ID.
+     * @return The appointment, or null if there is none.
+     */
+    public Appointment getById(int id) {
+        TreeMap<Long, Appointment> bucket = byId.get(id);
+        return bucket != null ? bucket.firstEntry().getValue() : null;
+    }
+
+    /**
+     * Gets the appointments of a doctor.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @return Appointments in list order.
+     */
+    public List<Appointment> getByDoctor(String doctorId) {
+        return values(byDoctor.get(doctorId));
+    }
+
+    /**
+     * Gets the appointments of a doctor on a date.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the appointments.
+     * @return Appointments in list order.
+     */
+    public List<Appointment> getByDoctorAndDate(String doctorId, LocalDate date) {
+        Map<LocalDate, TreeMap<Long, Appointment>> dates = byDoctorDate.get(doctorId);
+        return values(dates != null ? dates.get(date) : null);
+    }
+
+    /**
+     * Gets the appointments of a doctor with a status.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param status   Status, compared case-insensitively.
+     * @return Appointments in list order.
+     */
+    public List<Appointment> getByDoctorAndStatus(String doctorId, String status) {
+        Map<String, TreeMap<Long, Appointment>> statuses = byDoctorStatus.get(doctorId);
+        return values(statuses != null ? statuses.get(normalize(status)) : null);
+    }
+
+    /**
+     * Gets the appointments of a patient.
+     *
+     * @param patientId Hospital ID of the patient.
+     * @return Appointments in list order.
+     */
+    public List<Appointment> getByPatient(String patientId) {
+        return values(byPatient.get(patientId));
+    }
+
+    /**
+     * Gets the appointments with a status.
+     *
+     * @param status Status, compared case-insensitively.
+     * @return Appointments in list order.
+     */
+    public List<Appointment> getByStatus(String status) {
+        return values(byStatus.get(normalize(status)));
+    }
+
+    /**
+     * Files an appointment under its current keys and remembers them in the entry.
+     */
+    private void file(Appointment appointment, Entry entry) {
+        entry.id = appointment.getId();
+        entry.doctorId = appointment.getDoctorId();
+        entry.date = appointment.getDate();
+        entry.patientId = appointment.getPatientId();
+        entry.status = normalize(appointment.getStatus());
+
+        long sequence = entry.sequence;
+        byId.computeIfAbsent(entry.id, k -> new TreeMap<>()).put(sequence, appointment);
+        byDoctor.computeIfAbsent(entry.doctorId, k -> new TreeMap<>()).put(sequence, appointment);
+        byDoctorDate.computeIfAbsent(entry.doctorId, k -> new HashMap<>())
+                    .computeIfAbsent(entry.date, k -> new TreeMap<>()).put(sequence, appointment);
+        byDoctorStatus.computeIfAbsent(entry.doctorId, k -> new HashMap<>())
+                      .computeIfAbsent(entry.status, k -> new TreeMap<>()).put(sequence, appointment);
+        byPatient.computeIfAbsent(entry.patientId, k -> new TreeMap<>()).put(sequence, appointment);
+        byStatus.computeIfAbsent(entry.status, k -> new TreeMap<>()).put(sequence, appointment);
+        listener.accept(entry.doctorId, entry.date);
+    }
+
+    /**
+     * Removes an appointment from the buckets recorded in its entry.
+     */
+    private void unfile(Entry entry) {
+        long sequence = entry.sequence;
+        removeFrom(byId, entry.id, sequence);
+        removeFrom(byDoctor, entry.doctorId, sequence);
+        Map<LocalDate, TreeMap<Long, Appointment>> dates = byDoctorDate.get(entry.doctorId);
+        if (dates != null) {
+            removeFrom(dates, entry.date, sequence);
+            if (dates.isEmpty()) {
+                byDoctorDate.remove(entry.doctorId);
+            }
+        }
+        Map<String, TreeMap<Long, Appointment>> statuses = byDoctorStatus.get(entry.doctorId);
+        if (statuses != null) {
+            removeFrom(statuses, entry.status, sequence);
+            if (statuses.isEmpty()) {
+                byDoctorStatus.remove(entry.doctorId);
+            }
+        }
+        removeFrom(byPatient, entry.patientId, sequence);
+        removeFrom(byStatus, entry.status, sequence);
+        listener.accept(entry.doctorId, entry.date);
+    }
+
+    private static <K> void removeFrom(Map<K, TreeMap<Long, Appointment>> buckets, K key, long sequence) {
+        TreeMap<Long, Appointment> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(sequence);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private static List<Appointment> values(TreeMap<Long, Appointment> bucket) {
+        return bucket != null ? new ArrayList<>(bucket.values()) : new ArrayList<>();
+    }
+
+    private static String normalize(String status) {
+        return status != null ? status.toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -33,16 +33,14 @@ public class AppointmentsLoader extends DataLoader<Appointment> {
 
     /**
      * Loads appointment data from the specified file.
+     * Lines are parsed in parallel chunks; the file order is kept.
      * 
      * @throws IOException if an error occurs while reading from the file.
      */
     @Override
     public void loadData() throws IOException {
-        List<String> lines = read(filePath);
         appointments.clear();
-        for (String line : lines) {
-            appointments.add(deserialize(line));
-        }
+        appointments.addAll(MappedLineReader.parse(filePath, this::deserialize));
     }
 
     /**
@@ -0,0 +1,196 @@
+package db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * AtomicFileWriter
+ * Crash-safe replacement of whole data files.
+ *
+ * The new contents are written to a uniquely named temporary file next to the target
+ * in one sequential channel write, forced to disk according to the fsync policy, and
+ * then renamed over the target. Readers see either the old file or the new one, never
+ * a half-written file, even when two threads commit the same file at once. The new
+ * file keeps the permissions of the one it replaces.
+ *
+ * The policy is read from the system property hms.fsync (none, data or full) and
+ * defaults to data.
+ */
+public final class AtomicFileWriter {
+
+    /**
+     * How hard a commit pushes data to the disk before it returns.
+     */
+    public enum FsyncPolicy {
+        NONE,  /**< Leave flushing to the operating system. Fastest, may lose recent commits on power loss. */
+        DATA,  /**< Force file contents to disk before the rename. */
+        FULL;  /**< Force contents and metadata, and the directory entry after the rename. */
+
+        /**
+         * Parses a policy name, falling back to DATA for unknown values.
+         *
+         * @param name Policy name, case-insensitive (may be null).
+         * @return Matching policy.
+         */
+        public static FsyncPolicy parse(String name) {
+            if (name != null) {
+                for (FsyncPolicy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(name.trim())) {
+                        return policy;
+                    }
+                }
+                System.err.println("Unknown fsync policy " + name + ", using DATA.");
+            }
+            return DATA;
+        }
+    }
+
+    private static volatile FsyncPolicy policy = FsyncPolicy.parse(System.getProperty("hms.fsync")); /**< Policy applied to every commit. */
+
+    private AtomicFileWriter() {
+    }
+
+    /**
+     * Gets the fsync policy in use.
+     * @return Current fsync policy.
+     */
+    public static FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the fsync policy used by later commits.
+     * @param newPolicy Policy to use.
+     */
+    public static void setPolicy(FsyncPolicy newPolicy) {
+        policy = newPolicy;
+    }
+
+    /**
+     * Atomically replaces a file with the given lines, each followed by the platform
+     * line separator, encoded the same way a FileWriter would.
+     *
+     * @param fileName Name of the file to replace.
+     * @param lines    Lines to write.
+     * @throws IOException If the file cannot be written or renamed; the original file is left untouched.
+     */
+    public static void commit(String fileName, List<String> lines) throws IOException {
+        String separator = System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append(separator);
+        }
+        commit(fileName, Charset.defaultCharset().encode(sb.toString()));
+    }
+
+    /**
+     * Atomically replaces a file with the given bytes.
+     *
+     * @param fileName Name of the file to replace.
+     * @param contents Bytes to write, from position to limit.
+     * @throws IOException If the file cannot be written or renamed; the original file is left untouched.
+     */
+    public static void commit(String fileName, ByteBuffer contents) throws IOException {
+        FsyncPolicy fsync = policy;
+        Path target = Paths.get(fileName).toAbsolutePath();
+        // A temp file of its own, so concurrent commits of one file never write into each other's
+        Path temp = createTemp(target);
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                copyAttributes(target, temp);
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                if (fsync != FsyncPolicy.NONE) {
+                    channel.force(fsync == FsyncPolicy.FULL);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        if (fsync == FsyncPolicy.FULL) {
+            forceDirectory(target.getParent());
+        }
+    }
+
+    /**
+     * Creates an empty, uniquely named temporary file next to a target. Unlike
+     * Files.createTempFile, which always makes the file private to its owner, the file
+     * gets the permissions the process umask gives any new file.
+     *
+     * @param target File the temporary file will replace.
+     * @return The new temporary file.
+     * @throws IOException If the file cannot be created.
+     */
+    private static Path createTemp(Path target) throws IOException {
+        while (true) {
+            Path temp = target.resolveSibling("." + target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Name taken by another commit; draw another
+            }
+        }
+    }
+
+    /**
+     * Gives a temporary file the POSIX permissions, and where allowed the owner, of the
+     * file it replaces, so a commit keeps the target's mode. Does nothing if the target
+     * does not exist yet or the file system has no POSIX attributes.
+     *
+     * @param target File being replaced.
+     * @param temp   Temporary file holding the new contents.
+     * @throws IOException If the target's attributes cannot be read or the permissions cannot be set.
+     */
+    private static void copyAttributes(Path target, Path temp) throws IOException {
+        if (!Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException | NoSuchFileException e) {
+            // No POSIX attributes here, or the target was removed meanwhile
+            return;
+        }
+        try {
+            Files.setOwner(temp, Files.getOwner(target));
+        } catch (IOException e) {
+            // Only a privileged process may give a file away; it stays with the writer
+        }
+    }
+
+    /**
+     * Forces a directory entry to disk so a rename survives power loss.
+     * Not every platform can open a directory; there the rename is left to the OS.
+     *
+     * @param directory Directory to force.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on this platform
+        }
+    }
+}
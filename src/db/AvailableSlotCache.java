@@ -0,0 +1,136 @@
+package db;
+
+import items.appointments.Schedule;
+import items.appointments.TimeSlot;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AvailableSlotCache
+ * Free appointment slots computed per doctor and date.
+ *
+ * An entry holds what is left of a doctor's availability on a date once the slots of
+ * the doctor's scheduled and requested appointments are taken out: the free slot
+ * bitmap for days on the 30-minute grid, or the free TimeSlots otherwise. Entries are
+ * never expired by time; TextDB drops an entry when the doctor's availability changes
+ * or when an appointment of that doctor-day is added, removed, moved or changes status.
+ *
+ * Entries are immutable and held in concurrent maps, so sessions looking up free
+ * slots can share the cache without locking it.
+ */
+public class AvailableSlotCache {
+
+    /**
+     * Entry
+     * Free slots of one doctor-day.
+     */
+    private static final class Entry {
+        private final long freeMask;              /**< Bitmap of free grid slots. */
+        private final List<TimeSlot> freeSlots;   /**< Free slots of an irregular day, or null for a bitmap day. */
+
+        Entry(long freeMask, List<TimeSlot> freeSlots) {
+            this.freeMask = freeMask;
+            this.freeSlots = freeSlots;
+        }
+    }
+
+    private final Map<String, Map<LocalDate, Entry>> entries;  /**< Entries by doctor, then date. */
+
+    /**
+     * Constructs an empty cache.
+     */
+    public AvailableSlotCache() {
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the cached free slots of a doctor-day.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the slots.
+     * @return New list of the free slots, or null if the doctor-day is not cached.
+     */
+    public List<TimeSlot> get(String doctorId, LocalDate date) {
+        Map<LocalDate, Entry> dates = entries.get(doctorId);
+        Entry entry = dates != null ? dates.get(date) : null;
+        if (entry == null) {
+            return null;
+        }
+        return entry.freeSlots != null ? new ArrayList<>(entry.freeSlots) : Schedule.toTimeSlots(date, entry.freeMask);
+    }
+
+    /**
+     * Checks a slot against the cached free slots of a doctor-day.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the slots.
+     * @param slot     Slot to check.
+     * @return Whether the slot is free, or null if the doctor-day is not cached.
+     */
+    public Boolean isFree(String doctorId, LocalDate date, TimeSlot slot) {
+        Map<LocalDate, Entry> dates = entries.get(doctorId);
+        Entry entry = dates != null ? dates.get(date) : null;
+        if (entry == null) {
+            return null;
+        }
+        if (entry.freeSlots != null) {
+            return entry.freeSlots.contains(slot);
+        }
+        int index = slot != null ? Schedule.slotIndex(date, slot) : -1;
+        return index >= 0 && (entry.freeMask & (1L << index)) != 0;
+    }
+
+    /**
+     * Caches the free slots of a doctor-day held as a bitmap.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the slots.
+     * @param freeMask Bitmap of the free slots.
+     */
+    public void put(String doctorId, LocalDate date, long freeMask) {
+        entries.computeIfAbsent(doctorId, k -> new ConcurrentHashMap<>()).put(date, new Entry(freeMask, null));
+    }
+
+    /**
+     * Caches the free slots of a doctor-day held as TimeSlots.
+     *
+     * @param doctorId  Hospital ID of the doctor.
+     * @param date      Date of the slots.
+     * @param freeSlots The free slots.
+     */
+    public void put(String doctorId, LocalDate date, List<TimeSlot> freeSlots) {
+        entries.computeIfAbsent(doctorId, k -> new ConcurrentHashMap<>()).put(date, new Entry(0, new ArrayList<>(freeSlots)));
+    }
+
+    /**
+     * Drops the entry of a doctor-day.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the slots.
+     */
+    public void invalidate(String doctorId, LocalDate date) {
+        entries.computeIfPresent(doctorId, (id, dates) -> {
+            dates.remove(date);
+            return dates.isEmpty() ? null : dates;
+        });
+    }
+
+    /**
+     * Drops every entry of a doctor.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     */
+    public void invalidate(String doctorId) {
+        entries.remove(doctorId);
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,425 @@
+package db;
+
+import items.Medication;
+import items.Prescription;
+import items.ReplenishmentRequest;
+import items.appointments.Appointment;
+import items.appointments.Schedule;
+import items.appointments.TimeSlot;
+import items.medical_records.ContactInformation;
+import items.medical_records.Diagnosis;
+import items.medical_records.MedicalRecord;
+import items.medical_records.Treatment;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import user_classes.Administrator;
+import user_classes.Doctor;
+import user_classes.Patient;
+import user_classes.Pharmacist;
+import user_classes.User;
+
+/**
+ * BinarySnapshot
+ * Compact binary image of the whole TextDB state, used for fast cold starts.
+ *
+ * The text files stay the import/export format. The snapshot holds the same data with
+ * dates as epoch days, times as minutes and strings length-prefixed, so loading it is a
+ * sequence of bulk ByteBuffer reads with no splitting or date parsing.
+ *
+ * Layout (big-endian): magic, version, the size and modification time of every text
+ * file at the time the snapshot was written, then the sections medical records, users,
+ * appointments, medications, replenishment requests and schedules, each prefixed by its
+ * entry count. A snapshot is only used while every text file still has the recorded
+ * size and modification time, i.e. while it is newer than all of them.
+ *
+ * The sections are read in the order above, because constructing a Patient looks up
+ * its medical record in TextDB.
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x484D5353;  /**< "HMSS" */
+    private static final int VERSION = 1;          /**< Bumped whenever the layout changes. */
+
+    private final ByteBuffer buffer;  /**< Snapshot contents positioned at the next section. */
+
+    private BinarySnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens a snapshot if it exists, has the current version and is still newer than
+     * all of the given text files.
+     *
+     * @param fileName  Name of the snapshot file.
+     * @param textFiles Text files the snapshot was taken from.
+     * @return Snapshot positioned at the first section, or null if it cannot be used.
+     */
+    public static BinarySnapshot open(String fileName, List<String> textFiles) {
+        File file = new File(fileName);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full
+            }
+            buffer.flip();
+
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            BinarySnapshot snapshot = new BinarySnapshot(buffer);
+            int files = buffer.getInt();
+            if (files != textFiles.size()) {
+                return null;
+            }
+            for (String textFile : textFiles) {
+                String name = snapshot.readString();
+                long length = buffer.getLong();
+                long modified = buffer.getLong();
+                File text = new File(textFile);
+                if (!textFile.equals(name) || text.length() != length || text.lastModified() != modified) {
+                    return null;
+                }
+            }
+            return snapshot;
+        } catch (IOException | BufferUnderflowException e) {
+            System.err.println("Ignoring unreadable snapshot " + fileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given state, stamped with the current size and
+     * modification time of the text files. The state must match the text files.
+     *
+     * @param fileName       Name of the snapshot file.
+     * @param textFiles      Text files holding the same state.
+     * @param medicalRecords Medical records.
+     * @param users          Users.
+     * @param appointments   Appointments.
+     * @param medications    Medication inventory.
+     * @param requests       Replenishment requests.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public static void write(String fileName, List<String> textFiles, List<MedicalRecord> medicalRecords,
+                             List<User> users, List<Appointment> appointments, List<Medication> medications,
+                             List<ReplenishmentRequest> requests) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(textFiles.size());
+        for (String textFile : textFiles) {
+            File text = new File(textFile);
+            writeString(out, textFile);
+            out.writeLong(text.length());
+            out.writeLong(text.lastModified());
+        }
+
+        out.writeInt(medicalRecords.size());
+        for (MedicalRecord record : medicalRecords) {
+            writeString(out, record.getPatientID());
+            writeString(out, record.getName());
+            writeDate(out, record.getDateOfBirth());
+            writeString(out, record.getGender());
+            writeString(out, record.getContactInformation().getPhoneNumber());
+            writeString(out, record.getContactInformation().getEmailAddress());
+            writeString(out, record.getBloodType());
+            List<Diagnosis> diagnoses = record.getPastDiagnoses() != null ? record.getPastDiagnoses() : new ArrayList<>();
+            out.writeInt(diagnoses.size());
+            for (Diagnosis diagnosis : diagnoses) {
+                writeString(out, diagnosis.getDescription());
+                writeDate(out, diagnosis.getDate());
+            }
+            List<Treatment> treatments = record.getPastTreatments() != null ? record.getPastTreatments() : new ArrayList<>();
+            out.writeInt(treatments.size());
+            for (Treatment treatment : treatments) {
+                writeString(out, treatment.getServiceType());
+                writeDate(out, treatment.getDateOfAppointment());
+                List<Prescription> prescriptions = treatment.getAllPrescribedMedicine();
+                out.writeInt(prescriptions.size());
+                for (Prescription prescription : prescriptions) {
+                    writeString(out, prescription.getMedicationName());
+                    writeString(out, prescription.getStatus());
+                }
+                // The text format reads missing comments back as an empty string
+                writeString(out, treatment.getTreatmentComments() != null ? treatment.getTreatmentComments() : "");
+                writeString(out, treatment.getDoctorId());
+            }
+        }
+
+        out.writeInt(users.size());
+        for (User user : users) {
+            writeString(out, user.getHospitalID());
+            writeString(out, user.getPassword());
+            writeString(out, user.getName());
+            writeDate(out, user.getDateOfBirth());
+            writeString(out, user.getGender());
+            writeString(out, user.getRole());
+        }
+
+        out.writeInt(appointments.size());
+        for (Appointment appointment : appointments) {
+            out.writeInt(appointment.getId());
+            writeString(out, appointment.getPatientId());
+            writeString(out, appointment.getDoctorId());
+            writeDateTime(out, appointment.getTimeSlot().getStartTime());
+            writeDateTime(out, appointment.getTimeSlot().getEndTime());
+            writeString(out, appointment.getStatus());
+            writeString(out, appointment.getOutcomeRecord());
+        }
+
+        out.writeInt(medications.size());
+        for (Medication medication : medications) {
+            writeString(out, medication.getName());
+            out.writeInt(medication.getQuantity());
+            writeString(out, medication.getSupplier());
+        }
+
+        out.writeInt(requests.size());
+        for (ReplenishmentRequest request : requests) {
+            writeString(out, request.getMedicationName());
+            out.writeInt(request.getQuantity());
+            writeString(out, request.getRequestedBy());
+            writeDate(out, request.getRequestDate());
+        }
+
+        List<Doctor> doctors = new ArrayList<>();
+        for (User user : users) {
+            if (user instanceof Doctor) {
+                doctors.add((Doctor) user);
+            }
+        }
+        out.writeInt(doctors.size());
+        for (Doctor doctor : doctors) {
+            writeString(out, doctor.getHospitalID());
+            Map<LocalDate, List<TimeSlot>> availability = doctor.getSchedule().getAvailability();
+            out.writeInt(availability.size());
+            for (Map.Entry<LocalDate, List<TimeSlot>> day : availability.entrySet()) {
+                writeDate(out, day.getKey());
+                out.writeInt(day.getValue().size());
+                for (TimeSlot slot : day.getValue()) {
+                    out.writeShort(slot.getStartTime().toLocalTime().toSecondOfDay() / 60);
+                    out.writeShort(slot.getEndTime().toLocalTime().toSecondOfDay() / 60);
+                }
+            }
+        }
+
+        out.flush();
+        AtomicFileWriter.commit(fileName, ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * Reads the medical records section.
+     * @return Medical records in stored order.
+     */
+    public List<MedicalRecord> readMedicalRecords() {
+        int count = buffer.getInt();
+        List<MedicalRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String patientID = readString();
+            String name = readString();
+            LocalDate dob = readDate();
+            String gender = readString();
+            ContactInformation contact = new ContactInformation(readString(), readString());
+            String bloodType = readString();
+
+            int diagnosisCount = buffer.getInt();
+            List<Diagnosis> diagnoses = new ArrayList<>(diagnosisCount);
+            for (int d = 0; d < diagnosisCount; d++) {
+                diagnoses.add(new Diagnosis(readString(), readDate()));
+            }
+
+            int treatmentCount = buffer.getInt();
+            List<Treatment> treatments = new ArrayList<>(treatmentCount);
+            for (int t = 0; t < treatmentCount; t++) {
+                Treatment treatment = new Treatment();
+                treatment.setServiceType(readString());
+                treatment.setDateOfAppointment(readDate());
+                int prescriptionCount = buffer.getInt();
+                for (int p = 0; p < prescriptionCount; p++) {
+                    treatment.addPrescription(new Prescription(readString(), readString()));
+                }
+                treatment.setTreatmentComments(readString());
+                treatment.setDoctorId(readString());
+                treatments.add(treatment);
+            }
+
+            records.add(new MedicalRecord(patientID, name, dob, gender, contact, bloodType, diagnoses, treatments));
+        }
+        return records;
+    }
+
+    /**
+     * Reads the users section. Medical records must already be in TextDB, since
+     * patients look theirs up when constructed.
+     *
+     * @return Users in stored order.
+     */
+    public List<User> readUsers() {
+        int count = buffer.getInt();
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String hospitalID = readString();
+            String password = readString();
+            String name = readString();
+            LocalDate dateOfBirth = readDate();
+            String gender = readString();
+            String role = readString().toLowerCase();
+            switch (role) {
+                case "administrator":
+                    users.add(new Administrator(hospitalID, password, name, dateOfBirth, gender));
+                    break;
+                case "doctor":
+                    users.add(new Doctor(hospitalID, password, name, dateOfBirth, gender, new Schedule()));
+                    break;
+                case "patient":
+                    users.add(new Patient(hospitalID, password, name, dateOfBirth, gender));
+                    break;
+                case "pharmacist":
+                    users.add(new Pharmacist(hospitalID, password, name, dateOfBirth, gender));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown role: " + role);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Reads the appointments section.
+     * @return Appointments in stored order.
+     */
+    public List<Appointment> readAppointments() {
+        int count = buffer.getInt();
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = buffer.getInt();
+            String patientId = readString();
+            String doctorId = readString();
+            TimeSlot timeSlot = new TimeSlot(readDateTime(), readDateTime(), false);
+            String status = readString();
+            String outcomeRecord = readString();
+            appointments.add(new Appointment(id, patientId, doctorId, timeSlot, status, outcomeRecord));
+        }
+        return appointments;
+    }
+
+    /**
+     * Reads the medication inventory section.
+     * @return Medications in stored order.
+     */
+    public List<Medication> readMedications() {
+        int count = buffer.getInt();
+        List<Medication> medications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = readString();
+            int quantity = buffer.getInt();
+            medications.add(new Medication(name, quantity, readString()));
+        }
+        return medications;
+    }
+
+    /**
+     * Reads the replenishment requests section.
+     * @return Replenishment requests in stored order.
+     */
+    public List<ReplenishmentRequest> readReplenishmentRequests() {
+        int count = buffer.getInt();
+        List<ReplenishmentRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String medicationName = readString();
+            int quantity = buffer.getInt();
+            String requestedBy = readString();
+            requests.add(new ReplenishmentRequest(medicationName, quantity, requestedBy, readDate()));
+        }
+        return requests;
+    }
+
+    /**
+     * Reads the schedules section as the stored time ranges of each doctor and date,
+     * in the same shape as the entries of the schedules file.
+     *
+     * @return Time ranges keyed by doctor ID and date, each range as {start, end}.
+     */
+    public Map<String, Map<LocalDate, List<LocalTime[]>>> readSchedules() {
+        int doctors = buffer.getInt();
+        Map<String, Map<LocalDate, List<LocalTime[]>>> schedules = new LinkedHashMap<>();
+        for (int i = 0; i < doctors; i++) {
+            String doctorId = readString();
+            int days = buffer.getInt();
+            Map<LocalDate, List<LocalTime[]>> availability = new LinkedHashMap<>();
+            for (int d = 0; d < days; d++) {
+                LocalDate date = readDate();
+                int slots = buffer.getInt();
+                List<LocalTime[]> ranges = new ArrayList<>(slots);
+                for (int s = 0; s < slots; s++) {
+                    ranges.add(new LocalTime[] {
+                            LocalTime.ofSecondOfDay(buffer.getShort() * 60L),
+                            LocalTime.ofSecondOfDay(buffer.getShort() * 60L) });
+                }
+                availability.put(date, ranges);
+            }
+            schedules.put(doctorId, availability);
+        }
+        return schedules;
+    }
+
+    private String readString() {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private LocalDate readDate() {
+        long epochDay = buffer.getLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private LocalDateTime readDateTime() {
+        return LocalDateTime.ofEpochSecond(buffer.getLong() * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date != null ? date.toEpochDay() : Long.MIN_VALUE);
+    }
+
+    /**
+     * Writes a date-time with minute precision, the same precision as the text files.
+     */
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+}
@@ -1,13 +1,11 @@
 package db;
 
 import db.db_interface.DataLoadInterface;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * DataLoader
@@ -40,42 +38,21 @@ public abstract class DataLoader<T> implements DataLoadInterface{  // Generic ty
      * @throws IOException If an I/O error occurs while reading the file.
      */
     public static List<String> read(String fileName) throws IOException {
-        List<String> data = new ArrayList<>();
-        FileInputStream fis = null;
-        Scanner scanner = null;
-        try {
-            fis = new FileInputStream(fileName);
-            scanner = new Scanner(fis);
-            while (scanner.hasNextLine()) {
-                data.add(scanner.nextLine());
-            }
-        } finally {
-            if (scanner != null) {
-                scanner.close();
-            }
-            if (fis != null) {
-                fis.close();
-            }
+        try (Stream<String> lines = MappedLineReader.lines(fileName)) {
+            return lines.collect(Collectors.toCollection(ArrayList::new));
         }
-        return data;
     }
 
     /**
      * Writes a list of strings to a specified file.
+     * The file is replaced atomically, see AtomicFileWriter.
      *
      * @param fileName Name of the file to write data to.
      * @param data List of strings to be written to the file.
      * @throws IOException If an I/O error occurs while writing the file.
      */
     public static void write(String fileName, List<String> data) throws IOException {
-        PrintWriter out = new PrintWriter(new FileWriter(fileName));
-        try {
-            for (String line : data) {
-                out.println(line);
-            }
-        } finally {
-            out.close();
-        }
+        AtomicFileWriter.commit(fileName, data);
     }
 
     /**
@@ -0,0 +1,214 @@
+package db;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GroupCommitter
+ * Decides when TextDB changes reach the disk.
+ *
+ * Under the immediate policy every journaled change is forced to disk by the thread
+ * making it, and a table file asked to be rewritten is rewritten on the spot. Under the
+ * other policies a dedicated writer thread commits changes in groups: every
+ * hms.commit.intervalMillis milliseconds (interval), or as soon as hms.commit.ops
+ * changes are waiting and at the latest after the interval (ops). A group is one
+ * journal write and one fsync, and a table file asked to be rewritten several times
+ * within a group is rewritten once. Callers that need to know when a change is
+ * durable wait on the future they get back; a crash loses at most the last group.
+ *
+ * The policy is read from the system property hms.commit (immediate, interval or ops)
+ * and defaults to immediate.
+ */
+final class GroupCommitter {
+
+    /**
+     * When changes are committed.
+     */
+    enum Policy {
+        IMMEDIATE,  /**< By the thread making the change, before it returns. */
+        INTERVAL,   /**< By the writer thread, every interval. */
+        OPS;        /**< By the writer thread, once enough changes wait or the interval passes. */
+
+        /**
+         * Parses a policy name, falling back to IMMEDIATE for unknown values.
+         *
+         * @param name Policy name, case-insensitive (may be null).
+         * @return Matching policy.
+         */
+        static Policy parse(String name) {
+            if (name != null) {
+                for (Policy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(name.trim())) {
+                        return policy;
+                    }
+                }
+                System.err.println("Unknown commit policy " + name + ", using IMMEDIATE.");
+            }
+            return IMMEDIATE;
+        }
+    }
+
+    /**
+     * A rewrite of one table file.
+     */
+    @FunctionalInterface
+    interface FileWrite {
+        void run() throws IOException;
+    }
+
+    private final Journal journal;                 /**< Journal whose appends are committed. */
+    private final Policy policy;                   /**< Policy in force. */
+    private final int opsThreshold;                /**< Waiting changes that start a group under OPS. */
+    private final Map<String, FileWrite> dirtyFiles = new LinkedHashMap<>(); /**< Files to rewrite in the next group, guarded by this. */
+    private CompletableFuture<Void> filesWritten = new CompletableFuture<>(); /**< Completed once dirtyFiles are written, guarded by this. */
+    private final AtomicInteger waitingOps = new AtomicInteger();         /**< Changes since the last group. */
+    private final AtomicBoolean groupQueued = new AtomicBoolean();        /**< True while an early group is queued on the writer. */
+    private final ScheduledExecutorService writer;  /**< Writer thread, or null under IMMEDIATE. */
+
+    /**
+     * Constructs a committer with the policy from the system properties.
+     *
+     * @param journal Journal whose appends are committed.
+     */
+    GroupCommitter(Journal journal) {
+        this.journal = journal;
+        this.policy = Policy.parse(System.getProperty("hms.commit"));
+        this.opsThreshold = Math.max(1, Integer.getInteger("hms.commit.ops", 64));
+        if (policy == Policy.IMMEDIATE) {
+            this.writer = null;
+            return;
+        }
+        long intervalMillis = Math.max(1, Long.getLong("hms.commit.intervalMillis", 50));
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "textdb-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::commitQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Commits a journal append according to the policy.
+     *
+     * @param appended Future returned by Journal.append.
+     * @return Future completed once the append is on disk.
+     * @throws IOException If the journal cannot be written under IMMEDIATE.
+     */
+    CompletableFuture<Void> journaled(CompletableFuture<Void> appended) throws IOException {
+        if (policy == Policy.IMMEDIATE) {
+            journal.sync();
+        } else {
+            changed();
+        }
+        return appended;
+    }
+
+    /**
+     * Rewrites a table file according to the policy.
+     *
+     * @param fileName File to rewrite; later requests for the same file in a group are merged.
+     * @param write    Writes the file from the tables as they are when it runs.
+     * @return Future completed once the file is written.
+     * @throws IOException If the file cannot be written under IMMEDIATE.
+     */
+    CompletableFuture<Void> rewrite(String fileName, FileWrite write) throws IOException {
+        if (policy == Policy.IMMEDIATE) {
+            write.run();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            dirtyFiles.put(fileName, write);
+            written = filesWritten;
+        }
+        changed();
+        return written;
+    }
+
+    /**
+     * Gets a future completed once every change made so far is on disk.
+     * @return Future of the group holding the last change.
+     */
+    CompletableFuture<Void> whenDurable() {
+        CompletableFuture<Void> files;
+        synchronized (this) {
+            files = dirtyFiles.isEmpty() ? CompletableFuture.completedFuture(null) : filesWritten;
+        }
+        return CompletableFuture.allOf(files, journal.whenSynced());
+    }
+
+    /**
+     * Stops the writer thread and commits whatever is still waiting.
+     */
+    void close() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        commitQuietly();
+    }
+
+    /**
+     * Counts a change and starts a group early once enough are waiting under OPS.
+     */
+    private void changed() {
+        if (policy == Policy.OPS && waitingOps.incrementAndGet() >= opsThreshold && groupQueued.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> {
+                    groupQueued.set(false);
+                    commitQuietly();
+                });
+            } catch (RuntimeException e) {
+                // Shutting down; close commits what is left
+                groupQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Commits one group: rewrites the dirty files, then syncs the journal, which also
+     * holds the checkpoints of those files. Failures are reported, and the futures
+     * of the group fail with them.
+     */
+    private void commitQuietly() {
+        waitingOps.set(0);
+        Map<String, FileWrite> files;
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            files = new LinkedHashMap<>(dirtyFiles);
+            written = filesWritten;
+            dirtyFiles.clear();
+            filesWritten = new CompletableFuture<>();
+        }
+        IOException failure = null;
+        for (Map.Entry<String, FileWrite> file : files.entrySet()) {
+            try {
+                file.getValue().run();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Unable to write " + file.getKey() + ": " + e.getMessage());
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            System.err.println("Unable to write journal: " + e.getMessage());
+        }
+        if (failure != null) {
+            written.completeExceptionally(failure);
+        } else {
+            written.complete(null);
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package db;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Journal
+ * Append-only write-ahead log of TextDB mutations.
+ *
+ * Every mutation is appended as a single line of the form table|op|payload, where the
+ * payload is the table's usual text serialization (or only the key for deletions).
+ * The flat files act as the last snapshot: on startup the journal is replayed on top
+ * of them, and compaction folds the journal back into the flat files.
+ *
+ * Compaction works on rotated segments. Rotating closes the active file
+ * (journal.log), renames it to journal.log.N and starts a new active file, so new
+ * mutations can keep appending while the old segment is being folded away. Replay
+ * reads the rotated segments in order followed by the active file.
+ *
+ * All operations are idempotent (upserts by key, deletes by key, whole-value sets),
+ * so replaying the journal from a segment onwards on top of files that already
+ * contain it is harmless. Replaying an old segment without the records that came
+ * after it is not: once a later change to the same entity has been folded into the
+ * files, the old record would undo it. Segments are therefore deleted oldest first,
+ * a compaction also folds the older segments still on disk, and TextDB folds the
+ * segments a previous run left behind before it accepts writes.
+ *
+ * The records of a mutation that changes several entities, such as a transaction,
+ * are written as one group behind a BEGIN line giving their number. A group cut
+ * short by a crash is dropped as a whole on the next start, so such a mutation is
+ * replayed either completely or not at all.
+ *
+ * Appending only buffers the records; sync writes everything buffered with one write
+ * and one fsync and completes the futures of those appends, so a GroupCommitter can
+ * make many appends durable at once.
+ */
+public class Journal {
+
+    /**
+     * Tables covered by the journal, together with the flat file they compact into.
+     */
+    public enum Table {
+        USERS("users.txt"),
+        APPOINTMENTS("appts.txt"),
+        MEDICAL_RECORDS("med_records.txt"),
+        MEDICATIONS("inventory.txt"),
+        REPLENISHMENT_REQUESTS("replenishment_requests.txt"),
+        SCHEDULES("schedules.txt");
+
+        private final String fileName; /**< Flat file holding the snapshot of this table. */
+
+        Table(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * Gets the flat file this table is stored in.
+         * @return File name of the table.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    /**
+     * Journal operations.
+     *
+     * PUT upserts the serialized entity, DEL removes the entity with the given key,
+     * SET replaces the whole value of a small table, CLEAR drops every entry under a key
+     * and CHECKPOINT marks that the flat file of the table was rewritten in full, so
+     * earlier records of that table must not be replayed. BEGIN opens a group and
+     * holds the number of records in it; it is never returned by readAll.
+     */
+    public enum Op { PUT, DEL, SET, CLEAR, CHECKPOINT, BEGIN }
+
+    /** Separator used between the lines of a SET payload. */
+    public static final String LINE_SEPARATOR = "\u001E";
+
+    /**
+     * Record
+     * A single journal entry.
+     */
+    public static final class Record {
+        private final Table table;     /**< Table the record applies to. */
+        private final Op op;           /**< Operation to perform. */
+        private final String payload;  /**< Serialized entity, key or lines. */
+
+        /**
+         * Constructs a journal record.
+         *
+         * @param table   Table the record applies to.
+         * @param op      Operation to perform.
+         * @param payload Serialized entity, key or lines.
+         */
+        public Record(Table table, Op op, String payload) {
+            this.table = table;
+            this.op = op;
+            this.payload = payload != null ? payload : "";
+        }
+
+        /**
+         * Gets the table the record applies to.
+         * @return Journal table.
+         */
+        public Table getTable() {
+            return table;
+        }
+
+        /**
+         * Gets the operation of the record.
+         * @return Journal operation.
+         */
+        public Op getOp() {
+            return op;
+        }
+
+        /**
+         * Gets the serialized entity, key or lines of the record.
+         * @return Record payload.
+         */
+        public String getPayload() {
+            return payload;
+        }
+
+        /**
+         * Gets the lines stored in a SET payload.
+         * @return Lines of the payload, empty if the table was emptied.
+         */
+        public List<String> getPayloadLines() {
+            if (payload.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return Arrays.asList(payload.split(LINE_SEPARATOR, -1));
+        }
+
+        /**
+         * Serializes the record into its journal line.
+         * @return Journal line without the trailing newline.
+         */
+        String toLine() {
+            return table.name() + DataLoader.SEPARATOR + op.name() + DataLoader.SEPARATOR + payload;
+        }
+
+        /**
+         * Parses a journal line.
+         *
+         * @param line Journal line.
+         * @return Parsed record, or null if the line is torn or unreadable.
+         */
+        static Record parse(String line) {
+            String[] fields = line.split("\\" + DataLoader.SEPARATOR, 3);
+            if (fields.length < 3) {
+                return null;
+            }
+            try {
+                return new Record(Table.valueOf(fields[0]), Op.valueOf(fields[1]), fields[2]);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Segment
+     * A rotated journal file waiting to be compacted.
+     */
+    public static final class Segment {
+        private final File file;          /**< Rotated journal file. */
+        private final Set<Table> tables;  /**< Tables that have records in this segment. */
+
+        Segment(File file, Set<Table> tables) {
+            this.file = file;
+            this.tables = tables;
+        }
+
+        /**
+         * Gets the tables that have records in this segment.
+         * @return Tables touched by the segment.
+         */
+        public Set<Table> getTables() {
+            return tables;
+        }
+
+        /**
+         * Deletes the segment once its tables are safely in the flat files.
+         */
+        public void delete() {
+            if (!file.delete() && file.exists()) {
+                System.err.println("Unable to delete journal segment " + file.getName());
+            }
+        }
+    }
+
+    private final File activeFile;        /**< Journal file receiving new records. */
+    private final Object syncLock = new Object(); /**< Serializes writing to the active file, rotating and closing. */
+    private FileOutputStream out;         /**< Open append stream on the active file; only used while holding syncLock. */
+    private StringBuilder pending = new StringBuilder();            /**< Appended lines not yet written. */
+    private List<CompletableFuture<Void>> waiting = new ArrayList<>(); /**< Futures of the appends in pending. */
+    private int recordCount;              /**< Records appended to the active file. */
+    private Set<Table> touched;           /**< Tables with records in the active file. */
+    private long nextSegment;             /**< Number given to the next rotated segment. */
+
+    /**
+     * Constructs a journal backed by the given file.
+     *
+     * @param fileName Name of the active journal file.
+     */
+    public Journal(String fileName) {
+        this.activeFile = new File(fileName).getAbsoluteFile();
+        this.touched = EnumSet.noneOf(Table.class);
+        this.nextSegment = 1;
+    }
+
+    /**
+     * Reads every record from the rotated segments and the active file, oldest first.
+     * Records that precede the last CHECKPOINT of their table are dropped.
+     *
+     * Also prepares the journal for appending: existing records are counted, so a
+     * journal left over from a previous run is compacted like any other.
+     *
+     * @return Records to replay, in order.
+     * @throws IOException If a journal file cannot be read.
+     */
+    public synchronized List<Record> readAll() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (File segment : listSegments()) {
+            readInto(segment, records);
+            nextSegment = Math.max(nextSegment, segmentNumber(segment) + 1);
+        }
+        int before = records.size();
+        if (activeFile.exists()) {
+            if (truncateTornTail()) {
+                System.err.println("Discarded an incomplete journal entry from the last run.");
+            }
+            readInto(activeFile, records);
+        }
+        recordCount = records.size() - before;
+        for (int i = before; i < records.size(); i++) {
+            touched.add(records.get(i).getTable());
+        }
+
+        // Only replay what came after the last full rewrite of each table
+        int[] lastCheckpoint = new int[Table.values().length];
+        Arrays.fill(lastCheckpoint, -1);
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).getOp() == Op.CHECKPOINT) {
+                lastCheckpoint[records.get(i).getTable().ordinal()] = i;
+            }
+        }
+        List<Record> replay = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            if (i > lastCheckpoint[record.getTable().ordinal()] && record.getOp() != Op.CHECKPOINT) {
+                replay.add(record);
+            }
+        }
+        return replay;
+    }
+
+    /**
+     * Appends records to the journal. They are written by the next sync, as one
+     * group if there are several.
+     *
+     * @param records Records produced by a single mutation.
+     * @return Future completed once the records are on disk, or failed if they cannot be written.
+     */
+    public synchronized CompletableFuture<Void> append(Record... records) {
+        if (records.length > 1) {
+            pending.append(new Record(records[0].getTable(), Op.BEGIN, String.valueOf(records.length)).toLine()).append('\n');
+        }
+        for (Record record : records) {
+            pending.append(record.toLine()).append('\n');
+            touched.add(record.getTable());
+        }
+        recordCount += records.length;
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        waiting.add(written);
+        return written;
+    }
+
+    /**
+     * Gets a future completed once everything appended so far is on disk.
+     * @return Future of the last append, or a completed future if nothing is waiting.
+     */
+    public synchronized CompletableFuture<Void> whenSynced() {
+        if (waiting.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return waiting.get(waiting.size() - 1).thenRun(() -> { });
+    }
+
+    /**
+     * Gets the number of appends waiting for a sync.
+     * @return Appends not yet written.
+     */
+    public synchronized int pendingAppends() {
+        return waiting.size();
+    }
+
+    /**
+     * Writes everything appended since the last sync in one write, forced to disk
+     * according to the fsync policy of AtomicFileWriter, and completes the futures
+     * of those appends. Appending goes on while the disk is busy.
+     *
+     * @throws IOException If the journal cannot be written; the futures fail with it.
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            String lines;
+            List<CompletableFuture<Void>> written;
+            synchronized (this) {
+                if (waiting.isEmpty()) {
+                    return;
+                }
+                lines = pending.toString();
+                written = waiting;
+                pending = new StringBuilder();
+                waiting = new ArrayList<>();
+            }
+            write(lines, written);
+        }
+    }
+
+    /**
+     * Writes lines to the active file and completes the futures waiting for them.
+     * Hold syncLock.
+     *
+     * @param lines   Lines to write.
+     * @param written Futures of the appends the lines belong to.
+     * @throws IOException If the journal cannot be written; the futures fail with it.
+     */
+    private void write(String lines, List<CompletableFuture<Void>> written) throws IOException {
+        try {
+            if (out == null) {
+                out = new FileOutputStream(activeFile, true);
+            }
+            out.write(lines.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            if (AtomicFileWriter.getPolicy() != AtomicFileWriter.FsyncPolicy.NONE) {
+                out.getChannel().force(AtomicFileWriter.getPolicy() == AtomicFileWriter.FsyncPolicy.FULL);
+            }
+        } catch (IOException e) {
+            for (CompletableFuture<Void> future : written) {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        }
+        for (CompletableFuture<Void> future : written) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Gets the number of records in the active file.
+     * @return Record count since the last rotation.
+     */
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * Checks whether the journal holds nothing that is not yet in the flat files.
+     * @return True if the active file is empty and no rotated segment is left.
+     */
+    public synchronized boolean isEmpty() {
+        return recordCount == 0 && listSegments().isEmpty();
+    }
+
+    /**
+     * Writes what is waiting, closes the active file and renames it to the next segment.
+     *
+     * @return The rotated segment, or null if the active file was empty.
+     * @throws IOException If the active file cannot be written or renamed.
+     */
+    public Segment rotate() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                // Nothing may be appended between writing what waits and renaming the file
+                if (!waiting.isEmpty()) {
+                    String lines = pending.toString();
+                    List<CompletableFuture<Void>> written = waiting;
+                    pending = new StringBuilder();
+                    waiting = new ArrayList<>();
+                    write(lines, written);
+                }
+                closeStream();
+                if (recordCount == 0 || !activeFile.exists()) {
+                    return null;
+                }
+                File segmentFile = new File(activeFile.getPath() + "." + nextSegment++);
+                if (!activeFile.renameTo(segmentFile)) {
+                    throw new IOException("Unable to rotate journal " + activeFile.getName());
+                }
+                Segment segment = new Segment(segmentFile, touched);
+                touched = EnumSet.noneOf(Table.class);
+                recordCount = 0;
+                return segment;
+            }
+        }
+    }
+
+    /**
+     * Writes what is waiting and closes the append stream on the active file.
+     */
+    public void close() {
+        synchronized (syncLock) {
+            try {
+                sync();
+            } catch (IOException e) {
+                System.err.println("Unable to write journal " + activeFile.getName() + ": " + e.getMessage());
+            }
+            closeStream();
+        }
+    }
+
+    /**
+     * Closes the append stream on the active file. Hold syncLock.
+     */
+    private void closeStream() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Gets the rotated segments on disk, oldest first, such as those left by a run that
+     * stopped before compacting them. Which tables they touch is not tracked, so each
+     * is taken to touch every table.
+     *
+     * @return Rotated segments.
+     */
+    public synchronized List<Segment> getSegments() {
+        List<Segment> segments = new ArrayList<>();
+        for (File file : listSegments()) {
+            segments.add(new Segment(file, EnumSet.allOf(Table.class)));
+        }
+        return segments;
+    }
+
+    /**
+     * Lists the rotated segments in the order they were created.
+     * @return Rotated segment files.
+     */
+    private List<File> listSegments() {
+        String prefix = activeFile.getName() + ".";
+        File[] files = activeFile.getParentFile().listFiles(
+                (dir, name) -> name.startsWith(prefix) && name.substring(prefix.length()).matches("\\d+"));
+        List<File> segments = new ArrayList<>();
+        if (files != null) {
+            segments.addAll(Arrays.asList(files));
+        }
+        segments.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        return segments;
+    }
+
+    /**
+     * Gets the number of a rotated segment from its file name.
+     * @param segment Rotated segment file.
+     * @return Segment number.
+     */
+    private long segmentNumber(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * Cuts an incomplete last append off the active file, left behind when a previous
+     * run stopped in the middle of it: a torn last line, or a group missing some of
+     * its records. Without this the next append would be glued onto the torn line or
+     * counted into the unfinished group.
+     *
+     * @return True if an incomplete append was removed.
+     * @throws IOException If the active file cannot be read or truncated.
+     */
+    private boolean truncateTornTail() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(activeFile, "rw")) {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            int keep = 0;        // End of the last complete append
+            int groupLeft = 0;   // Records still missing from the open group
+            int lineStart = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (groupLeft > 0) {
+                    groupLeft--;
+                } else {
+                    Record record = Record.parse(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                    if (record != null && record.getOp() == Op.BEGIN) {
+                        groupLeft = groupSize(record);
+                    }
+                }
+                if (groupLeft == 0) {
+                    keep = i + 1;
+                }
+                lineStart = i + 1;
+            }
+            if (keep == bytes.length) {
+                return false;
+            }
+            file.setLength(keep);
+            return true;
+        }
+    }
+
+    /**
+     * Gets the number of records in the group a BEGIN record opens.
+     *
+     * @param begin BEGIN record.
+     * @return Number of records in the group, 0 if the count is unreadable.
+     */
+    private static int groupSize(Record begin) {
+        try {
+            return Math.max(0, Integer.parseInt(begin.getPayload()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the records of one journal file, skipping unreadable lines and group headers.
+     *
+     * @param file    Journal file.
+     * @param records List receiving the records.
+     * @throws IOException If the file cannot be read.
+     */
+    private void readInto(File file, List<Record> records) throws IOException {
+        for (String line : DataLoader.read(file.getPath())) {
+            Record record = Record.parse(line);
+            if (record != null) {
+                if (record.getOp() != Op.BEGIN) {
+                    records.add(record);
+                }
+            } else if (!line.isEmpty()) {
+                System.err.println("Skipping unreadable journal entry: " + line);
+            }
+        }
+    }
+}
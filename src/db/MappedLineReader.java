@@ -0,0 +1,166 @@
+package db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * MappedLineReader
+ * Reads data files as streams of lines straight from their bytes.
+ *
+ * Large files are memory-mapped through FileChannel.map; small files are read into a
+ * heap buffer in one call, which avoids keeping a mapping open on a file that is about
+ * to be replaced (some platforms refuse to rename over a mapped file). Either way the
+ * lines are decoded lazily, one at a time, and the stream's spliterator splits the
+ * buffer into newline-aligned chunks so a parallel stream hands each chunk to its own
+ * worker.
+ *
+ * Lines end at \n or \r\n, and a final line without a terminator is still returned,
+ * the same as Scanner.nextLine for the files this application writes.
+ */
+public final class MappedLineReader {
+    private static final long MAP_THRESHOLD = Long.getLong("hms.mmapThreshold", 1L << 20); /**< Files at least this large are memory-mapped. */
+    private static final int MIN_CHUNK = 64 * 1024;                                       /**< Chunks are not split below this many bytes. */
+
+    private MappedLineReader() {
+    }
+
+    /**
+     * Opens a file as a stream of lines. The stream is sequential; call parallel() on
+     * it to parse chunks concurrently while keeping the line order.
+     *
+     * @param fileName Name of the file to read.
+     * @return Stream of the file's lines.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    public static Stream<String> lines(String fileName) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(fileName + " is too large to read (" + size + " bytes)");
+            }
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Keep reading until the buffer is full
+                }
+                buffer.flip();
+            }
+        }
+        return StreamSupport.stream(new LineSpliterator(buffer, 0, buffer.limit(), Charset.defaultCharset()), false);
+    }
+
+    /**
+     * Parses every line of a file in parallel, keeping the order of the lines.
+     *
+     * @param fileName Name of the file to read.
+     * @param parser   Thread-safe function turning one line into an object.
+     * @param <T>      Type of the parsed objects.
+     * @return Parsed objects in file order.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    public static <T> List<T> parse(String fileName, Function<String, T> parser) throws IOException {
+        try (Stream<String> lines = lines(fileName)) {
+            return lines.parallel().map(parser).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * LineSpliterator
+     * Spliterator over the lines held in a byte range of a buffer.
+     */
+    private static final class LineSpliterator implements Spliterator<String> {
+        private final ByteBuffer buffer;  /**< Whole file contents. */
+        private final Charset charset;    /**< Charset the file was written in. */
+        private int position;             /**< Start of the next line. */
+        private final int end;            /**< End of this spliterator's byte range. */
+
+        LineSpliterator(ByteBuffer buffer, int position, int end, Charset charset) {
+            this.buffer = buffer;
+            this.position = position;
+            this.end = end;
+            this.charset = charset;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            if (position >= end) {
+                return false;
+            }
+            int newline = indexOfNewline(position);
+            int lineEnd = newline >= 0 ? newline : end;
+            int next = newline >= 0 ? newline + 1 : end;
+            if (lineEnd > position && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            action.accept(decode(position, lineEnd));
+            position = next;
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            if (end - position < 2 * MIN_CHUNK) {
+                return null;
+            }
+            int newline = indexOfNewline(position + (end - position) / 2);
+            if (newline < 0) {
+                return null;
+            }
+            LineSpliterator prefix = new LineSpliterator(buffer, position, newline + 1, charset);
+            position = newline + 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        /**
+         * Finds the next newline at or after the given offset within this range.
+         *
+         * @param from Offset to start searching from.
+         * @return Offset of the newline, or -1 if there is none.
+         */
+        private int indexOfNewline(int from) {
+            for (int i = from; i < end; i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Decodes a byte range of the buffer into a string.
+         *
+         * @param from Start offset, inclusive.
+         * @param to   End offset, exclusive.
+         * @return Decoded line.
+         */
+        private String decode(int from, int to) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(to).position(from);
+            return charset.decode(slice).toString();
+        }
+    }
+}
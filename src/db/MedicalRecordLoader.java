@@ -37,17 +37,15 @@ public class MedicalRecordLoader extends DataLoader<MedicalRecord> {
     /**
      * Loads medical records from the associated file.
      *
-     * Reads each line from the file, deserializing each line to a MedicalRecord object.
+     * Parses the lines of the file in parallel chunks, deserializing each line to a
+     * MedicalRecord object in file order.
      *
      * @throws IOException If an error occurs during file reading.
      */
     @Override
     public void loadData() throws IOException {
-        List<String> lines = read(filePath);
         medicalRecords.clear();
-        for (String line : lines) {
-            medicalRecords.add(deserialize(line));
-        }
+        medicalRecords.addAll(MappedLineReader.parse(filePath, this::deserialize));
     }
 
     /**
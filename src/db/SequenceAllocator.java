@@ -0,0 +1,129 @@
+package db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SequenceAllocator
+ * Persistent, monotonic ID sequence handed out in blocks.
+ *
+ * IDs come from an AtomicLong, so allocating one is a single compare-and-set. The
+ * allocator reserves IDs a block at a time by writing the end of the block to the
+ * sequences file (one name|limit line per sequence) before any ID of the block is used.
+ * After a restart allocation continues from the persisted limit, so an ID is never
+ * handed out twice, at the price of skipping the unused rest of the last block.
+ *
+ * Reservations re-read the file under an exclusive lock on a companion .lock file, so
+ * several processes sharing the data directory also get disjoint blocks.
+ */
+public class SequenceAllocator {
+    private static final int DEFAULT_BLOCK_SIZE = Integer.getInteger("hms.sequence.blockSize", 50); /**< IDs reserved per file write. */
+
+    private final String fileName;         /**< File holding the reserved limit of every sequence. */
+    private final String name;             /**< Name of this sequence in the file. */
+    private final int blockSize;           /**< IDs reserved per file write. */
+    private final AtomicLong next;         /**< Next ID to hand out. */
+    private volatile long limit;           /**< First ID that is not reserved yet. */
+
+    /**
+     * Constructs an allocator for a named sequence.
+     *
+     * @param fileName Sequences file.
+     * @param name     Name of the sequence.
+     */
+    public SequenceAllocator(String fileName, String name) {
+        this(fileName, name, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs an allocator for a named sequence with a given block size.
+     *
+     * @param fileName  Sequences file.
+     * @param name      Name of the sequence.
+     * @param blockSize IDs reserved per file write.
+     */
+    public SequenceAllocator(String fileName, String name, int blockSize) {
+        this.fileName = fileName;
+        this.name = name;
+        this.blockSize = Math.max(1, blockSize);
+        this.next = new AtomicLong(1);
+        this.limit = 0;
+    }
+
+    /**
+     * Makes sure the sequence continues after the given value, e.g. the largest ID
+     * already stored. The persisted limit is taken into account on the next
+     * reservation.
+     *
+     * @param value Lowest value the next ID may have.
+     */
+    public void advanceTo(long value) {
+        next.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Hands out the next ID.
+     *
+     * @return A unique ID.
+     * @throws UncheckedIOException If a new block cannot be reserved.
+     */
+    public long next() {
+        while (true) {
+            long id = next.get();
+            if (id < limit) {
+                if (next.compareAndSet(id, id + 1)) {
+                    return id;
+                }
+            } else {
+                reserve();
+            }
+        }
+    }
+
+    /**
+     * Reserves the next block, unless another thread already did.
+     */
+    @SuppressWarnings("try") // The FileLock resource is only held for the body, never read
+    private synchronized void reserve() {
+        if (next.get() < limit) {
+            return;
+        }
+        try (FileChannel lockChannel = FileChannel.open(Paths.get(fileName + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.lock()) {
+            List<String> lines = new File(fileName).exists() ? DataLoader.read(fileName) : new ArrayList<>();
+            long persisted = 0;
+            int index = -1;
+            for (int i = 0; i < lines.size(); i++) {
+                String[] fields = lines.get(i).split("\\" + DataLoader.SEPARATOR);
+                if (fields.length == 2 && fields[0].equals(name)) {
+                    persisted = Long.parseLong(fields[1].trim());
+                    index = i;
+                }
+            }
+
+            long start = Math.max(next.get(), persisted);
+            long newLimit = start + blockSize;
+            String line = name + DataLoader.SEPARATOR + newLimit;
+            if (index >= 0) {
+                lines.set(index, line);
+            } else {
+                lines.add(line);
+            }
+            AtomicFileWriter.commit(fileName, lines);
+
+            next.accumulateAndGet(start, Math::max);
+            limit = newLimit;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to reserve " + name + " IDs", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package db;
+
+import items.appointments.Schedule;
+import items.appointments.TimeSlot;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SlotReservations
+ * Claims on doctor time slots held while an appointment is being booked.
+ *
+ * A booking claims its slot before checking that the slot is free and releases the
+ * claim once the appointment is in the index, or once the booking fails. Two sessions
+ * booking the same slot at once cannot both hold the claim, so they cannot both see
+ * the slot free; bookings of other slots do not wait for each other.
+ *
+ * Slots on the 30-minute grid are claimed by compare-and-set on one bitmap word per
+ * doctor-day. A word that drops to no claims is retired before it is removed from the
+ * map, so a claim never lands in a word that is no longer reachable. Slots off the
+ * grid are claimed as keys of a concurrent set.
+ */
+final class SlotReservations {
+    private static final long RETIRED = 1L << 63;   /**< Marks a word being removed; above the last slot bit. */
+
+    private final Map<String, AtomicLong> gridClaims = new ConcurrentHashMap<>();  /**< Claimed grid slots by doctor-day. */
+    private final Set<String> otherClaims = ConcurrentHashMap.newKeySet();          /**< Claimed slots off the grid. */
+
+    /**
+     * Claims a slot of a doctor.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the slot.
+     * @param slot     Slot to claim.
+     * @return True if the slot is now claimed by the caller, false if another booking holds it.
+     */
+    boolean claim(String doctorId, LocalDate date, TimeSlot slot) {
+        int index = Schedule.slotIndex(date, slot);
+        if (index < 0) {
+            return otherClaims.add(otherKey(doctorId, slot));
+        }
+        String key = gridKey(doctorId, date);
+        long bit = 1L << index;
+        while (true) {
+            AtomicLong word = gridClaims.get(key);
+            if (word == null) {
+                word = new AtomicLong(bit);
+                if (gridClaims.putIfAbsent(key, word) == null) {
+                    return true;
+                }
+                continue;
+            }
+            long claimed = word.get();
+            while (claimed != RETIRED) {
+                if ((claimed & bit) != 0) {
+                    return false;
+                }
+                if (word.compareAndSet(claimed, claimed | bit)) {
+                    return true;
+                }
+                claimed = word.get();
+            }
+            // The word is being removed; help remove it and start over
+            gridClaims.remove(key, word);
+        }
+    }
+
+    /**
+     * Releases a slot claimed by {@link #claim}.
+     *
+     * @param doctorId Hospital ID of the doctor.
+     * @param date     Date of the slot.
+     * @param slot     Slot to release.
+     */
+    void release(String doctorId, LocalDate date, TimeSlot slot) {
+        int index = Schedule.slotIndex(date, slot);
+        if (index < 0) {
+            otherClaims.remove(otherKey(doctorId, slot));
+            return;
+        }
+        String key = gridKey(doctorId, date);
+        AtomicLong word = gridClaims.get(key);
+        if (word == null) {
+            return;
+        }
+        long bit = 1L << index;
+        long claimed = word.get();
+        while (claimed != RETIRED && (claimed & bit) != 0) {
+            long rest = claimed & ~bit;
+            if (word.compareAndSet(claimed, rest == 0 ? RETIRED : rest)) {
+                if (rest == 0) {
+                    gridClaims.remove(key, word);
+                }
+                return;
+            }
+            claimed = word.get();
+        }
+    }
+
+    private static String gridKey(String doctorId, LocalDate date) {
+        return doctorId + '|' + date;
+    }
+
+    private static String otherKey(String doctorId, TimeSlot slot) {
+        return doctorId + '|' + slot.getStartTime() + '|' + slot.getEndTime();
+    }
+}
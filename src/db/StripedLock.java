@@ -0,0 +1,98 @@
+package db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * StripedLock
+ * A fixed set of locks shared out by key, such as a doctor or patient ID.
+ *
+ * Writers lock the stripe of the entity they change, so writers of unrelated
+ * entities rarely wait for each other, while two writers of the same entity are
+ * always serialized. A writer that needs every entity at once, such as a full
+ * rewrite of a table's file, locks all stripes.
+ */
+final class StripedLock {
+    private final ReentrantLock[] stripes;  /**< The locks; a key always maps to the same one. */
+
+    /**
+     * Constructs the given number of stripes.
+     *
+     * @param count Number of stripes.
+     */
+    StripedLock(int count) {
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the stripe of a key.
+     *
+     * @param key Key of the entity about to be changed.
+     * @return The locked stripe, to unlock when done.
+     */
+    ReentrantLock lock(String key) {
+        ReentrantLock stripe = stripes[indexOf(key)];
+        stripe.lock();
+        return stripe;
+    }
+
+    /**
+     * Locks the stripes of several keys, in stripe order so that two writers locking
+     * overlapping keys cannot wait for each other.
+     *
+     * @param keys Keys of the entities about to be changed.
+     * @return The locked stripes, to pass to unlock when done.
+     */
+    List<ReentrantLock> lock(Collection<String> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String key : keys) {
+            indexes.add(indexOf(key));
+        }
+        List<ReentrantLock> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+        return locked;
+    }
+
+    /**
+     * Unlocks stripes locked by {@link #lock(Collection)}, in reverse order.
+     *
+     * @param locked The locked stripes.
+     */
+    void unlock(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+
+    /**
+     * Locks every stripe, in order.
+     */
+    void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Unlocks every stripe locked by lockAll.
+     */
+    void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private int indexOf(String key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), stripes.length);
+    }
+}
@@ -0,0 +1,137 @@
+package db;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * TableLock
+ * Guards one in-memory table of TextDB: any number of readers, or one writer.
+ *
+ * The lock is a StampedLock. Point lookups run as optimistic reads, which take no
+ * lock at all; the lookup is repeated under the read lock only if a writer got in
+ * while it ran. Unlike a bare StampedLock this lock is reentrant: the writing thread
+ * may read and write again, and a reading thread may read again. A reading thread
+ * may not start writing, since two such threads would wait for each other forever.
+ */
+final class TableLock {
+
+    /**
+     * A piece of work done while holding the lock.
+     *
+     * @param <T> Type of the result.
+     * @param <E> Type of the checked exception the work may throw.
+     */
+    @FunctionalInterface
+    interface Action<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * A piece of work without a result done while holding the lock.
+     *
+     * @param <E> Type of the checked exception the work may throw.
+     */
+    @FunctionalInterface
+    interface Task<E extends Exception> {
+        void run() throws E;
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final ThreadLocal<int[]> readHolds = ThreadLocal.withInitial(() -> new int[1]);  /**< Read locks held by each thread. */
+    private volatile Thread writer;   /**< Thread holding the write lock, or null. */
+
+    /**
+     * Runs a lookup without locking, and again under the read lock if a writer
+     * changed the table meanwhile. The lookup must not change anything, and must
+     * tolerate seeing the table half-way through a change: it may then return a
+     * wrong result or throw, both of which are discarded.
+     *
+     * @param reader Lookup to run.
+     * @param <T>    Type of the result.
+     * @return Result of a lookup that did not overlap a write.
+     */
+    <T> T readOptimistic(Supplier<T> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+                // A writer changed the table under the lookup
+            }
+        }
+        return read(reader::get);
+    }
+
+    /**
+     * Runs work under the read lock.
+     *
+     * @param reader Work to run.
+     * @param <T>    Type of the result.
+     * @param <E>    Type of the checked exception the work may throw.
+     * @return Result of the work.
+     * @throws E If the work fails.
+     */
+    <T, E extends Exception> T read(Action<T, E> reader) throws E {
+        if (writer == Thread.currentThread()) {
+            return reader.run();
+        }
+        int[] holds = readHolds.get();
+        long stamp = holds[0] == 0 ? lock.readLock() : 0;
+        holds[0]++;
+        try {
+            return reader.run();
+        } finally {
+            holds[0]--;
+            if (stamp != 0) {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Runs work under the write lock.
+     *
+     * @param action Work to run.
+     * @param <T>    Type of the result.
+     * @param <E>    Type of the checked exception the work may throw.
+     * @return Result of the work.
+     * @throws E If the work fails.
+     * @throws IllegalStateException If the calling thread holds the read lock.
+     */
+    <T, E extends Exception> T write(Action<T, E> action) throws E {
+        if (writer == Thread.currentThread()) {
+            return action.run();
+        }
+        if (readHolds.get()[0] > 0) {
+            throw new IllegalStateException("A table read lock cannot be upgraded to a write lock");
+        }
+        long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        try {
+            return action.run();
+        } finally {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs work without a result under the write lock.
+     *
+     * @param task Work to run.
+     * @param <E>  Type of the checked exception the work may throw.
+     * @throws E If the work fails.
+     */
+    <E extends Exception> void update(Task<E> task) throws E {
+        write(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
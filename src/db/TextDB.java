@@ -6,30 +6,95 @@ import items.appointments.Schedule;
 import items.appointments.TimeSlot;
 import items.medical_records.MedicalRecord;
 import items.medical_records.Treatment;
-import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import user_classes.*;
 
+/**
+ * TextDB
+ * In-memory tables of the hospital system, persisted to text files through a journal.
+ *
+ * The tables may be used by many sessions at once. Each table has a TableLock:
+ * lookups by key are optimistic reads, queries hold the read lock, and changes hold
+ * the write lock only while the table itself is changed. Changes to one entity are
+ * serialized by a striped writer lock keyed by its doctor, patient or user, held
+ * until the change is journaled, so the journal sees each entity's changes in the
+ * order they were made while unrelated changes proceed side by side. A booking
+ * claims its doctor's time slot in SlotReservations instead, so bookings contend
+ * only when they are for the same slot.
+ *
+ * Locks are taken in this order: doctor stripe, patient stripe, user stripe or
+ * inventory writer, then the tables users, medical records, appointments,
+ * medications and replenishment requests. Nothing is journaled while a table lock
+ * is held, since compacting the journal reads the tables.
+ *
+ * Lists returned by queries are copies; the entities in them are shared. When
+ * changes and file rewrites reach the disk is up to the GroupCommitter.
+ */
 public class TextDB {
 	private List<DataLoader> loaders;
-    private static TextDB instance;
+    private final MedicalRecordLoader medicalRecordLoader;
+    private final UsersLoader usersLoader;
+    private final MedicationInventoryLoader medicationInventoryLoader;
+    private final Journal journal;                 /**< Write-ahead journal of mutations since the flat files were written. */
+    private final GroupCommitter committer;        /**< Decides when journal appends and file rewrites reach the disk. */
+    private final AtomicLongArray tableChanges;    /**< Changes made to each table so far, by Journal.Table ordinal. */
+    private final long[] fileVersions;             /**< Value of tableChanges each table's own file was last written at, guarded by fileLocks. */
+    private final Object[] fileLocks;              /**< Serialize the writes of each table's own file, by Journal.Table ordinal. */
+    private final ExecutorService compactor;       /**< Background thread folding rotated journal segments into the flat files. */
+    private final List<Journal.Segment> unfolded;  /**< Rotated segments still on disk, oldest first, guarded by itself. */
+    private volatile boolean loading;              /**< True while the flat files and journal are being loaded; defers compaction. */
+    private static final int COMPACT_THRESHOLD = Integer.getInteger("hms.journal.compactThreshold", 500);
+    private static final String SNAPSHOT_FILE = System.getProperty("hms.snapshot", "textdb.snapshot"); /**< Binary snapshot of all tables. */
+    private final Map<String, Long> loadTimings;   /**< Milliseconds spent in each startup load step, in completion order. */
+    private static volatile TextDB instance;       /**< The database, set once it is fully loaded. */
+    private static final ThreadLocal<TextDB> loadingInstance = new ThreadLocal<>(); /**< The database being loaded, seen only by the threads loading it. */
+    private static final int WRITER_STRIPES = 64;
+    private static final TableLock usersLock = new TableLock();           /**< Guards users, the user registry and the doctors' schedules. */
+    private static final TableLock medicalRecordsLock = new TableLock();  /**< Guards the medical records. */
+    private static final TableLock appointmentsLock = new TableLock();    /**< Guards appointments, their index and the free slot cache. */
+    private static final TableLock medicationsLock = new TableLock();     /**< Guards the medication inventory. */
+    private static final TableLock requestsLock = new TableLock();        /**< Guards the replenishment requests. */
+    private static final StripedLock doctorWriters = new StripedLock(WRITER_STRIPES);   /**< Serializes schedule changes per doctor. */
+    private static final StripedLock patientWriters = new StripedLock(WRITER_STRIPES);  /**< Serializes appointment and medical record changes per patient. */
+    private static final StripedLock userWriters = new StripedLock(WRITER_STRIPES);     /**< Serializes password changes per user. */
+    private static final ReentrantLock inventoryWriter = new ReentrantLock();            /**< Serializes inventory and replenishment request changes. */
     private List<MedicalRecord> medicalRecords;
     public static final String SEPARATOR = "|";
     private static List<User> users;
+    private static final UserRegistry userRegistry = new UserRegistry(); /**< Hash index over users, kept in step with the users list. */
     private static List<Appointment> appointments;
+    private static final AvailableSlotCache slotCache = new AvailableSlotCache(); /**< Free appointment slots per doctor-day. */
+    private static final Map<String, ScheduleLines> scheduleLineCache = new ConcurrentHashMap<>(); /**< Schedule file entries per doctor, dropped when the schedule changes. */
+    private static final SlotReservations slotReservations = new SlotReservations(); /**< Slots claimed by bookings in progress. */
+    private static final AppointmentIndex appointmentIndex = new AppointmentIndex(slotCache::invalidate); /**< Secondary indexes over appointments, kept in step with the list; invalidates slotCache. */
+    private final SequenceAllocator appointmentIds;   /**< Persistent sequence of appointment IDs. */
     private List<Medication> medications;
-    public List<ReplenishmentRequest> replenishmentRequests;
+    private List<ReplenishmentRequest> replenishmentRequests;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
@@ -37,12 +102,31 @@ public class TextDB {
      * Default constructor.
      */
     private TextDB() {
+        medicalRecordLoader = new MedicalRecordLoader("med_records.txt");
+        usersLoader = new UsersLoader("users.txt");
+        medicationInventoryLoader = new MedicationInventoryLoader("inventory.txt");
     	loaders = new ArrayList<>();
-    	loaders.add(new MedicalRecordLoader("med_records.txt"));
-    	loaders.add(new UsersLoader("users.txt"));
+    	loaders.add(medicalRecordLoader);
+    	loaders.add(usersLoader);
     	loaders.add(new AppointmentsLoader("appts.txt"));
-    	loaders.add(new MedicationInventoryLoader("inventory.txt"));
+    	loaders.add(medicationInventoryLoader);
     	loaders.add(new ReplenishmentRequestsLoader("replenishment_requests.txt"));
+        journal = new Journal("journal.log");
+        committer = new GroupCommitter(journal);
+        tableChanges = new AtomicLongArray(Journal.Table.values().length);
+        fileVersions = new long[Journal.Table.values().length];
+        fileLocks = new Object[Journal.Table.values().length];
+        for (int i = 0; i < fileLocks.length; i++) {
+            fileLocks[i] = new Object();
+        }
+        appointmentIds = new SequenceAllocator("sequences.txt", "appointments");
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "textdb-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        unfolded = new ArrayList<>();
+        loadTimings = Collections.synchronizedMap(new LinkedHashMap<>());
         users = new ArrayList<>();
         appointments = new ArrayList<>();
         medicalRecords = new ArrayList<>();
@@ -51,58 +135,745 @@ public class TextDB {
     }
     
     /**
-     * Calculates the result.
+     * Gets the database, loading it on first use.
+     *
+     * Threads asking while it loads wait until it is complete; only the load steps
+     * themselves, which construct patients that look up their records, get the
+     * partially loaded database.
      *
-     * @param a First parameter for calculation.
-     * @param b Second parameter for calculation.
-     * @return The calculated result.
+     * @return The database.
      */
     public static TextDB getInstance() {
+        TextDB db = instance;
+        if (db == null) {
+            db = loadingInstance.get();
+            if (db == null) {
+                db = load();
+            }
+        }
+        return db;
+    }
+
+    /**
+     * Creates and loads the database, unless another thread already has.
+     *
+     * @return The database.
+     */
+    private static synchronized TextDB load() {
         if (instance == null) {
-            instance = new TextDB();
+            TextDB db = new TextDB();
+            loadingInstance.set(db);
             try {
-                instance.loadAllData();
+                db.loadAllData();
             } catch (IOException e) {
                 e.printStackTrace();
+            } finally {
+                loadingInstance.remove();
             }
+            Runtime.getRuntime().addShutdownHook(new Thread(db::shutdown, "textdb-shutdown"));
+            instance = db;
         }
         return instance;
     }
 
     /**
      * Loads all data including users, appointments, medical records, and schedules.
+     *
+     * The tables come from the binary snapshot when it is newer than the text files,
+     * otherwise from the text files. Either way the journal records of each table are
+     * replayed on top of it straight away, and what the journal held is then folded
+     * into the text files before the database is handed out.
+     *
+     * Set -Dhms.startupReport=true to print how long each step took.
      */
     private void loadAllData() throws IOException {
-    	for (DataLoader loader : loaders) {
-            loader.loadData();
+        long start = System.nanoTime();
+        Map<Journal.Table, List<Journal.Record>> pending = new EnumMap<>(Journal.Table.class);
+        for (Journal.Record record : journal.readAll()) {
+            pending.computeIfAbsent(record.getTable(), t -> new ArrayList<>()).add(record);
+        }
+        loadTimings.put("journal", (System.nanoTime() - start) / 1_000_000);
+
+        slotCache.clear();
+        loading = true;
+        try {
+            BinarySnapshot snapshot = BinarySnapshot.open(SNAPSHOT_FILE, tableFiles());
+            if (snapshot == null || !loadFromSnapshot(snapshot, pending)) {
+                loadFromTextFiles(pending);
+                if (journal.isEmpty()) {
+                    // The text files hold exactly the loaded state, so the next start can skip parsing them
+                    writeSnapshot();
+                }
+            }
+            if (!journal.isEmpty()) {
+                foldJournal();
+            }
+        } finally {
+            loading = false;
+        }
+        // Never hand out an ID at or below one that is already stored
+        for (Appointment appointment : appointments) {
+            appointmentIds.advanceTo(appointment.getId() + 1L);
+        }
+        loadTimings.put("total", (System.nanoTime() - start) / 1_000_000);
+
+        if (Boolean.getBoolean("hms.startupReport")) {
+            synchronized (loadTimings) {
+                for (Map.Entry<String, Long> timing : loadTimings.entrySet()) {
+                    System.err.println("Loaded " + timing.getKey() + " in " + timing.getValue() + " ms");
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads every table from the text files.
+     *
+     * The tables are loaded concurrently on the common fork-join pool, except where one
+     * table needs another: users wait for the medical records (patients look up their
+     * record when constructed) and schedules wait for the users (entries are attached
+     * to doctors).
+     *
+     * @param pending Journal records to replay, by table.
+     * @throws IOException If a text file cannot be read.
+     */
+    private void loadFromTextFiles(Map<Journal.Table, List<Journal.Record>> pending) throws IOException {
+        List<CompletableFuture<Void>> steps = new ArrayList<>();
+        CompletableFuture<Void> medicalRecordsLoaded = null;
+        CompletableFuture<Void> usersLoaded = null;
+        for (DataLoader loader : loaders) {
             if (loader instanceof MedicalRecordLoader) {
-                medicalRecords = new ArrayList<>(((MedicalRecordLoader) loader).getMedicalRecords());
+                medicalRecordsLoaded = loadStep("med_records.txt", () -> {
+                    loader.loadData();
+                    medicalRecords = new ArrayList<>(((MedicalRecordLoader) loader).getMedicalRecords());
+                    replay(pending.get(Journal.Table.MEDICAL_RECORDS));
+                });
+                steps.add(medicalRecordsLoaded);
             }
             if (loader instanceof UsersLoader) {
-            	users = new ArrayList<>(((UsersLoader) loader).getUsers());
+                usersLoaded = loadStep("users.txt", () -> {
+                    loader.loadData();
+                    users = new ArrayList<>(((UsersLoader) loader).getUsers());
+                    userRegistry.rebuild(users);
+                    replay(pending.get(Journal.Table.USERS));
+                }, medicalRecordsLoaded);
+                steps.add(usersLoaded);
             }
             if (loader instanceof AppointmentsLoader) {
-            	appointments = new ArrayList<>(((AppointmentsLoader) loader).getAppointments());
+                steps.add(loadStep("appts.txt", () -> {
+                    loader.loadData();
+                    appointments = new ArrayList<>(((AppointmentsLoader) loader).getAppointments());
+                    appointmentIndex.rebuild(appointments);
+                    replay(pending.get(Journal.Table.APPOINTMENTS));
+                }));
             }
             if (loader instanceof MedicationInventoryLoader) {
-            	medications = new ArrayList<>(((MedicationInventoryLoader) loader).getMedicationInventory());
+                steps.add(loadStep("inventory.txt", () -> {
+                    loader.loadData();
+                    medications = new ArrayList<>(((MedicationInventoryLoader) loader).getMedicationInventory());
+                    replay(pending.get(Journal.Table.MEDICATIONS));
+                }));
             }
             if (loader instanceof ReplenishmentRequestsLoader) {
-            	replenishmentRequests = new ArrayList<>(((ReplenishmentRequestsLoader) loader).getReplenishmentRequests());
+                steps.add(loadStep("replenishment_requests.txt", () -> {
+                    loader.loadData();
+                    replenishmentRequests = new ArrayList<>(((ReplenishmentRequestsLoader) loader).getReplenishmentRequests());
+                    replay(pending.get(Journal.Table.REPLENISHMENT_REQUESTS));
+                }));
+            }
+        }
+
+        steps.add(loadStep("schedules.txt", () -> {
+            loadSchedulesFromFile("schedules.txt");
+            replay(pending.get(Journal.Table.SCHEDULES));
+        }, usersLoaded));
+
+        try {
+            CompletableFuture.allOf(steps.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Loads every table from the binary snapshot, in the order its sections are stored.
+     * A snapshot that turns out to be damaged is abandoned so the text files are loaded
+     * instead.
+     *
+     * @param snapshot Snapshot positioned at its first section.
+     * @param pending  Journal records to replay, by table.
+     * @return True if the snapshot was loaded, false if it was damaged.
+     */
+    private boolean loadFromSnapshot(BinarySnapshot snapshot, Map<Journal.Table, List<Journal.Record>> pending) {
+        long start = System.nanoTime();
+        try {
+            medicalRecords = snapshot.readMedicalRecords();
+            replay(pending.get(Journal.Table.MEDICAL_RECORDS));
+            users = snapshot.readUsers();
+            userRegistry.rebuild(users);
+            replay(pending.get(Journal.Table.USERS));
+            appointments = snapshot.readAppointments();
+            appointmentIndex.rebuild(appointments);
+            replay(pending.get(Journal.Table.APPOINTMENTS));
+            medications = snapshot.readMedications();
+            replay(pending.get(Journal.Table.MEDICATIONS));
+            replenishmentRequests = snapshot.readReplenishmentRequests();
+            replay(pending.get(Journal.Table.REPLENISHMENT_REQUESTS));
+
+            for (Map.Entry<String, Map<LocalDate, List<LocalTime[]>>> entry : snapshot.readSchedules().entrySet()) {
+                User user = getUserByHospitalID(entry.getKey());
+                if (!(user instanceof Doctor)) {
+                    System.err.println("Doctor with ID " + entry.getKey() + " not found.");
+                    continue;
+                }
+                for (Map.Entry<LocalDate, List<LocalTime[]>> day : entry.getValue().entrySet()) {
+                    setAvailability((Doctor) user, day.getKey(), day.getValue());
+                }
+            }
+            replay(pending.get(Journal.Table.SCHEDULES));
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring damaged snapshot " + SNAPSHOT_FILE + ": " + e);
+            medicalRecords = new ArrayList<>();
+            users = new ArrayList<>();
+            userRegistry.rebuild(users);
+            appointments = new ArrayList<>();
+            appointmentIndex.rebuild(appointments);
+            medications = new ArrayList<>();
+            replenishmentRequests = new ArrayList<>();
+            return false;
+        }
+        loadTimings.put("snapshot", (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * Writes the binary snapshot of the current state. Only call this while the text
+     * files hold exactly the in-memory state.
+     */
+    private void writeSnapshot() {
+        try {
+            usersLock.read(() -> medicalRecordsLock.read(() -> appointmentsLock.read(() ->
+                    medicationsLock.read(() -> requestsLock.read(() -> {
+                        BinarySnapshot.write(SNAPSHOT_FILE, tableFiles(), medicalRecords, users, appointments,
+                                medications, replenishmentRequests);
+                        return null;
+                    })))));
+        } catch (IOException e) {
+            System.err.println("Unable to write snapshot " + SNAPSHOT_FILE + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the text files the tables are stored in.
+     * @return File name of every journal table.
+     */
+    private static List<String> tableFiles() {
+        List<String> files = new ArrayList<>();
+        for (Journal.Table table : Journal.Table.values()) {
+            files.add(table.getFileName());
+        }
+        return files;
+    }
+
+    /**
+     * A startup load step.
+     */
+    @FunctionalInterface
+    private interface LoadStep {
+        void run() throws IOException;
+    }
+
+    /**
+     * Schedules a load step once all of its dependencies have finished, and records
+     * how long it took. A step whose dependency failed is not run.
+     *
+     * @param name         Name of the step in the timing report.
+     * @param step         Work of the step.
+     * @param dependencies Steps that must finish first (null entries are ignored).
+     * @return Future completing when the step has finished.
+     */
+    private CompletableFuture<Void> loadStep(String name, LoadStep step, CompletableFuture<?>... dependencies) {
+        List<CompletableFuture<?>> required = new ArrayList<>();
+        for (CompletableFuture<?> dependency : dependencies) {
+            if (dependency != null) {
+                required.add(dependency);
+            }
+        }
+        return CompletableFuture.allOf(required.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+            long start = System.nanoTime();
+            loadingInstance.set(this);
+            try {
+                step.run();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                loadingInstance.remove();
+                loadTimings.put(name, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+    }
+
+    /**
+     * Gets how long each step of the last startup load took.
+     *
+     * @return Milliseconds per load step, plus "journal" and "total".
+     */
+    public Map<String, Long> getLoadTimings() {
+        synchronized (loadTimings) {
+            return new LinkedHashMap<>(loadTimings);
+        }
+    }
+
+    // ====================== Journal ========================= //
+
+    /**
+     * Appends the records of one mutation to the journal, and starts a compaction once
+     * the journal has grown past the threshold. Compaction waits until loading is done,
+     * since the tables are only partially populated before that.
+     *
+     * @param records Records describing the mutation.
+     * @return Future completed once the records are on disk.
+     * @throws IOException If the journal cannot be written under the immediate commit policy.
+     */
+    private CompletableFuture<Void> journal(Journal.Record... records) throws IOException {
+        for (Journal.Record record : records) {
+            if (record.getOp() != Journal.Op.CHECKPOINT) {
+                markChanged(record.getTable());
+            }
+        }
+        CompletableFuture<Void> durable = committer.journaled(journal.append(records));
+        if (!loading && journal.size() >= COMPACT_THRESHOLD) {
+            compact();
+        }
+        return durable;
+    }
+
+    /**
+     * Gets a future completed once every change made so far is on disk. Under the
+     * immediate commit policy it is already complete.
+     *
+     * @return Future of the durability of all changes so far.
+     */
+    public CompletableFuture<Void> whenDurable() {
+        return committer.whenDurable();
+    }
+
+    /**
+     * Records that the flat file of a table has just been rewritten in full, so the
+     * earlier journal records of that table no longer need to be replayed.
+     *
+     * @param filename File that was written.
+     * @param table    Table the file would hold.
+     * @throws IOException If the journal cannot be written.
+     */
+    private void checkpoint(String filename, Journal.Table table) throws IOException {
+        if (table.getFileName().equals(filename)) {
+            journal(new Journal.Record(table, Journal.Op.CHECKPOINT, ""));
+        }
+    }
+
+    /**
+     * Records a change to a table that its own file does not hold yet. A table is
+     * dirty while its change count is ahead of the version last written to its file,
+     * whether by a save or by compaction.
+     *
+     * @param table Table changed.
+     */
+    private void markChanged(Journal.Table table) {
+        tableChanges.incrementAndGet(table.ordinal());
+    }
+
+    /**
+     * Checks whether a table's own file holds every change up to a version.
+     *
+     * @param table   Table to check.
+     * @param version Value of the table's change count.
+     * @return True if the file exists and was written at that version or later.
+     */
+    private boolean fileHolds(Journal.Table table, long version) {
+        synchronized (fileLocks[table.ordinal()]) {
+            return version <= fileVersions[table.ordinal()] && new File(table.getFileName()).exists();
+        }
+    }
+
+    /**
+     * Writes a table's own file, unless a later version of the table is already in it.
+     * Writes of one table's file are serialized, so the compactor writing a snapshot
+     * taken before a save can never overwrite the newer file the save wrote.
+     *
+     * @param table   Table written.
+     * @param version Value of the table's change count, read before the lines were serialized.
+     * @param lines   Lines of the file.
+     * @return True if the file was written, false if it already holds that version.
+     * @throws IOException If the file cannot be written.
+     */
+    private boolean commitTableFile(Journal.Table table, long version, List<String> lines) throws IOException {
+        synchronized (fileLocks[table.ordinal()]) {
+            if (fileHolds(table, version)) {
+                return false;
             }
+            write(table.getFileName(), lines);
+            fileVersions[table.ordinal()] = version;
+            return true;
+        }
+    }
+
+    /**
+     * Writes a table to a file in full and checkpoints the journal. The table's own
+     * file is skipped when it already holds the table: nothing changed since it was
+     * last written and it still exists. Hold the table's writer locks.
+     *
+     * @param filename File to write.
+     * @param table    Table written.
+     * @param lock     Lock of the table.
+     * @param lines    Serializes the table into the lines of its file.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeTable(String filename, Journal.Table table, TableLock lock,
+                            TableLock.Action<List<String>, RuntimeException> lines) throws IOException {
+        if (!table.getFileName().equals(filename)) {
+            write(filename, lock.read(lines));
+            return;
+        }
+        // Read before serializing, so a change made meanwhile leaves the table dirty
+        long version = tableChanges.get(table.ordinal());
+        if (fileHolds(table, version)) {
+            return;
+        }
+        if (commitTableFile(table, version, lock.read(lines))) {
+            checkpoint(filename, table);
+        }
+    }
+
+    /**
+     * Folds the active journal into the flat files.
+     *
+     * The journal is rotated and the touched tables are serialized on the calling
+     * thread, so the snapshot is consistent with the rotated segment; writing the
+     * files and dropping the segment happens on the compactor thread. Segments an
+     * earlier compaction failed to fold are folded along with it, since replaying an
+     * old segment on its own after newer ones are gone would undo their changes.
+     */
+    private void compact() {
+        Journal.Segment segment;
+        try {
+            segment = journal.rotate();
+        } catch (IOException e) {
+            System.err.println("Journal compaction skipped: " + e.getMessage());
+            return;
+        }
+        if (segment == null) {
+            return;
+        }
+
+        List<Journal.Segment> segments;
+        synchronized (unfolded) {
+            unfolded.add(segment);
+            segments = new ArrayList<>(unfolded);
+        }
+        Set<Journal.Table> tables = EnumSet.noneOf(Journal.Table.class);
+        for (Journal.Segment folded : segments) {
+            tables.addAll(folded.getTables());
+        }
+        Map<Journal.Table, Long> versions = new EnumMap<>(Journal.Table.class);
+        Map<Journal.Table, List<String>> snapshot = snapshotTables(tables, versions);
+        compactor.execute(() -> {
+            try {
+                fold(segments, versions, snapshot);
+            } catch (IOException e) {
+                // The segments stay on disk and are folded by the next compaction or start
+                System.err.println("Journal compaction failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Folds the whole journal, including segments left by an earlier run, into the flat
+     * files while loading, so no old segment is replayed again on top of newer files.
+     * Writes the binary snapshot once the journal is gone. A failure is reported and
+     * leaves the segments to the next compaction.
+     */
+    private void foldJournal() {
+        List<Journal.Segment> segments;
+        try {
+            journal.rotate();
+            segments = journal.getSegments();
+        } catch (IOException e) {
+            System.err.println("Unable to fold the journal: " + e.getMessage());
+            return;
+        }
+        synchronized (unfolded) {
+            unfolded.addAll(segments);
+        }
+        Map<Journal.Table, Long> versions = new EnumMap<>(Journal.Table.class);
+        Map<Journal.Table, List<String>> snapshot = snapshotTables(EnumSet.allOf(Journal.Table.class), versions);
+        try {
+            fold(segments, versions, snapshot);
+        } catch (IOException e) {
+            System.err.println("Unable to fold the journal: " + e.getMessage());
+            return;
+        }
+        if (journal.isEmpty()) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Writes table snapshots to their own files, then deletes the segments they cover,
+     * oldest first, so a crash part way leaves only the newest segments on disk.
+     *
+     * @param segments Segments covered by the snapshot, oldest first.
+     * @param versions Change count of each table when it was serialized.
+     * @param snapshot Lines of each table's file.
+     * @throws IOException If a file cannot be written; no segment is deleted then.
+     */
+    private void fold(List<Journal.Segment> segments, Map<Journal.Table, Long> versions,
+                      Map<Journal.Table, List<String>> snapshot) throws IOException {
+        for (Map.Entry<Journal.Table, List<String>> entry : snapshot.entrySet()) {
+            // Skipped if a save wrote the table after this snapshot was taken
+            commitTableFile(entry.getKey(), versions.get(entry.getKey()), entry.getValue());
+        }
+        for (Journal.Segment segment : segments) {
+            segment.delete();
+        }
+        synchronized (unfolded) {
+            unfolded.removeAll(segments);
+        }
+    }
+
+    /**
+     * Serializes the given tables into the lines of their flat files.
+     *
+     * @param tables   Tables to serialize.
+     * @param versions Receives each table's change count, read before it is serialized.
+     * @return Lines of each table's flat file.
+     */
+    private Map<Journal.Table, List<String>> snapshotTables(Set<Journal.Table> tables, Map<Journal.Table, Long> versions) {
+        Map<Journal.Table, List<String>> snapshot = new EnumMap<>(Journal.Table.class);
+        for (Journal.Table table : tables) {
+            versions.put(table, tableChanges.get(table.ordinal()));
+            switch (table) {
+                case USERS:
+                    snapshot.put(table, usersLock.read(() -> userLines()));
+                    break;
+                case APPOINTMENTS:
+                    snapshot.put(table, appointmentsLock.read(() -> appointmentLines()));
+                    break;
+                case MEDICAL_RECORDS:
+                    snapshot.put(table, medicalRecordsLock.read(() -> medicalRecordLines()));
+                    break;
+                case MEDICATIONS:
+                    snapshot.put(table, medicationsLock.read(() -> medicationLines()));
+                    break;
+                case REPLENISHMENT_REQUESTS:
+                    snapshot.put(table, requestsLock.read(() -> replenishmentRequestLines()));
+                    break;
+                case SCHEDULES:
+                    snapshot.put(table, usersLock.read(() -> scheduleLines()));
+                    break;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Compacts whatever is left in the journal and waits for the compactor to finish.
+     * Runs as a shutdown hook, so the flat files are up to date after a normal exit;
+     * once they are, a fresh binary snapshot is written for the next start.
+     */
+    private void shutdown() {
+        committer.close();
+        compact();
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Journal compaction did not finish before exit; it will be replayed on the next start.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        if (journal.isEmpty()) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Replays journal records on top of the freshly loaded table.
+     * Entries that cannot be applied are reported and skipped.
+     *
+     * @param records Records of one table, oldest first (may be null).
+     */
+    private void replay(List<Journal.Record> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        // The flat file does not hold these changes yet
+        markChanged(records.get(0).getTable());
+        for (Journal.Record record : records) {
+            try {
+                apply(record);
+            } catch (RuntimeException e) {
+                System.err.println("Skipping journal entry " + record.toLine() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies a single journal record to the in-memory tables.
+     *
+     * @param record Record to apply.
+     */
+    private void apply(Journal.Record record) {
+        String payload = record.getPayload();
+        switch (record.getTable()) {
+            case USERS:
+                if (record.getOp() == Journal.Op.PUT) {
+                    User user = usersLoader.deserialize(payload);
+                    int index = indexOfUser(user.getHospitalID());
+                    if (index >= 0) {
+                        userRegistry.replace(users.set(index, user), user, users);
+                    } else {
+                        users.add(user);
+                        userRegistry.add(user);
+                    }
+                } else if (record.getOp() == Journal.Op.DEL) {
+                    User user;
+                    while ((user = getUserByHospitalID(payload)) != null) {
+                        users.remove(user);
+                        userRegistry.remove(user, users);
+                    }
+                }
+                break;
+            case APPOINTMENTS:
+                if (record.getOp() == Journal.Op.PUT) {
+                    Appointment appointment = deserializeAppointment(payload);
+                    int index = indexOfAppointment(appointment.getId());
+                    if (index >= 0) {
+                        appointmentIndex.replace(appointments.set(index, appointment), appointment);
+                    } else {
+                        appointments.add(appointment);
+                        appointmentIndex.add(appointment);
+                    }
+                } else if (record.getOp() == Journal.Op.DEL) {
+                    Appointment appointment;
+                    while ((appointment = appointmentIndex.getById(Integer.parseInt(payload))) != null) {
+                        appointments.remove(appointment);
+                        appointmentIndex.remove(appointment);
+                    }
+                }
+                break;
+            case MEDICAL_RECORDS:
+                if (record.getOp() == Journal.Op.PUT) {
+                    MedicalRecord medicalRecord = medicalRecordLoader.deserialize(payload);
+                    int index = indexOfMedicalRecord(medicalRecord.getPatientID());
+                    if (index >= 0) {
+                        medicalRecords.set(index, medicalRecord);
+                    } else {
+                        medicalRecords.add(medicalRecord);
+                    }
+                }
+                break;
+            case MEDICATIONS:
+                if (record.getOp() == Journal.Op.PUT) {
+                    Medication medication = medicationInventoryLoader.deserialize(payload);
+                    int index = indexOfMedication(medication.getName());
+                    if (index >= 0) {
+                        medications.set(index, medication);
+                    } else {
+                        medications.add(medication);
+                    }
+                } else if (record.getOp() == Journal.Op.DEL) {
+                    medications.removeIf(medication -> medication.getName().equalsIgnoreCase(payload));
+                }
+                break;
+            case REPLENISHMENT_REQUESTS:
+                if (record.getOp() == Journal.Op.SET) {
+                    replenishmentRequests.clear();
+                    for (String line : record.getPayloadLines()) {
+                        replenishmentRequests.add(ReplenishmentRequest.deserialize(line));
+                    }
+                }
+                break;
+            case SCHEDULES:
+                if (record.getOp() == Journal.Op.CLEAR) {
+                    User user = getUserByHospitalID(payload);
+                    if (user instanceof Doctor) {
+                        ((Doctor) user).setSchedule(new Schedule());
+                        scheduleLineCache.remove(payload);
+                    }
+                } else if (record.getOp() == Journal.Op.PUT) {
+                    applyScheduleLine(payload);
+                }
+                break;
         }
-    	/*
-        loadFromFile("users.txt");
-        loadAppointmentsFromFile("appts.txt");
-        loadMedicationInventory("inventory.txt");
-        loadReplenishmentRequests("replenishment_requests.txt");
-        */
-    	
-        loadSchedulesFromFile("schedules.txt");
     }
     
 
 
+    /**
+     * Finds the position of a user by hospital ID.
+     *
+     * @param hospitalID Hospital ID of the user.
+     * @return Index in the users list, or -1 if absent.
+     */
+    private int indexOfUser(String hospitalID) {
+        for (int i = 0; i < users.size(); i++) {
+            if (users.get(i).getHospitalID().equals(hospitalID)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the position of an appointment by ID.
+     *
+     * @param appointmentId ID of the appointment.
+     * @return Index in the appointments list, or -1 if absent.
+     */
+    private int indexOfAppointment(int appointmentId) {
+        Appointment appointment = appointmentIndex.getById(appointmentId);
+        return appointment != null ? appointments.indexOf(appointment) : -1;
+    }
+
+    /**
+     * Finds the position of a medical record by patient ID.
+     *
+     * @param patientId Hospital ID of the patient.
+     * @return Index in the medical records list, or -1 if absent.
+     */
+    private int indexOfMedicalRecord(String patientId) {
+        for (int i = 0; i < medicalRecords.size(); i++) {
+            if (medicalRecords.get(i).getPatientID().equals(patientId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the position of a medication by name, ignoring case.
+     *
+     * @param name Name of the medication.
+     * @return Index in the medication list, or -1 if absent.
+     */
+    private int indexOfMedication(String name) {
+        for (int i = 0; i < medications.size(); i++) {
+            if (medications.get(i).getName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     // Existing methods for Users, Appointments, and MedicalRecords...
 
     // ====================== Schedule Management ========================= //
@@ -115,18 +886,30 @@ public class TextDB {
      */
     public void loadSchedulesFromFile(String filename) throws IOException {
         List<String> lines = read(filename);
-        for (String line : lines) {
+        usersLock.update(() -> {
+            for (String line : lines) {
+                applyScheduleLine(line);
+            }
+        });
+    }
+
+    /**
+     * Parses one schedule entry and sets it as the doctor's availability for that date.
+     *
+     * @param line Schedule entry in the format doctorId|date|start-end,start-end
+     */
+    private void applyScheduleLine(String line) {
             String[] fields = line.split("\\" + SEPARATOR);
             if (fields.length < 3) {
                 System.err.println("Invalid schedule entry: " + line);
-                continue;
+                return;
             }
 
             String doctorId = fields[0];
             LocalDate date = LocalDate.parse(fields[1], DATE_FORMATTER);
             String timeSlotsStr = fields[2];
 
-            List<TimeSlot> timeSlots = new ArrayList<>();
+            List<LocalTime[]> ranges = new ArrayList<>();
             if (!timeSlotsStr.isEmpty()) {
                 String[] slots = timeSlotsStr.split(",");
                 for (String slot : slots) {
@@ -137,24 +920,52 @@ public class TextDB {
                     }
                     LocalTime startTime = LocalTime.parse(times[0], TIME_FORMATTER);
                     LocalTime endTime = LocalTime.parse(times[1], TIME_FORMATTER);
-
-                    // Split the time range into 30-minute slots
-                    List<TimeSlot> splitSlots = splitInto30MinSlots(date, startTime, endTime);
-                    timeSlots.addAll(splitSlots);
+                    ranges.add(new LocalTime[] { startTime, endTime });
                 }
             }
 
             // Assign the time slots to the doctor's schedule
             Doctor doctor = (Doctor) getUserByHospitalID(doctorId);
             if (doctor != null) {
-                doctor.getSchedule().setAvailability(date, timeSlots);
+                setAvailability(doctor, date, ranges);
             } else {
                 System.err.println("Doctor with ID " + doctorId + " not found.");
             }
+    }
+
+    /**
+     * Sets a doctor's availability for a date from stored time ranges, each split into
+     * 30-minute slots. Ranges on the half-hour grid go straight into the schedule's
+     * slot bitmap; anything else is split into TimeSlots.
+     *
+     * @param doctor The doctor whose availability is set.
+     * @param date   The date of the ranges.
+     * @param ranges Start and end time of every range, in stored order.
+     */
+    private void setAvailability(Doctor doctor, LocalDate date, List<LocalTime[]> ranges) {
+        long mask = 0;
+        for (LocalTime[] range : ranges) {
+            long rangeMask = Schedule.rangeMask(range[0], range[1]);
+            if (rangeMask == Schedule.NOT_ON_GRID
+                    || (rangeMask != 0 && Long.numberOfTrailingZeros(rangeMask) < 64 - Long.numberOfLeadingZeros(mask))) {
+                // Off the grid, or overlapping or out of order: keep the slots as split
+                List<TimeSlot> timeSlots = new ArrayList<>();
+                for (LocalTime[] r : ranges) {
+                    timeSlots.addAll(splitInto30MinSlots(date, r[0], r[1]));
+                }
+                doctor.getSchedule().setAvailability(date, timeSlots);
+                slotCache.invalidate(doctor.getHospitalID(), date);
+                scheduleLineCache.remove(doctor.getHospitalID());
+                return;
+            }
+            mask |= rangeMask;
         }
+        doctor.getSchedule().setAvailability(date, mask);
+        slotCache.invalidate(doctor.getHospitalID(), date);
+        scheduleLineCache.remove(doctor.getHospitalID());
     }
 
-        /**
+    /**
      * Splits a given time range into 30-minute TimeSlots.
      *
      * @param date      The date of the slots.
@@ -184,77 +995,216 @@ public class TextDB {
     
 
     /**
-     * Saves all doctors' schedules to the specified file.
+     * Saves all doctors' schedules to the specified file, when the commit policy says so.
      *
      * @param filename The name of the schedules file.
+     * @return Future completed once the file is written.
+     * @throws IOException If an I/O error occurs under the immediate commit policy.
+     */
+    public CompletableFuture<Void> saveSchedulesToFile(String filename) throws IOException {
+        return committer.rewrite(filename, () -> writeSchedules(filename));
+    }
+
+    /**
+     * Writes all doctors' schedules to a file now and checkpoints the journal.
+     *
+     * @param filename The name of the file.
      * @throws IOException If an I/O error occurs.
      */
-    public void saveSchedulesToFile(String filename) throws IOException {
+    private void writeSchedules(String filename) throws IOException {
+        doctorWriters.lockAll();
+        try {
+            writeTable(filename, Journal.Table.SCHEDULES, usersLock, () -> scheduleLines());
+        } finally {
+            doctorWriters.unlockAll();
+        }
+    }
+
+    /**
+     * Serializes all doctors' schedules into the lines of the schedules file.
+     *
+     * @return Schedule entries of every doctor.
+     */
+    private List<String> scheduleLines() {
         List<String> lines = new ArrayList<>();
         for (User user : users) {
             if (user instanceof Doctor) {
-                Doctor doctor = (Doctor) user;
-                Schedule schedule = doctor.getSchedule();
-                for (LocalDate date : schedule.getAvailability().keySet()) {
-                    List<TimeSlot> slots = schedule.getAvailableTimeSlots(date);
-                    StringBuilder slotsStr = new StringBuilder();
-                    for (int i = 0; i < slots.size(); i++) {
-                        TimeSlot slot = slots.get(i);
-                        slotsStr.append(slot.getStartTime().toLocalTime().format(TIME_FORMATTER))
-                                .append("-")
-                                .append(slot.getEndTime().toLocalTime().format(TIME_FORMATTER));
-                        if (i < slots.size() - 1) {
-                            slotsStr.append(",");
-                        }
-                    }
-                    String line = String.join(SEPARATOR,
-                            doctor.getHospitalID(),
-                            date.format(DATE_FORMATTER),
-                            slotsStr.toString()
-                    );
-                    lines.add(line);
+                lines.addAll(cachedScheduleLines((Doctor) user));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * ScheduleLines
+     * Schedule file entries of one doctor, valid while the doctor keeps the schedule
+     * they were serialized from and it is not changed.
+     */
+    private static final class ScheduleLines {
+        private final Schedule schedule;   /**< Schedule the lines were serialized from. */
+        private final List<String> lines;  /**< Schedule file entries. */
+
+        ScheduleLines(Schedule schedule, List<String> lines) {
+            this.schedule = schedule;
+            this.lines = Collections.unmodifiableList(lines);
+        }
+    }
+
+    /**
+     * Gets a doctor's schedule file entries, serializing the schedule only if it
+     * changed since it was last serialized. Hold the users read lock.
+     *
+     * @param doctor The doctor whose schedule is serialized.
+     * @return Schedule entries of the doctor.
+     */
+    private List<String> cachedScheduleLines(Doctor doctor) {
+        ScheduleLines cached = scheduleLineCache.get(doctor.getHospitalID());
+        if (cached == null || cached.schedule != doctor.getSchedule()) {
+            cached = new ScheduleLines(doctor.getSchedule(), scheduleLines(doctor));
+            scheduleLineCache.put(doctor.getHospitalID(), cached);
+        }
+        return cached.lines;
+    }
+
+    /**
+     * Serializes one doctor's schedule into schedule file entries, one per date.
+     *
+     * @param doctor The doctor whose schedule is serialized.
+     * @return Schedule entries of the doctor.
+     */
+    private List<String> scheduleLines(Doctor doctor) {
+        List<String> lines = new ArrayList<>();
+        Schedule schedule = doctor.getSchedule();
+        for (LocalDate date : schedule.getDates()) {
+            StringBuilder slotsStr = new StringBuilder();
+            long mask = schedule.getSlotMask(date);
+            if (mask != Schedule.NOT_ON_GRID) {
+                // Grid day: format the slots straight from the bitmap
+                while (mask != 0) {
+                    LocalTime start = LocalTime.ofSecondOfDay((long) Long.numberOfTrailingZeros(mask) * Schedule.SLOT_MINUTES * 60);
+                    appendSlot(slotsStr, start, start.plusMinutes(Schedule.SLOT_MINUTES));
+                    mask &= mask - 1;
+                }
+            } else {
+                for (TimeSlot slot : schedule.getAvailableTimeSlots(date)) {
+                    appendSlot(slotsStr, slot.getStartTime().toLocalTime(), slot.getEndTime().toLocalTime());
                 }
             }
+            String line = String.join(SEPARATOR,
+                    doctor.getHospitalID(),
+                    date.format(DATE_FORMATTER),
+                    slotsStr.toString()
+            );
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Appends one slot to a schedule entry's comma-separated slot list.
+     *
+     * @param slotsStr Slot list being built.
+     * @param start    Start time of the slot.
+     * @param end      End time of the slot.
+     */
+    private static void appendSlot(StringBuilder slotsStr, LocalTime start, LocalTime end) {
+        if (slotsStr.length() > 0) {
+            slotsStr.append(",");
         }
-        write(filename, lines);
+        slotsStr.append(start.format(TIME_FORMATTER)).append("-").append(end.format(TIME_FORMATTER));
     }
 
 
     /**
-     * Updates a doctor's schedule and saves the changes to the schedules file.
+     * Updates a doctor's schedule and journals the doctor's new schedule entries.
      *
      * @param doctorId The ID of the doctor whose schedule is to be updated.
      * @param schedule The updated Schedule object.
      * @throws IOException If an I/O error occurs.
      */
     public void updateDoctorSchedule(String doctorId, Schedule schedule) throws IOException {
-        Doctor doctor = (Doctor) getUserByHospitalID(doctorId);
-        if (doctor != null) {
-            doctor.setSchedule(schedule);
-            saveSchedulesToFile("schedules.txt");
-        } else {
-            System.err.println("Doctor with ID " + doctorId + " not found.");
+        updateDoctorSchedule(doctorId, doctor -> doctor.setSchedule(schedule));
+    }
+
+    /**
+     * Replaces a doctor's availability on a date and journals the doctor's new schedule
+     * entries. The schedule is changed under the doctor's writer stripe and the users
+     * write lock, so readers never see it half changed.
+     *
+     * @param doctorId     The ID of the doctor whose schedule is to be updated.
+     * @param date         The date for which to set availability.
+     * @param availability The available time slots on that date.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void updateDoctorSchedule(String doctorId, LocalDate date, List<TimeSlot> availability) throws IOException {
+        updateDoctorSchedule(doctorId, doctor -> doctor.getSchedule().setAvailability(date, availability));
+    }
+
+    /**
+     * Changes a doctor's schedule under the doctor's writer stripe and the users write
+     * lock, and journals the doctor's new schedule entries.
+     *
+     * @param doctorId The ID of the doctor whose schedule is to be updated.
+     * @param change   Changes the schedule of the stored doctor.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void updateDoctorSchedule(String doctorId, Consumer<Doctor> change) throws IOException {
+        ReentrantLock stripe = doctorWriters.lock(doctorId);
+        try {
+            List<Journal.Record> records = usersLock.write(() -> {
+                Doctor doctor = (Doctor) getUserByHospitalID(doctorId);
+                if (doctor == null) {
+                    return null;
+                }
+                change.accept(doctor);
+                Schedule schedule = doctor.getSchedule();
+                slotCache.invalidate(doctorId);
+                List<String> lines = scheduleLines(doctor);
+                scheduleLineCache.put(doctorId, new ScheduleLines(schedule, lines));
+                List<Journal.Record> changes = new ArrayList<>();
+                changes.add(new Journal.Record(Journal.Table.SCHEDULES, Journal.Op.CLEAR, doctorId));
+                for (String line : lines) {
+                    changes.add(new Journal.Record(Journal.Table.SCHEDULES, Journal.Op.PUT, line));
+                }
+                return changes;
+            });
+            if (records != null) {
+                journal(records.toArray(new Journal.Record[0]));
+            } else {
+                System.err.println("Doctor with ID " + doctorId + " not found.");
+            }
+        } finally {
+            stripe.unlock();
         }
     }
 
     // ====================== Existing Methods ========================= //
 
     /**
-     * Sets the object's name.
+     * Adds a user and indexes it in the user registry.
      *
-     * @param name The new name.
+     * @param user The user to add.
      */
     public void addUser(User user) {
-        users.add(user);
+        usersLock.update(() -> {
+            users.add(user);
+            userRegistry.add(user);
+        });
+        markChanged(Journal.Table.USERS);
     }
 
     /**
-     * Sets the object's name.
+     * Removes a user and drops it from the user registry.
      *
-     * @param name The new name.
+     * @param user The user to remove.
      */
     public void removeUser(User user) {
-        users.remove(user);
+        usersLock.update(() -> {
+            if (users.remove(user)) {
+                userRegistry.remove(user, users);
+            }
+        });
+        markChanged(Journal.Table.USERS);
     }
 
     /**
@@ -264,22 +1214,28 @@ public class TextDB {
      * @return user
      */
     public User getUserByHospitalID(String hospitalID) {
-        for (User user : users) {
-            if (user.getHospitalID().equals(hospitalID)) {
-                return user;
-            }
-        }
-        return null;
+        return usersLock.readOptimistic(() -> userRegistry.get(hospitalID));
+    }
+
+    /**
+     * Returns the user with the given role and hospital ID, both compared
+     * case-insensitively. The role is the user's class name, e.g. "Doctor".
+     *
+     * @param role       Role of the user to find.
+     * @param hospitalID Hospital ID of the user to find.
+     * @return User object if a match is found, null otherwise.
+     */
+    public User getUserByRoleAndID(String role, String hospitalID) {
+        return usersLock.readOptimistic(() -> userRegistry.get(role, hospitalID));
     }
 
     /**
-     * Calculates the result.
+     * Returns all users.
      *
-     * 
-     * @return Unmodifiable List of Users
+     * @return Unmodifiable copy of the list of Users
      */
     public List<User> getUsers() {
-        return Collections.unmodifiableList(users);
+        return usersLock.read(() -> Collections.unmodifiableList(new ArrayList<>(users)));
     }
 
     /**
@@ -288,30 +1244,62 @@ public class TextDB {
      * @param user Can be Administrator
      */
     public static void updateUserPassword(User user) {
-        for (int i = 0; i < users.size(); i++) {
-            if (users.get(i).getHospitalID().equals(user.getHospitalID())) {
-                users.set(i, user);
-                break;
-            }
-        }
+        ReentrantLock stripe = userWriters.lock(user.getHospitalID());
         try {
-            saveToFile("users.txt");
+            String line = usersLock.write(() -> {
+                for (int i = 0; i < users.size(); i++) {
+                    if (users.get(i).getHospitalID().equals(user.getHospitalID())) {
+                        userRegistry.replace(users.set(i, user), user, users);
+                        break;
+                    }
+                }
+                return serializeUser(user);
+            });
+            getInstance().journal(new Journal.Record(Journal.Table.USERS, Journal.Op.PUT, line));
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            stripe.unlock();
         }
     }
 
     /**
-     * Saves to file
+     * Saves all users to the specified file, when the commit policy says so.
+     *
+     * @param filename The name of the users file.
+     * @return Future completed once the file is written.
+     * @throws IOException If an I/O error occurs under the immediate commit policy.
+     */
+    public static CompletableFuture<Void> saveToFile(String filename) throws IOException {
+        return getInstance().committer.rewrite(filename, () -> writeUsers(filename));
+    }
+
+    /**
+     * Writes all users to a file now and checkpoints the journal.
      *
-     * @param filename
+     * @param filename The name of the file.
+     * @throws IOException If an I/O error occurs.
      */
-    public static void saveToFile(String filename) throws IOException {
+    private static void writeUsers(String filename) throws IOException {
+        userWriters.lockAll();
+        try {
+            getInstance().writeTable(filename, Journal.Table.USERS, usersLock, () -> userLines());
+        } finally {
+            userWriters.unlockAll();
+        }
+    }
+
+    /**
+     * Serializes all users into the lines of the users file.
+     *
+     * @return Serialized users.
+     */
+    private static List<String> userLines() {
         List<String> stringList = new ArrayList<>();
         for (User user : users) {
             stringList.add(serializeUser(user));
         }
-        write(filename, stringList);
+        return stringList;
     }
 
     /**
@@ -330,20 +1318,13 @@ public class TextDB {
     }
     
     /**
-     * Writes data to file
+     * Writes data to file, replacing it atomically
      *
      * @param filename Name of file
      * @param data Data to write to file
      */
     public static void write(String fileName, List<String> data) throws IOException {
-        PrintWriter out = new PrintWriter(new FileWriter(fileName));
-        try {
-            for (String line : data) {
-                out.println(line);
-            }
-        } finally {
-            out.close();
-        }
+        AtomicFileWriter.commit(fileName, data);
     }
 
     /**
@@ -354,24 +1335,9 @@ public class TextDB {
      * @throws IOException
      */
     public static List<String> read(String fileName) throws IOException {
-        List<String> data = new ArrayList<>();
-        FileInputStream fis = null;
-        Scanner scanner = null;
-        try {
-            fis = new FileInputStream(fileName);
-            scanner = new Scanner(fis);
-            while (scanner.hasNextLine()) {
-                data.add(scanner.nextLine());
-            }
-        } finally {
-            if (scanner != null) {
-                scanner.close();
-            }
-            if (fis != null) {
-                fis.close();
-            }
+        try (Stream<String> lines = MappedLineReader.lines(fileName)) {
+            return lines.collect(Collectors.toCollection(ArrayList::new));
         }
-        return data;
     }
 
     // ====================== Appointment Management ========================= //
@@ -384,32 +1350,42 @@ public class TextDB {
      * @return boolean of success
      */
     public boolean cancelAppointment(Patient patient, int appointmentId) {
-        boolean removed = appointments.removeIf(appointment -> 
-            appointment.getId() == appointmentId && appointment.getPatientId().equals(patient.getHospitalID())
-        );
-
-        if (removed) {
-            try {
-                saveAppointmentsToFile("appts.txt");
-            } catch (IOException e) {
-                e.printStackTrace();
-                return false;
+        ReentrantLock stripe = patientWriters.lock(patient.getHospitalID());
+        try {
+            boolean removed = appointmentsLock.write(() -> {
+                boolean found = false;
+                for (Appointment appointment : appointmentIndex.getByPatient(patient.getHospitalID())) {
+                    if (appointment.getId() == appointmentId) {
+                        appointments.remove(appointment);
+                        appointmentIndex.remove(appointment);
+                        found = true;
+                    }
+                }
+                return found;
+            });
+
+            if (removed) {
+                try {
+                    journal(new Journal.Record(Journal.Table.APPOINTMENTS, Journal.Op.DEL, String.valueOf(appointmentId)));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return false;
+                }
             }
-        }
 
-        return removed;
+            return removed;
+        } finally {
+            stripe.unlock();
+        }
     }
 
     /**
-     * Generates new Appointment ID
+     * Generates new Appointment ID from the persistent appointment ID sequence.
      *
      * @return New AppointmentID
      */
     private int generateNewAppointmentId() {
-        return appointments.stream()
-                           .mapToInt(Appointment::getId)
-                           .max()
-                           .orElse(0) + 1;
+        return Math.toIntExact(appointmentIds.next());
     }
 
     /**
@@ -417,10 +1393,10 @@ public class TextDB {
      * @return List of Doctors
      */
     public List<Doctor> getAllDoctors() {
-        return users.stream()
+        return usersLock.read(() -> users.stream()
                     .filter(user -> user instanceof Doctor)
                     .map(user -> (Doctor) user)
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()));
     }
 
     /**
@@ -431,32 +1407,69 @@ public class TextDB {
      * @return AppointmentSlots that are available
      */
     public List<TimeSlot> getAvailableAppointmentSlots(LocalDate date, Doctor doctor) {
-        // Retrieve the doctor's available slots for the date
-        List<TimeSlot> doctorAvailableSlots = doctor.getAvailableTimeSlots(date);
-        
-        if (doctorAvailableSlots.isEmpty()) {
+        List<TimeSlot> cached = appointmentsLock.readOptimistic(() -> slotCache.get(doctor.getHospitalID(), date));
+        if (cached != null) {
+            return cached;
+        }
+        return usersLock.read(() -> appointmentsLock.read(() -> cacheAvailableAppointmentSlots(date, doctor)));
+    }
+
+    /**
+     * Computes the free appointment slots of a doctor on a date and caches them.
+     * Hold the users and appointments read locks.
+     *
+     * @param date Date of Appointment
+     * @param doctor Doctor in charge
+     * @return AppointmentSlots that are available
+     */
+    private List<TimeSlot> cacheAvailableAppointmentSlots(LocalDate date, Doctor doctor) {
+        Schedule schedule = doctor.getSchedule();
+        if (!schedule.hasAvailability(date)) {
             // Doctor has not set availability for this date
-            return Collections.emptyList();
+            slotCache.put(doctor.getHospitalID(), date, 0L);
+            return new ArrayList<>();
         }
 
-        // Retrieve booked and requested appointments for the doctor on the date
-        List<Appointment> bookedOrRequestedAppointments = appointments.stream()
-                .filter(appt -> appt.getDoctorId().equals(doctor.getHospitalID()) &&
-                                appt.getDate().equals(date) &&
-                                (appt.getStatus().equalsIgnoreCase("Scheduled") || appt.getStatus().equalsIgnoreCase("Requested")))
-                .collect(Collectors.toList());
+        // Clear the booked and requested slots from the doctor's available slots
+        List<TimeSlot> occupiedSlots = getOccupiedSlots(date, doctor);
+        long freeMask = schedule.getFreeSlotMask(date, occupiedSlots);
+        if (freeMask != Schedule.NOT_ON_GRID) {
+            slotCache.put(doctor.getHospitalID(), date, freeMask);
+            return Schedule.toTimeSlots(date, freeMask);
+        }
+        List<TimeSlot> freeSlots = schedule.getFreeTimeSlots(date, occupiedSlots);
+        slotCache.put(doctor.getHospitalID(), date, freeSlots);
+        return freeSlots;
+    }
 
-        // Extract the booked TimeSlots
-        List<TimeSlot> occupiedSlots = bookedOrRequestedAppointments.stream()
-                .map(Appointment::getTimeSlot)
-                .collect(Collectors.toList());
+    /**
+     * Checks whether a time slot is one of a doctor's free appointment slots on a date.
+     *
+     * @param date     Date of Appointment
+     * @param doctor   Doctor in charge
+     * @param timeSlot Time slot to check
+     * @return True if the time slot is free
+     */
+    private boolean isAppointmentSlotAvailable(LocalDate date, Doctor doctor, TimeSlot timeSlot) {
+        Boolean free = slotCache.isFree(doctor.getHospitalID(), date, timeSlot);
+        if (free == null) {
+            return cacheAvailableAppointmentSlots(date, doctor).contains(timeSlot);
+        }
+        return free;
+    }
 
-        // Filter out the occupied slots from the doctor's available slots
-        List<TimeSlot> availableSlots = doctorAvailableSlots.stream()
-                .filter(slot -> !occupiedSlots.contains(slot))
+    /**
+     * Gets the time slots of a doctor's scheduled and requested appointments on a date.
+     *
+     * @param date   Date of the appointments
+     * @param doctor Doctor in charge
+     * @return Occupied time slots
+     */
+    private List<TimeSlot> getOccupiedSlots(LocalDate date, Doctor doctor) {
+        return appointmentIndex.getByDoctorAndDate(doctor.getHospitalID(), date).stream()
+                .filter(appt -> appt.getStatus().equalsIgnoreCase("Scheduled") || appt.getStatus().equalsIgnoreCase("Requested"))
+                .map(Appointment::getTimeSlot)
                 .collect(Collectors.toList());
-
-        return availableSlots;
     }
 
     /**
@@ -534,18 +1547,48 @@ public class TextDB {
      * @param doctor     The doctor for the appointment.
      * @param date       The date of the appointment.
      * @param timeSlot   The time slot for the appointment.
-     * @return True if the appointment is successfully added, false otherwise.
+     * @return True if the appointment is successfully added, false if the slot
+     *         is taken or the appointment cannot be saved.
      */
     // Appointment management methods
     public boolean addAppointment(Patient patient, Doctor doctor, LocalDate date, TimeSlot timeSlot) {
-        List<TimeSlot> availableSlots = getAvailableAppointmentSlots(date, doctor);
-        if (!availableSlots.contains(timeSlot)) {
-            System.out.println("The selected time slot is not available.");
+        // Claim the slot first, so no other booking can see it free until this one is added
+        if (!slotReservations.claim(doctor.getHospitalID(), date, timeSlot)) {
+            return false;
+        }
+        ReentrantLock patientStripe = patientWriters.lock(patient.getHospitalID());
+        try {
+            return bookAppointment(patient, doctor, date, timeSlot);
+        } finally {
+            patientStripe.unlock();
+            slotReservations.release(doctor.getHospitalID(), date, timeSlot);
+        }
+    }
+
+    /**
+     * Adds an appointment while holding the claim on its slot and the writer stripe of its patient.
+     *
+     * @param patient    The patient for whom the appointment is being made.
+     * @param doctor     The doctor for the appointment.
+     * @param date       The date of the appointment.
+     * @param timeSlot   The time slot for the appointment.
+     * @return True if the appointment is successfully added, false otherwise.
+     */
+    private boolean bookAppointment(Patient patient, Doctor doctor, LocalDate date, TimeSlot timeSlot) {
+        boolean available = usersLock.read(() -> appointmentsLock.read(() -> isAppointmentSlotAvailable(date, doctor, timeSlot)));
+        if (!available) {
             return false;
         }
 
         // Generate a new unique appointment ID
-        int newAppointmentId = generateNewAppointmentId();
+        int newAppointmentId;
+        try {
+            newAppointmentId = generateNewAppointmentId();
+        } catch (UncheckedIOException e) {
+            System.err.println("Failed to save the appointment to the file.");
+            e.printStackTrace();
+            return false;
+        }
 
         // Create the new appointment with status "Requested"
         Appointment newAppointment = new Appointment(newAppointmentId, 
@@ -556,26 +1599,76 @@ public class TextDB {
                                                     "Pending");
 
         // Add the new appointment to the list
-        appointments.add(newAppointment);
+        appointmentsLock.update(() -> {
+            appointments.add(newAppointment);
+            appointmentIndex.add(newAppointment);
+        });
         
         // Mark the TimeSlot as unavailable to prevent double booking
         timeSlot.setAvailable(false);
 
-        // Save the appointment to the file for persistence
+        // Journal the appointment for persistence
         try {
-            saveAppointmentsToFile("appts.txt");
-            saveSchedulesToFile("schedules.txt"); // Save the updated schedule
+            journal(new Journal.Record(Journal.Table.APPOINTMENTS, Journal.Op.PUT, serializeAppointment(newAppointment)));
         } catch (IOException e) {
-            System.out.println("Failed to save the appointment to the file.");
+            System.err.println("Failed to save the appointment to the file.");
             e.printStackTrace();
             return false;
         }
 
-        System.out.println("Appointment request successfully submitted with Dr. " + doctor.getName() + " on " + date + " at " + timeSlot + ".");
-        System.out.println("Please await doctor's approval.");
         return true;
     }
 
+    /**
+     * Moves a patient's appointment to another doctor or time slot. The new slot is
+     * claimed and checked free under the patient's writer stripe, as for a booking;
+     * the stored appointment is then replaced by a moved copy, and its old slot is
+     * released.
+     *
+     * @param patient       The patient who owns the appointment.
+     * @param appointmentId The unique ID of the appointment.
+     * @param doctor        The doctor for the appointment.
+     * @param date          The date of the new time slot.
+     * @param timeSlot      The new time slot.
+     * @return True if the appointment was moved, false if the slot is taken or the
+     *         patient has no appointment with that ID.
+     * @throws IOException If the moved appointment cannot be journaled.
+     */
+    public boolean rescheduleAppointment(Patient patient, int appointmentId, Doctor doctor, LocalDate date, TimeSlot timeSlot) throws IOException {
+        if (!slotReservations.claim(doctor.getHospitalID(), date, timeSlot)) {
+            return false;
+        }
+        ReentrantLock patientStripe = patientWriters.lock(patient.getHospitalID());
+        try {
+            boolean available = usersLock.read(() -> appointmentsLock.read(() -> isAppointmentSlotAvailable(date, doctor, timeSlot)));
+            if (!available) {
+                    return false;
+            }
+
+            TimeSlot newTimeSlot = new TimeSlot(timeSlot.getStartTime(), timeSlot.getEndTime(), false);
+            String line = appointmentsLock.write(() -> {
+                Appointment existing = appointmentIndex.getById(appointmentId);
+                if (existing == null || !existing.getPatientId().equals(patient.getHospitalID())) {
+                    return null;
+                }
+                Appointment moved = new Appointment(appointmentId, existing.getPatientId(), doctor.getHospitalID(),
+                                                    newTimeSlot, "Rescheduled", existing.getOutcomeRecord());
+                String serialized = replaceAppointment(moved);
+                existing.getTimeSlot().setAvailable(true);
+                return serialized;
+            });
+            if (line == null) {
+                System.err.println("Appointment with ID " + appointmentId + " not found.");
+                return false;
+            }
+            journal(new Journal.Record(Journal.Table.APPOINTMENTS, Journal.Op.PUT, line));
+            return true;
+        } finally {
+            patientStripe.unlock();
+            slotReservations.release(doctor.getHospitalID(), date, timeSlot);
+        }
+    }
+
     /**
      * Retrieves a list of all requested appointments for a specific doctor.
      *
@@ -583,9 +1676,7 @@ public class TextDB {
      * @return A list of requested appointments for the given doctor.
      */
     public List<Appointment> getRequestedAppointmentsByDoctor(String doctorId) {
-        return appointments.stream()
-                .filter(appt -> appt.getDoctorId().equals(doctorId) && appt.getStatus().equalsIgnoreCase("Requested"))
-                .collect(Collectors.toList());
+        return appointmentsLock.read(() -> appointmentIndex.getByDoctorAndStatus(doctorId, "Requested"));
     }
 
     /**
@@ -595,12 +1686,7 @@ public class TextDB {
      * @return The appointment with the specified ID, or null if not found.
      */
     public Appointment getAppointmentById(int appointmentId) {
-        for (Appointment appt : appointments) {
-            if (appt.getId() == appointmentId) {
-                return appt;
-            }
-        }
-        return null;
+        return appointmentsLock.readOptimistic(() -> appointmentIndex.getById(appointmentId));
     }
 
     /**
@@ -613,30 +1699,38 @@ public class TextDB {
     public void updateAppointmentStatus(int appointmentId, String newStatus) throws IOException {
         Appointment appointment = getAppointmentById(appointmentId);
         if (appointment != null) {
-            appointment.setStatus(newStatus);
-            
-            switch (newStatus.toLowerCase()) {
-                case "completed":
-                    // Do not set outcomeRecord here; it will be handled in recordAppointmentOutcome
-                    break;
-                case "declined":
-                case "cancelled":
-                case "scheduled":
-                    // Make the TimeSlot available again if necessary
-                    if (newStatus.equalsIgnoreCase("declined") || newStatus.equalsIgnoreCase("cancelled")) {
-                        appointment.getTimeSlot().setAvailable(true);
+            ReentrantLock stripe = patientWriters.lock(appointment.getPatientId());
+            try {
+                String line = appointmentsLock.write(() -> {
+                    appointment.setStatus(newStatus);
+
+                    switch (newStatus.toLowerCase()) {
+                        case "completed":
+                            // Do not set outcomeRecord here; it will be handled in recordAppointmentOutcome
+                            break;
+                        case "declined":
+                        case "cancelled":
+                        case "scheduled":
+                            // Make the TimeSlot available again if necessary
+                            if (newStatus.equalsIgnoreCase("declined") || newStatus.equalsIgnoreCase("cancelled")) {
+                                appointment.getTimeSlot().setAvailable(true);
+                            }
+                            // Set outcomeRecord to "NULL" since there's no detailed outcome
+                            appointment.setOutcomeRecord("NULL");
+                            break;
+                        default:
+                            // Handle other statuses if any
+                            appointment.setOutcomeRecord("NULL");
+                            break;
                     }
-                    // Set outcomeRecord to "NULL" since there's no detailed outcome
-                    appointment.setOutcomeRecord("NULL");
-                    break;
-                default:
-                    // Handle other statuses if any
-                    appointment.setOutcomeRecord("NULL");
-                    break;
+
+                    appointmentIndex.reindex(appointment);
+                    return serializeAppointment(appointment);
+                });
+                journal(new Journal.Record(Journal.Table.APPOINTMENTS, Journal.Op.PUT, line));
+            } finally {
+                stripe.unlock();
             }
-            
-            saveAppointmentsToFile("appts.txt");
-            saveSchedulesToFile("schedules.txt"); // Save updated TimeSlot availability
         } else {
             System.err.println("Appointment with ID " + appointmentId + " not found.");
         }
@@ -648,30 +1742,60 @@ public class TextDB {
      * @param appointment The appointment to be removed.
      */
     public void removeAppointment(Appointment appointment) {
-        appointments.remove(appointment);
+        appointmentsLock.update(() -> {
+            if (appointments.remove(appointment)) {
+                appointmentIndex.remove(appointment);
+            }
+        });
+        markChanged(Journal.Table.APPOINTMENTS);
     }
 
     /**
      * Retrieves the list of all appointments.
      *
-     * @return A list of all appointments.
+     * @return A copy of the list of all appointments.
      */
     public List<Appointment> getAppointments() {
-        return appointments;
+        return appointmentsLock.read(() -> new ArrayList<>(appointments));
     }
 
     /**
-     * Saves the current list of appointments to a file.
+     * Saves the current list of appointments to a file, when the commit policy says so.
      *
      * @param filename The name of the file to save the appointments.
-     * @throws IOException If an error occurs while saving the file.
+     * @return Future completed once the file is written.
+     * @throws IOException If an error occurs while saving the file under the immediate commit policy.
+     */
+    public static CompletableFuture<Void> saveAppointmentsToFile(String filename) throws IOException {
+        return getInstance().committer.rewrite(filename, () -> writeAppointments(filename));
+    }
+
+    /**
+     * Writes all appointments to a file now and checkpoints the journal.
+     *
+     * @param filename The name of the file.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void writeAppointments(String filename) throws IOException {
+        patientWriters.lockAll();
+        try {
+            getInstance().writeTable(filename, Journal.Table.APPOINTMENTS, appointmentsLock, () -> appointmentLines());
+        } finally {
+            patientWriters.unlockAll();
+        }
+    }
+
+    /**
+     * Serializes all appointments into the lines of the appointments file.
+     *
+     * @return Serialized appointments.
      */
-    public static void saveAppointmentsToFile(String filename) throws IOException {
+    private static List<String> appointmentLines() {
         List<String> stringList = new ArrayList<>();
         for (Appointment appointment : appointments) {
             stringList.add(serializeAppointment(appointment));
         }
-        write(filename, stringList);
+        return stringList;
     }
 
     /**
@@ -737,8 +1861,16 @@ public class TextDB {
      * @throws IOException If an error occurs while saving the medical record to the file.
      */
     public void addMedicalRecord(MedicalRecord record) throws IOException {
-        medicalRecords.add(record);
-        saveMedicalRecordsToFile("med_records.txt");
+        ReentrantLock stripe = patientWriters.lock(record.getPatientID());
+        try {
+            String line = medicalRecordsLock.write(() -> {
+                medicalRecords.add(record);
+                return serializeMedicalRecord(record);
+            });
+            journal(new Journal.Record(Journal.Table.MEDICAL_RECORDS, Journal.Op.PUT, line));
+        } finally {
+            stripe.unlock();
+        }
     }
     
     /**
@@ -748,11 +1880,25 @@ public class TextDB {
      * @throws IOException If an error occurs while saving the file.
      */
     private void saveMedicalRecordsToFile(String filename) throws IOException {
+        patientWriters.lockAll();
+        try {
+            writeTable(filename, Journal.Table.MEDICAL_RECORDS, medicalRecordsLock, () -> medicalRecordLines());
+        } finally {
+            patientWriters.unlockAll();
+        }
+    }
+
+    /**
+     * Serializes all medical records into the lines of the medical records file.
+     *
+     * @return Serialized medical records.
+     */
+    private List<String> medicalRecordLines() {
         List<String> stringList = new ArrayList<>();
         for (MedicalRecord record : medicalRecords) {
             stringList.add(serializeMedicalRecord(record));
         }
-        write(filename, stringList);
+        return stringList;
     }
     
 
@@ -812,12 +1958,15 @@ public class TextDB {
      * @return The MedicalRecord object, or null if not found.
      */
     public MedicalRecord getMedicalRecordByPatientId(String patientId) {
-        for (MedicalRecord record : medicalRecords) {
-            if (record.getPatientID().equals(patientId)) {
-                return record;
+        return medicalRecordsLock.readOptimistic(() -> {
+            for (int i = 0; i < medicalRecords.size(); i++) {
+                MedicalRecord record = medicalRecords.get(i);
+                if (record.getPatientID().equals(patientId)) {
+                    return record;
+                }
             }
-        }
-        return null;
+            return null;
+        });
     }
 
     /**
@@ -827,20 +1976,33 @@ public class TextDB {
      * @throws IOException If an I/O error occurs during saving.
      */
     public void updateMedicalRecord(MedicalRecord updatedRecord) throws IOException {
-        boolean found = false;
-        for (int i = 0; i < medicalRecords.size(); i++) {
-            if (medicalRecords.get(i).getPatientID().equals(updatedRecord.getPatientID())) {
-                medicalRecords.set(i, updatedRecord);
-                found = true;
-                break;
+        ReentrantLock stripe = patientWriters.lock(updatedRecord.getPatientID());
+        try {
+            String line = medicalRecordsLock.write(() -> replaceMedicalRecord(updatedRecord));
+
+            if (line != null) {
+                journal(new Journal.Record(Journal.Table.MEDICAL_RECORDS, Journal.Op.PUT, line));
+            } else {
+                System.err.println("Medical record for patient ID " + updatedRecord.getPatientID() + " not found.");
             }
+        } finally {
+            stripe.unlock();
         }
-    
-        if (found) {
-            saveMedicalRecordsToFile("med_records.txt");
-        } else {
-            System.err.println("Medical record for patient ID " + updatedRecord.getPatientID() + " not found.");
+    }
+
+    /**
+     * Replaces a patient's medical record in memory. Hold the medical records write lock.
+     *
+     * @param updatedRecord The updated MedicalRecord object.
+     * @return Serialized record to journal, or null if the patient has no record.
+     */
+    private String replaceMedicalRecord(MedicalRecord updatedRecord) {
+        int i = indexOfMedicalRecord(updatedRecord.getPatientID());
+        if (i < 0) {
+            return null;
         }
+        medicalRecords.set(i, updatedRecord);
+        return serializeMedicalRecord(updatedRecord);
     }
     
     
@@ -853,9 +2015,38 @@ public class TextDB {
      * @return List of appointments for the specified doctor.
      */
     public List<Appointment> getAppointmentsByDoctorId(String doctorId) {
-        return appointments.stream()
-                .filter(appt -> appt.getDoctorId().equals(doctorId))
-                .collect(Collectors.toList());
+        return appointmentsLock.read(() -> appointmentIndex.getByDoctor(doctorId));
+    }
+
+    /**
+     * Retrieves appointments of a specific doctor with a given status.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param status   The status, compared case-insensitively.
+     * @return List of the doctor's appointments with that status.
+     */
+    public List<Appointment> getAppointmentsByDoctorIdAndStatus(String doctorId, String status) {
+        return appointmentsLock.read(() -> appointmentIndex.getByDoctorAndStatus(doctorId, status));
+    }
+
+    /**
+     * Retrieves appointments of a specific patient.
+     *
+     * @param patientId The ID of the patient.
+     * @return List of appointments for the specified patient.
+     */
+    public List<Appointment> getAppointmentsByPatientId(String patientId) {
+        return appointmentsLock.read(() -> appointmentIndex.getByPatient(patientId));
+    }
+
+    /**
+     * Retrieves all appointments with a given status.
+     *
+     * @param status The status, compared case-insensitively.
+     * @return List of appointments with that status.
+     */
+    public List<Appointment> getAppointmentsByStatus(String status) {
+        return appointmentsLock.read(() -> appointmentIndex.getByStatus(status));
     }
     
     /**
@@ -865,9 +2056,7 @@ public class TextDB {
      * @return List of pending appointments for the specified doctor.
      */
     public List<Appointment> getPendingAppointmentsByDoctorId(String doctorId) {
-        return appointments.stream()
-                .filter(appt -> appt.getDoctorId().equals(doctorId) && appt.getStatus().equalsIgnoreCase("Pending"))
-                .collect(Collectors.toList());
+        return appointmentsLock.read(() -> appointmentIndex.getByDoctorAndStatus(doctorId, "Pending"));
     }
     
     /**
@@ -878,9 +2067,8 @@ public class TextDB {
      */
     public List<Appointment> getUpcomingAppointmentsByDoctorId(String doctorId) {
         LocalDateTime now = LocalDateTime.now();
-        return appointments.stream()
-                .filter(appt -> appt.getDoctorId().equals(doctorId) &&
-                                appt.getTimeSlot().getStartTime().isAfter(now) &&
+        return appointmentsLock.read(() -> appointmentIndex.getByDoctor(doctorId)).stream()
+                .filter(appt -> appt.getTimeSlot().getStartTime().isAfter(now) &&
                                 !appt.getStatus().equalsIgnoreCase("Declined"))
                 .collect(Collectors.toList());
     }
@@ -894,21 +2082,127 @@ public class TextDB {
      * @throws IOException If an I/O error occurs while saving appointments or schedules.
      */
     public void updateAppointment(Appointment updatedAppt) throws IOException {
-        for (int i = 0; i < appointments.size(); i++) {
-            if (appointments.get(i).getId() == updatedAppt.getId()) {
-                appointments.set(i, updatedAppt);
-                // Update TimeSlot availability based on status
-                if (updatedAppt.getStatus().equalsIgnoreCase("Scheduled")) {
-                    // Slot already marked as unavailable during request
-                    // No action needed
-                } else if (updatedAppt.getStatus().equalsIgnoreCase("Declined")) {
-                    // Make the TimeSlot available again
-                    updatedAppt.getTimeSlot().setAvailable(true);
-                }
-                saveAppointmentsToFile("appts.txt");
-                saveSchedulesToFile("schedules.txt"); // Save updated TimeSlot availability
-                break;
+        ReentrantLock stripe = patientWriters.lock(updatedAppt.getPatientId());
+        try {
+            String line = appointmentsLock.write(() -> replaceAppointment(updatedAppt));
+            if (line != null) {
+                journal(new Journal.Record(Journal.Table.APPOINTMENTS, Journal.Op.PUT, line));
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Replaces an appointment in memory. Hold the appointments write lock.
+     *
+     * @param updatedAppt The updated Appointment object.
+     * @return Serialized appointment to journal, or null if no appointment has its ID.
+     */
+    private String replaceAppointment(Appointment updatedAppt) {
+        Appointment existing = appointmentIndex.getById(updatedAppt.getId());
+        if (existing == null) {
+            return null;
+        }
+        int i = existing == updatedAppt ? -1 : appointments.indexOf(existing);
+        if (i >= 0) {
+            appointments.set(i, updatedAppt);
+        }
+        // Callers usually change the stored appointment itself, so refile it either way
+        appointmentIndex.replace(existing, updatedAppt);
+        // Update TimeSlot availability based on status
+        if (updatedAppt.getStatus().equalsIgnoreCase("Scheduled")) {
+            // Slot already marked as unavailable during request
+            // No action needed
+        } else if (updatedAppt.getStatus().equalsIgnoreCase("Declined")) {
+            // Make the TimeSlot available again
+            updatedAppt.getTimeSlot().setAvailable(true);
+        }
+        return serializeAppointment(updatedAppt);
+    }
+
+    // Transactions
+
+    /**
+     * Starts a transaction that changes several tables as one unit.
+     *
+     * @return A new, empty transaction.
+     */
+    public Transaction beginTransaction() {
+        return new Transaction(this);
+    }
+
+    /**
+     * Commits a transaction: checks that every staged entity exists, then applies the
+     * changes to the stored entities in place under the writer stripes of every patient
+     * involved and the table write locks, and journals them as one group. The stored
+     * objects are changed rather than replaced, so references held elsewhere, such as a
+     * patient's medical record, stay current.
+     *
+     * @param transaction The transaction to commit.
+     * @return True if committed, false if a staged entity does not exist, in which case
+     *         nothing is changed.
+     * @throws IOException If the changes cannot be journaled; they stay applied in memory.
+     */
+    boolean commit(Transaction transaction) throws IOException {
+        List<String> patientIds = new ArrayList<>();
+        for (Transaction.Change<String, MedicalRecord> change : transaction.getMedicalRecords()) {
+            patientIds.add(change.getKey());
+        }
+        for (Transaction.Change<Appointment, Appointment> change : transaction.getAppointments()) {
+            patientIds.add(change.getKey().getPatientId());
+        }
+
+        List<ReentrantLock> stripes = patientWriters.lock(patientIds);
+        try {
+            List<Journal.Record> records = medicalRecordsLock.write(() -> appointmentsLock.write(() -> {
+                // Find every entity first, so a missing one changes nothing
+                Map<String, MedicalRecord> storedRecords = new LinkedHashMap<>();
+                for (Transaction.Change<String, MedicalRecord> change : transaction.getMedicalRecords()) {
+                    int i = indexOfMedicalRecord(change.getKey());
+                    if (i < 0) {
+                        System.err.println("Medical record for patient ID " + change.getKey() + " not found.");
+                        return null;
+                    }
+                    storedRecords.put(change.getKey(), medicalRecords.get(i));
+                }
+                Map<Integer, Appointment> storedAppointments = new LinkedHashMap<>();
+                for (Transaction.Change<Appointment, Appointment> change : transaction.getAppointments()) {
+                    int id = change.getKey().getId();
+                    Appointment stored = appointmentIndex.getById(id);
+                    if (stored == null) {
+                        System.err.println("Appointment with ID " + id + " not found.");
+                        return null;
+                    }
+                    storedAppointments.put(id, stored);
+                }
+
+                for (Transaction.Change<String, MedicalRecord> change : transaction.getMedicalRecords()) {
+                    change.applyTo(storedRecords.get(change.getKey()));
+                }
+                for (Transaction.Change<Appointment, Appointment> change : transaction.getAppointments()) {
+                    change.applyTo(storedAppointments.get(change.getKey().getId()));
+                }
+
+                List<Journal.Record> changes = new ArrayList<>();
+                for (MedicalRecord record : storedRecords.values()) {
+                    changes.add(new Journal.Record(Journal.Table.MEDICAL_RECORDS, Journal.Op.PUT, replaceMedicalRecord(record)));
+                }
+                for (Appointment appointment : storedAppointments.values()) {
+                    // Refiles the changed appointment in the index
+                    changes.add(new Journal.Record(Journal.Table.APPOINTMENTS, Journal.Op.PUT, replaceAppointment(appointment)));
+                }
+                return changes;
+            }));
+            if (records == null) {
+                return false;
+            }
+            if (!records.isEmpty()) {
+                journal(records.toArray(new Journal.Record[0]));
             }
+            return true;
+        } finally {
+            patientWriters.unlock(stripes);
         }
     }
 
@@ -918,17 +2212,42 @@ public class TextDB {
 
 
     /**
-     * Saves medication inventory to the specified file.
+     * Saves medication inventory to the specified file, when the commit policy says so.
      *
      * @param filename The name of the inventory file.
+     * @return Future completed once the file is written.
+     * @throws IOException If an I/O error occurs under the immediate commit policy.
+     */
+    public CompletableFuture<Void> saveMedicationInventory(String filename) throws IOException {
+        return committer.rewrite(filename, () -> writeMedicationInventory(filename));
+    }
+
+    /**
+     * Writes the medication inventory to a file now and checkpoints the journal.
+     *
+     * @param filename The name of the file.
      * @throws IOException If an I/O error occurs.
      */
-    public void saveMedicationInventory(String filename) throws IOException {
+    private void writeMedicationInventory(String filename) throws IOException {
+        inventoryWriter.lock();
+        try {
+            writeTable(filename, Journal.Table.MEDICATIONS, medicationsLock, () -> medicationLines());
+        } finally {
+            inventoryWriter.unlock();
+        }
+    }
+
+    /**
+     * Serializes the medication inventory into the lines of the inventory file.
+     *
+     * @return Serialized medications.
+     */
+    private List<String> medicationLines() {
         List<String> lines = new ArrayList<>();
         for (Medication med : medications) {
             lines.add(serializeMedication(med));
         }
-        write(filename, lines);
+        return lines;
     }
 
     private String serializeMedication(Medication medication) {
@@ -942,11 +2261,84 @@ public class TextDB {
     /**
      * Retrieves an unmodifiable list of medications.
      *
-     * @return Unmodifiable list of medications.
+     * @return Unmodifiable copy of the list of medications.
      */
     public List<Medication> getMedications() {
-        //return Collections.unmodifiableList(medications);
-        return medications;
+        return medicationsLock.read(() -> Collections.unmodifiableList(new ArrayList<>(medications)));
+    }
+
+    /**
+     * Adds a medication to the inventory unless one with the same name exists.
+     * Call saveMedicationInventory to persist it.
+     *
+     * @param medication The medication to add.
+     * @return True if the medication was added.
+     */
+    public boolean addMedication(Medication medication) {
+        inventoryWriter.lock();
+        try {
+            return medicationsLock.write(() -> {
+                if (indexOfMedication(medication.getName()) >= 0) {
+                    return false;
+                }
+                medications.add(medication);
+                markChanged(Journal.Table.MEDICATIONS);
+                return true;
+            });
+        } finally {
+            inventoryWriter.unlock();
+        }
+    }
+
+    /**
+     * Removes a medication from the inventory.
+     * Call saveMedicationInventory to persist the removal.
+     *
+     * @param medication The medication to remove.
+     * @return True if the medication was in the inventory.
+     */
+    public boolean removeMedication(Medication medication) {
+        inventoryWriter.lock();
+        try {
+            return medicationsLock.write(() -> {
+                boolean removed = medications.remove(medication);
+                if (removed) {
+                    markChanged(Journal.Table.MEDICATIONS);
+                }
+                return removed;
+            });
+        } finally {
+            inventoryWriter.unlock();
+        }
+    }
+
+    /**
+     * Adds stock to a medication in the inventory.
+     *
+     * @param name     Name of the medication, compared case-insensitively.
+     * @param quantity Quantity to add.
+     * @return The updated medication, or null if it is not in the inventory.
+     * @throws IOException If the change cannot be journaled.
+     */
+    public Medication restockMedication(String name, int quantity) throws IOException {
+        inventoryWriter.lock();
+        try {
+            Medication medication = medicationsLock.write(() -> {
+                int i = indexOfMedication(name);
+                if (i < 0) {
+                    return null;
+                }
+                Medication med = medications.get(i);
+                med.setQuantity(med.getQuantity() + quantity);
+                return med;
+            });
+            if (medication != null) {
+                journal(new Journal.Record(Journal.Table.MEDICATIONS, Journal.Op.PUT, serializeMedication(medication)));
+            }
+            return medication;
+        } finally {
+            inventoryWriter.unlock();
+        }
     }
 
     /**
@@ -955,33 +2347,63 @@ public class TextDB {
      * @param updatedMedication The updated Medication object.
      */
     public void updateMedication(Medication updatedMedication) throws IOException {
-        boolean found = false;
-        for (int i = 0; i < medications.size(); i++) {
-            if (medications.get(i).getName().equalsIgnoreCase(updatedMedication.getName())) {
+        inventoryWriter.lock();
+        try {
+            String line = medicationsLock.write(() -> {
+                int i = indexOfMedication(updatedMedication.getName());
+                if (i < 0) {
+                    return null;
+                }
                 medications.set(i, updatedMedication);
-                found = true;
-                break;
+                return serializeMedication(updatedMedication);
+            });
+            if (line != null) {
+                journal(new Journal.Record(Journal.Table.MEDICATIONS, Journal.Op.PUT, line));
+            } else {
+                System.err.println("Medication " + updatedMedication.getName() + " not found in inventory.");
             }
-        }
-        if (found) {
-            saveMedicationInventory("inventory.txt");
-        } else {
-            System.err.println("Medication " + updatedMedication.getName() + " not found in inventory.");
+        } finally {
+            inventoryWriter.unlock();
         }
     }
 
     /**
-     * Saves replenishment requests to the specified file.
+     * Saves replenishment requests to the specified file, when the commit policy says so.
      *
      * @param filename The name of the replenishment requests file.
+     * @return Future completed once the file is written.
+     * @throws IOException If an I/O error occurs under the immediate commit policy.
+     */
+    public CompletableFuture<Void> saveReplenishmentRequests(String filename) throws IOException {
+        return committer.rewrite(filename, () -> writeReplenishmentRequests(filename));
+    }
+
+    /**
+     * Writes the replenishment requests to a file now and checkpoints the journal.
+     *
+     * @param filename The name of the file.
      * @throws IOException If an I/O error occurs.
      */
-    public void saveReplenishmentRequests(String filename) throws IOException {
+    private void writeReplenishmentRequests(String filename) throws IOException {
+        inventoryWriter.lock();
+        try {
+            writeTable(filename, Journal.Table.REPLENISHMENT_REQUESTS, requestsLock, () -> replenishmentRequestLines());
+        } finally {
+            inventoryWriter.unlock();
+        }
+    }
+
+    /**
+     * Serializes the replenishment requests into the lines of their file.
+     *
+     * @return Serialized replenishment requests.
+     */
+    private List<String> replenishmentRequestLines() {
         List<String> lines = new ArrayList<>();
         for (ReplenishmentRequest request : replenishmentRequests) {
             lines.add(request.serialize());
         }
-        write(filename, lines);
+        return lines;
     }
 
     /**
@@ -990,8 +2412,48 @@ public class TextDB {
      * @param request The ReplenishmentRequest object to add.
      */
     public void addReplenishmentRequest(ReplenishmentRequest request) throws IOException {
-        replenishmentRequests.add(request);
-        saveReplenishmentRequests("replenishment_requests.txt");
+        inventoryWriter.lock();
+        try {
+            // The request list is small and has no key, so the whole list is journaled
+            String lines = requestsLock.write(() -> {
+                replenishmentRequests.add(request);
+                return String.join(Journal.LINE_SEPARATOR, replenishmentRequestLines());
+            });
+            journal(new Journal.Record(Journal.Table.REPLENISHMENT_REQUESTS, Journal.Op.SET, lines));
+        } finally {
+            inventoryWriter.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the replenishment requests awaiting approval.
+     *
+     * @return Unmodifiable copy of the list of requests.
+     */
+    public List<ReplenishmentRequest> getReplenishmentRequests() {
+        return requestsLock.read(() -> Collections.unmodifiableList(new ArrayList<>(replenishmentRequests)));
+    }
+
+    /**
+     * Removes a replenishment request once it is approved or rejected.
+     * Call saveReplenishmentRequests to persist the removal.
+     *
+     * @param request The request to remove.
+     * @return True if the request was still waiting, false if it was already removed.
+     */
+    public boolean removeReplenishmentRequest(ReplenishmentRequest request) {
+        inventoryWriter.lock();
+        try {
+            return requestsLock.write(() -> {
+                boolean removed = replenishmentRequests.removeIf(r -> r == request);
+                if (removed) {
+                    markChanged(Journal.Table.REPLENISHMENT_REQUESTS);
+                }
+                return removed;
+            });
+        } finally {
+            inventoryWriter.unlock();
+        }
     }
 
 
@@ -0,0 +1,119 @@
+package db;
+
+import items.appointments.Appointment;
+import items.medical_records.MedicalRecord;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Transaction
+ * Changes to several tables of TextDB made and persisted as one unit.
+ *
+ * Changes are staged as functions and take effect only when the transaction is
+ * committed; the stored entities are not touched before then. Committing locks the
+ * writers of every patient involved and the tables, checks that every staged entity
+ * exists, and only then applies each change to the stored entity itself, so objects
+ * that refer to it see the change. The changes are then journaled as one group with
+ * a single write, so after a crash they are replayed all or not at all.
+ */
+public final class Transaction {
+    private final TextDB textDB;                                    /**< Database the changes are committed to. */
+    private final List<Change<String, MedicalRecord>> medicalRecords = new ArrayList<>(); /**< Changes to medical records by patient ID, in order. */
+    private final List<Change<Appointment, Appointment>> appointments = new ArrayList<>(); /**< Changes to appointments, in order. */
+    private boolean committed;                                      /**< True once commit has been called. */
+
+    /**
+     * Constructs an empty transaction; see TextDB.beginTransaction.
+     *
+     * @param textDB Database the changes are committed to.
+     */
+    Transaction(TextDB textDB) {
+        this.textDB = textDB;
+    }
+
+    /**
+     * Stages a change to a patient's medical record.
+     *
+     * @param patientId Hospital ID of the patient whose record is changed.
+     * @param change    Applied at commit to the stored record; must not throw.
+     */
+    public void updateMedicalRecord(String patientId, Consumer<MedicalRecord> change) {
+        checkOpen();
+        medicalRecords.add(new Change<>(patientId, change));
+    }
+
+    /**
+     * Stages a change to an appointment.
+     *
+     * @param appointment Appointment to change; only its ID and patient are used.
+     * @param change      Applied at commit to the stored appointment; must not throw.
+     */
+    public void updateAppointment(Appointment appointment, Consumer<Appointment> change) {
+        checkOpen();
+        appointments.add(new Change<>(appointment, change));
+    }
+
+    /**
+     * Applies and persists every staged change.
+     *
+     * @return True if committed. False if a staged entity no longer exists, in which
+     *         case nothing is changed.
+     * @throws IOException If the changes cannot be journaled under the immediate commit
+     *         policy. The changes are then in place in memory, and reach the disk with
+     *         the next save of their tables, but may be lost if the system stops first.
+     */
+    public boolean commit() throws IOException {
+        checkOpen();
+        committed = true;
+        return textDB.commit(this);
+    }
+
+    /**
+     * Gets the staged medical record changes.
+     * @return Unmodifiable list of the changes, keyed by patient ID.
+     */
+    List<Change<String, MedicalRecord>> getMedicalRecords() {
+        return Collections.unmodifiableList(medicalRecords);
+    }
+
+    /**
+     * Gets the staged appointment changes.
+     * @return Unmodifiable list of the changes, keyed by appointment.
+     */
+    List<Change<Appointment, Appointment>> getAppointments() {
+        return Collections.unmodifiableList(appointments);
+    }
+
+    private void checkOpen() {
+        if (committed) {
+            throw new IllegalStateException("Transaction already committed");
+        }
+    }
+
+    /**
+     * One staged change: the entity it applies to and the function applying it.
+     *
+     * @param <K> Type identifying the entity.
+     * @param <T> Type of the entity.
+     */
+    static final class Change<K, T> {
+        private final K key;                 /**< Identifies the entity changed. */
+        private final Consumer<T> change;    /**< Applies the change. */
+
+        Change(K key, Consumer<T> change) {
+            this.key = key;
+            this.change = change;
+        }
+
+        K getKey() {
+            return key;
+        }
+
+        void applyTo(T entity) {
+            change.accept(entity);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import user_classes.User;
+
+/**
+ * UserRegistry
+ * Hash index over the users held by TextDB.
+ *
+ * Users are indexed by their exact hospital ID, and by role and normalized
+ * (case-insensitive) hospital ID for login. Where several users share a key the first
+ * one in the users list wins, the same user a linear scan would have returned.
+ *
+ * The registry does not own the users; TextDB keeps it in step with its users list.
+ */
+public class UserRegistry {
+    private final Map<String, User> byId;                    /**< Users keyed by exact hospital ID. */
+    private final Map<String, Map<String, User>> byRole;     /**< Users keyed by role, then normalized hospital ID. */
+
+    /**
+     * Constructs an empty registry.
+     */
+    public UserRegistry() {
+        this.byId = new HashMap<>();
+        this.byRole = new HashMap<>();
+    }
+
+    /**
+     * Normalizes a hospital ID or role for case-insensitive lookups.
+     *
+     * @param key Hospital ID or role.
+     * @return Normalized key.
+     */
+    public static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Replaces the whole index with the given users.
+     *
+     * @param users Users in list order.
+     */
+    public void rebuild(List<User> users) {
+        byId.clear();
+        byRole.clear();
+        for (User user : users) {
+            add(user);
+        }
+    }
+
+    /**
+     * Indexes a user appended to the end of the users list.
+     *
+     * @param user User to index.
+     */
+    public void add(User user) {
+        byId.putIfAbsent(user.getHospitalID(), user);
+        byRole.computeIfAbsent(roleOf(user), r -> new HashMap<>())
+              .putIfAbsent(normalize(user.getHospitalID()), user);
+    }
+
+    /**
+     * Drops a user that was removed from the users list. If another user shares one
+     * of its keys, the first such user in the list takes its place.
+     *
+     * @param user  Removed user.
+     * @param users Users list after the removal.
+     */
+    public void remove(User user, List<User> users) {
+        String id = user.getHospitalID();
+        if (byId.get(id) == user) {
+            byId.remove(id);
+            for (User other : users) {
+                if (other.getHospitalID().equals(id)) {
+                    byId.put(id, other);
+                    break;
+                }
+            }
+        }
+
+        String role = roleOf(user);
+        String normalizedId = normalize(id);
+        Map<String, User> roleUsers = byRole.get(role);
+        if (roleUsers != null && roleUsers.get(normalizedId) == user) {
+            roleUsers.remove(normalizedId);
+            for (User other : users) {
+                if (roleOf(other).equals(role) && normalize(other.getHospitalID()).equals(normalizedId)) {
+                    roleUsers.put(normalizedId, other);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Points the index at a user object that replaced another at the same position
+     * of the users list.
+     *
+     * @param previous User that was replaced.
+     * @param current  User now at that position.
+     * @param users    Users list after the replacement.
+     */
+    public void replace(User previous, User current, List<User> users) {
+        if (previous != current) {
+            remove(previous, users);
+            add(current);
+        }
+    }
+
+    /**
+     * Finds a user by exact hospital ID.
+     *
+     * @param hospitalID Hospital ID.
+     * @return The user, or null if none has that ID.
+     */
+    public User get(String hospitalID) {
+        return hospitalID != null ? byId.get(hospitalID) : null;
+    }
+
+    /**
+     * Finds a user by role and hospital ID, both compared case-insensitively.
+     *
+     * @param role       Role name, e.g. "Doctor".
+     * @param hospitalID Hospital ID.
+     * @return The user, or null if no user of that role has the ID.
+     */
+    public User get(String role, String hospitalID) {
+        if (role == null || hospitalID == null) {
+            return null;
+        }
+        Map<String, User> roleUsers = byRole.get(normalize(role));
+        return roleUsers != null ? roleUsers.get(normalize(hospitalID)) : null;
+    }
+
+    /**
+     * Gets the role key of a user: its class name, the same value login compares
+     * the selected role with.
+     *
+     * @param user User.
+     * @return Normalized role key.
+     */
+    private static String roleOf(User user) {
+        return normalize(user.getClass().getSimpleName());
+    }
+}
@@ -1,6 +1,7 @@
 package items.appointments;
 
 import items.appointments.appointments_interface.mainAppointmentsInterface;
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -148,14 +149,23 @@ public class Appointment implements mainAppointmentsInterface {
      **********/
 
     /**
-     * Prints the details of the appointment.
+     * Same as {@link #print(PrintStream)} on {@code System.out}.
      */
     public void print() {
-        System.out.println("\nAppointment ID: " + id);
-        System.out.println("Patient ID: " + patientId);
-        System.out.println("Doctor ID: " + doctorId);
-        System.out.println("Time Slot: " + timeSlot.toString());
-        System.out.println("Status: " + status);
-        System.out.println("Outcome Record: " + outcomeRecord);
+        print(System.out);
+    }
+
+    /**
+     * Prints the details of the appointment.
+     *
+     * @param out The stream to print to.
+     */
+    public void print(PrintStream out) {
+        out.println("\nAppointment ID: " + id);
+        out.println("Patient ID: " + patientId);
+        out.println("Doctor ID: " + doctorId);
+        out.println("Time Slot: " + timeSlot.toString());
+        out.println("Status: " + status);
+        out.println("Outcome Record: " + outcomeRecord);
     }
 }
@@ -2,18 +2,47 @@ package items.appointments;
 
 import items.appointments.schedule_interface.mainScheduleInterface;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 /**
  * Schedule
  * The Schedule class manages a doctor's availability across different dates.
+ *
+ * A day whose slots are 30-minute slots on the half-hour grid, in ascending order, is
+ * stored as a bitmap with one bit per slot of the day (bit 0 is 00:00-00:30). Free/busy
+ * checks, removing booked slots and finding the first free slot are then bitwise
+ * operations, and TimeSlot objects are only created when slots are handed out. Any
+ * other day, e.g. one holding longer ranges entered in the doctor menu, keeps its list
+ * of TimeSlots as given.
  */
 public class Schedule implements mainScheduleInterface {
-    // Mapping from date to list of available TimeSlots
-    private Map<LocalDate, List<TimeSlot>> availability; /**< Map to store availability of time slots keyed by date */
+    public static final int SLOT_MINUTES = 30;                          /**< Length of a slot on the grid */
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;     /**< Number of grid slots in a day */
+    public static final long NOT_ON_GRID = -1L;                          /**< Mask value for slots that do not fit the grid */
+
+    /**
+     * Day
+     * Availability of one date: a slot bitmap, or the TimeSlots as given.
+     */
+    private static final class Day {
+        private final long mask;              /**< Bitmap of available grid slots */
+        private final List<TimeSlot> slots;   /**< Available slots of an irregular day, or null for a bitmap day */
+
+        Day(long mask, List<TimeSlot> slots) {
+            this.mask = mask;
+            this.slots = slots;
+        }
+    }
+
+    // Mapping from date to available slots
+    private Map<LocalDate, Day> availability; /**< Map to store availability of time slots keyed by date */
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd"); /**< Formatter for date */
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm"); /**< Formatter for time */
 
@@ -39,7 +68,29 @@ public class Schedule implements mainScheduleInterface {
      * @param timeSlots List of TimeSlot objects representing available times
      */
     public void setAvailability(LocalDate date, List<TimeSlot> timeSlots) {
-        availability.put(date, new ArrayList<>(timeSlots)); // Store the provided time slots for the specified date
+        long mask = 0;
+        int previous = -1;
+        for (TimeSlot slot : timeSlots) {
+            int index = slot != null ? slotIndex(date, slot) : -1;
+            if (index <= previous) {
+                // Not a 30-minute grid slot, or out of order: keep the slots as given
+                availability.put(date, new Day(0, new ArrayList<>(timeSlots)));
+                return;
+            }
+            mask |= 1L << index;
+            previous = index;
+        }
+        availability.put(date, new Day(mask, null));
+    }
+
+    /**
+     * Sets availability for a specific date from a slot bitmap.
+     *
+     * @param date The date for which to set availability
+     * @param mask Bitmap of available slots, bit i being the i-th 30-minute slot of the day
+     */
+    public void setAvailability(LocalDate date, long mask) {
+        availability.put(date, new Day(mask & dayMask(), null));
     }
 
     /**
@@ -49,16 +100,35 @@ public class Schedule implements mainScheduleInterface {
      * @return List of available TimeSlot objects, or an empty list if none are set
      */
     public List<TimeSlot> getAvailableTimeSlots(LocalDate date) {
-        return availability.getOrDefault(date, new ArrayList<>()); // Return available time slots or an empty list if not found
+        Day day = availability.get(date);
+        if (day == null) {
+            return new ArrayList<>(); // No availability set for this date
+        }
+        return day.slots != null ? new ArrayList<>(day.slots) : toTimeSlots(date, day.mask);
     }
 
     /**
-     * Retrieves the entire availability map.
+     * Retrieves the entire availability map. The map is a copy; use setAvailability to
+     * change the schedule.
      *
      * @return Map of dates to lists of available TimeSlots
      */
     public Map<LocalDate, List<TimeSlot>> getAvailability() {
-        return availability; // Return the entire availability map
+        Map<LocalDate, List<TimeSlot>> map = new LinkedHashMap<>();
+        for (LocalDate date : availability.keySet()) {
+            map.put(date, getAvailableTimeSlots(date));
+        }
+        return map;
+    }
+
+    /**
+     * Gets the dates that have availability set, in the order getAvailability lists
+     * them, without creating their TimeSlots.
+     *
+     * @return List of the dates
+     */
+    public List<LocalDate> getDates() {
+        return new ArrayList<>(availability.keySet());
     }
 
     /**
@@ -67,13 +137,172 @@ public class Schedule implements mainScheduleInterface {
      * @param availability Map of dates to lists of available TimeSlots
      */
     public void setAvailabilityMap(Map<LocalDate, List<TimeSlot>> availability) {
-        this.availability = availability; // Update the availability map with the provided one
+        this.availability = new HashMap<>();
+        for (Map.Entry<LocalDate, List<TimeSlot>> entry : availability.entrySet()) {
+            setAvailability(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the slot bitmap of a date.
+     *
+     * @param date The date
+     * @return Bitmap of available slots, 0 if none are set, or NOT_ON_GRID if the
+     *         date holds slots that do not fit the 30-minute grid
+     */
+    public long getSlotMask(LocalDate date) {
+        Day day = availability.get(date);
+        if (day == null) {
+            return 0;
+        }
+        return day.slots != null ? NOT_ON_GRID : day.mask;
     }
 
     /**********
      * Methods *
      **********/
 
+    /**
+     * Checks whether any slot is available on a date.
+     *
+     * @param date The date
+     * @return True if at least one slot is set for the date
+     */
+    public boolean hasAvailability(LocalDate date) {
+        Day day = availability.get(date);
+        if (day == null) {
+            return false;
+        }
+        return day.slots != null ? !day.slots.isEmpty() : day.mask != 0;
+    }
+
+    /**
+     * Checks whether a slot is available on a date and not taken by a booked slot.
+     * Slots match when their start and end times are equal.
+     *
+     * @param date   The date
+     * @param slot   The slot to check
+     * @param booked Slots already taken on the date
+     * @return True if the slot is free
+     */
+    public boolean isFree(LocalDate date, TimeSlot slot, Collection<TimeSlot> booked) {
+        Day day = availability.get(date);
+        if (day == null) {
+            return false;
+        }
+        if (day.slots != null) {
+            return day.slots.contains(slot) && !booked.contains(slot);
+        }
+        int index = slotIndex(date, slot);
+        return index >= 0 && (freeMask(date, day.mask, booked) & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets the available slots of a date that are not taken by booked slots, in
+     * schedule order.
+     *
+     * @param date   The date
+     * @param booked Slots already taken on the date
+     * @return Free slots, or an empty list if none are left
+     */
+    public List<TimeSlot> getFreeTimeSlots(LocalDate date, Collection<TimeSlot> booked) {
+        Day day = availability.get(date);
+        if (day == null) {
+            return new ArrayList<>();
+        }
+        if (day.slots != null) {
+            List<TimeSlot> free = new ArrayList<>();
+            for (TimeSlot slot : day.slots) {
+                if (!booked.contains(slot)) {
+                    free.add(slot);
+                }
+            }
+            return free;
+        }
+        return toTimeSlots(date, freeMask(date, day.mask, booked));
+    }
+
+    /**
+     * Gets the bitmap of the available slots of a date that are not taken by booked
+     * slots.
+     *
+     * @param date   The date
+     * @param booked Slots already taken on the date
+     * @return Bitmap of the free slots, or NOT_ON_GRID if the date holds slots that do
+     *         not fit the 30-minute grid
+     */
+    public long getFreeSlotMask(LocalDate date, Collection<TimeSlot> booked) {
+        Day day = availability.get(date);
+        if (day == null) {
+            return 0;
+        }
+        return day.slots != null ? NOT_ON_GRID : freeMask(date, day.mask, booked);
+    }
+
+    /**
+     * Finds the first available slot of a date that is not taken by a booked slot.
+     *
+     * @param date   The date
+     * @param booked Slots already taken on the date
+     * @return The first free slot, or null if none is left
+     */
+    public TimeSlot getFirstFreeTimeSlot(LocalDate date, Collection<TimeSlot> booked) {
+        Day day = availability.get(date);
+        if (day == null) {
+            return null;
+        }
+        if (day.slots != null) {
+            for (TimeSlot slot : day.slots) {
+                if (!booked.contains(slot)) {
+                    return slot;
+                }
+            }
+            return null;
+        }
+        long free = freeMask(date, day.mask, booked);
+        return free != 0 ? toTimeSlot(date, Long.numberOfTrailingZeros(free)) : null;
+    }
+
+    /**
+     * Gets the bitmap of the grid slots a time range splits into: consecutive
+     * 30-minute slots from the start time for as long as they end by the end time.
+     *
+     * @param startTime Start of the range
+     * @param endTime   End of the range
+     * @return Bitmap of the slots, or NOT_ON_GRID if the start time is not on the
+     *         half-hour grid or the range ends before 00:30 or before it starts
+     */
+    public static long rangeMask(LocalTime startTime, LocalTime endTime) {
+        int start = startTime.toSecondOfDay();
+        int end = endTime.toSecondOfDay();
+        int slotSeconds = SLOT_MINUTES * 60;
+        if (startTime.getNano() != 0 || start % slotSeconds != 0 || end < start || end < slotSeconds) {
+            return NOT_ON_GRID;
+        }
+        int count = (end - start) / slotSeconds;
+        return count == 0 ? 0 : ((1L << count) - 1) << (start / slotSeconds);
+    }
+
+    /**
+     * Gets the grid index of a slot on a date.
+     *
+     * @param date The date
+     * @param slot The slot
+     * @return Index of the slot in the day, or -1 if it is not a 30-minute grid slot of the date
+     */
+    public static int slotIndex(LocalDate date, TimeSlot slot) {
+        LocalDateTime start = slot.getStartTime();
+        if (start == null || slot.getEndTime() == null || !start.toLocalDate().equals(date)
+                || !slot.getEndTime().equals(start.plusMinutes(SLOT_MINUTES))) {
+            return -1;
+        }
+        int second = start.toLocalTime().toSecondOfDay();
+        if (start.getNano() != 0 || second % (SLOT_MINUTES * 60) != 0) {
+            return -1;
+        }
+        return second / (SLOT_MINUTES * 60);
+    }
+
     /**
      * Provides a string representation of the Schedule.
      *
@@ -83,8 +312,8 @@ public class Schedule implements mainScheduleInterface {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Schedule:\n");
-        for (Map.Entry<LocalDate, List<TimeSlot>> entry : availability.entrySet()) {
-            sb.append("Date: ").append(entry.getKey().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))).append("\n");
+        for (Map.Entry<LocalDate, List<TimeSlot>> entry : getAvailability().entrySet()) {
+            sb.append("Date: ").append(entry.getKey().format(DATE_FORMATTER)).append("\n");
             for (TimeSlot slot : entry.getValue()) {
                 sb.append("  ").append(slot.getStartTime().toLocalTime().format(TIME_FORMATTER))
                 .append(" - ").append(slot.getEndTime().toLocalTime().format(TIME_FORMATTER))
@@ -94,5 +323,44 @@ public class Schedule implements mainScheduleInterface {
         return sb.toString(); // Return the constructed string representation of the schedule
     }
 
+    /**
+     * Clears the bits of booked grid slots from a bitmap.
+     */
+    private static long freeMask(LocalDate date, long mask, Collection<TimeSlot> booked) {
+        for (TimeSlot slot : booked) {
+            int index = slot != null ? slotIndex(date, slot) : -1;
+            if (index >= 0) {
+                mask &= ~(1L << index);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Creates the TimeSlots of the set bits of a slot bitmap, in time order.
+     *
+     * @param date The date of the slots
+     * @param mask Bitmap of slots, bit i being the i-th 30-minute slot of the day
+     * @return The slots
+     */
+    public static List<TimeSlot> toTimeSlots(LocalDate date, long mask) {
+        List<TimeSlot> slots = new ArrayList<>(Long.bitCount(mask));
+        while (mask != 0) {
+            int index = Long.numberOfTrailingZeros(mask);
+            slots.add(toTimeSlot(date, index));
+            mask &= mask - 1;
+        }
+        return slots;
+    }
+
+    private static TimeSlot toTimeSlot(LocalDate date, int index) {
+        LocalDateTime start = date.atStartOfDay().plusMinutes((long) index * SLOT_MINUTES);
+        return new TimeSlot(start, start.plusMinutes(SLOT_MINUTES), true);
+    }
+
+    private static long dayMask() {
+        return (1L << SLOTS_PER_DAY) - 1;
+    }
+
     // Additional methods can be added here as needed
 }
@@ -1,5 +1,6 @@
 package items.medical_records;
 
+import java.io.PrintStream;
 import java.time.LocalDate;
 
 /**
@@ -95,18 +96,27 @@ public class Diagnosis {
         this.comments = comments;
     }
 
+    /**
+     * Same as {@link #printDiagnosedIllnessWithComments(PrintStream)} on {@code System.out}.
+     */
+    public void printDiagnosedIllnessWithComments() {
+        printDiagnosedIllnessWithComments(System.out);
+    }
+
     /**
      * Prints the diagnosed illness details along with any associated comments.
      *
      * This method outputs the description, date, and comments (if any) related to the diagnosis.
+     *
+     * @param out The stream to print to.
      */
-    public void printDiagnosedIllnessWithComments() {
-        System.out.println("Diagnosis: " + description);
-        System.out.println("Date: " + date);
+    public void printDiagnosedIllnessWithComments(PrintStream out) {
+        out.println("Diagnosis: " + description);
+        out.println("Date: " + date);
         if (comments != null && !comments.trim().isEmpty()) {
-            System.out.println("Comments: " + comments);
+            out.println("Comments: " + comments);
         }
-        System.out.println("-------------------------");
+        out.println("-------------------------");
     }
 
     /**********
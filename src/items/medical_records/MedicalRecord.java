@@ -1,6 +1,7 @@
 package items.medical_records;
 
 import items.Prescription;
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -230,45 +231,54 @@ public class MedicalRecord {
      * Methods *
      **********/
 
+    /**
+     * Same as {@link #display(PrintStream)} on {@code System.out}.
+     */
+    public void display() {
+        display(System.out);
+    }
+
     /**
      * Displays the complete medical record details.
      *
      * This method prints out all patient information, past diagnoses, and treatments.
+     *
+     * @param out The stream to print to.
      */
-    public void display() {
+    public void display(PrintStream out) {
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        System.out.println("--------------------------------------------------");
-        System.out.println("               Medical Record");
-        System.out.println("--------------------------------------------------");
-        System.out.println("Patient ID       : " + patientID);
-        System.out.println("Name             : " + name);
-        System.out.println("Date of Birth    : " + dateOfBirth.format(dateFormatter));
-        System.out.println("Gender           : " + gender);
-        System.out.println("Contact Information:");
-        System.out.println("  Phone Number   : " + contactInformation.getPhoneNumber());
-        System.out.println("  Email Address  : " + contactInformation.getEmailAddress());
-        System.out.println("Blood Type       : " + (bloodType != null ? bloodType : "N/A"));
-        System.out.println();
+        out.println("--------------------------------------------------");
+        out.println("               Medical Record");
+        out.println("--------------------------------------------------");
+        out.println("Patient ID       : " + patientID);
+        out.println("Name             : " + name);
+        out.println("Date of Birth    : " + dateOfBirth.format(dateFormatter));
+        out.println("Gender           : " + gender);
+        out.println("Contact Information:");
+        out.println("  Phone Number   : " + contactInformation.getPhoneNumber());
+        out.println("  Email Address  : " + contactInformation.getEmailAddress());
+        out.println("Blood Type       : " + (bloodType != null ? bloodType : "N/A"));
+        out.println();
 
-        System.out.println("Past Diagnoses:");
+        out.println("Past Diagnoses:");
         if (pastDiagnoses == null || pastDiagnoses.isEmpty()) {
-            System.out.println("  - No past diagnoses recorded.");
+            out.println("  - No past diagnoses recorded.");
         } else {
             for (Diagnosis diag : pastDiagnoses) {
-                System.out.println("  - " + diag.getDescription() + " (Date: " + diag.getDate().format(dateFormatter) + ")");
+                out.println("  - " + diag.getDescription() + " (Date: " + diag.getDate().format(dateFormatter) + ")");
             }
         }
-        System.out.println();
+        out.println();
 
-        System.out.println("Past Treatments:");
+        out.println("Past Treatments:");
         if (pastTreatments == null || pastTreatments.isEmpty()) {
-            System.out.println("  - No past treatments recorded.");
+            out.println("  - No past treatments recorded.");
         } else {
             for (Treatment treat : pastTreatments) {
-                treat.display();
+                treat.display(out);
             }
         }
-        System.out.println();
+        out.println();
     }
 
     /**
@@ -1,5 +1,6 @@
 package items.medical_records;
 
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -135,30 +136,48 @@ public class Treatment {
      **********/
 
     /**
-     * Prints all prescribed medicines with their details.
+     * Same as {@link #printAllPrescribedMedicine(PrintStream)} on {@code System.out}.
      */
     public void printAllPrescribedMedicine() {
+        printAllPrescribedMedicine(System.out);
+    }
+
+    /**
+     * Prints all prescribed medicines with their details.
+     *
+     * @param out The stream to print to.
+     */
+    public void printAllPrescribedMedicine(PrintStream out) {
         if (allPrescribedMedicine.isEmpty()) {
-            System.out.println("No medications prescribed."); // Inform if no medications are prescribed
+            out.println("No medications prescribed."); // Inform if no medications are prescribed
             return;
         }
-        System.out.println("Prescribed Medications:");
+        out.println("Prescribed Medications:");
         for (Prescription p : allPrescribedMedicine) {
-            System.out.println("- " + p.getMedicationName() + " | Status: " + p.getStatus()); // Print each prescribed medication
+            out.println("- " + p.getMedicationName() + " | Status: " + p.getStatus()); // Print each prescribed medication
         }
-        System.out.println("-------------------------");
+        out.println("-------------------------");
     }
 
     /**
-     * Prints the treatment comments.
+     * Same as {@link #printTreatmentComments(PrintStream)} on {@code System.out}.
      */
     public void printTreatmentComments() {
+        printTreatmentComments(System.out);
+    }
+
+    /**
+     * Prints the treatment comments.
+     *
+     * @param out The stream to print to.
+     */
+    public void printTreatmentComments(PrintStream out) {
         if (treatmentComments == null || treatmentComments.trim().isEmpty()) {
-            System.out.println("No treatment comments."); // Inform if no comments are present
+            out.println("No treatment comments."); // Inform if no comments are present
             return;
         }
-        System.out.println("Treatment Comments: " + treatmentComments); // Print treatment comments
-        System.out.println("-------------------------");
+        out.println("Treatment Comments: " + treatmentComments); // Print treatment comments
+        out.println("-------------------------");
     }
 
     /**
@@ -238,30 +257,39 @@ public class Treatment {
     }
 
     /**
-     * Displays the Treatment details including Doctor ID.
+     * Same as {@link #display(PrintStream)} on {@code System.out}.
      */
     public void display() {
+        display(System.out);
+    }
+
+    /**
+     * Displays the Treatment details including Doctor ID.
+     *
+     * @param out The stream to print to.
+     */
+    public void display(PrintStream out) {
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        System.out.println("  ------------------------------------------------");
-        System.out.println("    Service Type        : " + (serviceType != null ? serviceType : "N/A")); // Display service type
-        System.out.println("    Date of Appointment  : " + (dateOfAppointment != null ? dateOfAppointment.format(dateFormatter) : "N/A")); // Display date of appointment
+        out.println("  ------------------------------------------------");
+        out.println("    Service Type        : " + (serviceType != null ? serviceType : "N/A")); // Display service type
+        out.println("    Date of Appointment  : " + (dateOfAppointment != null ? dateOfAppointment.format(dateFormatter) : "N/A")); // Display date of appointment
         
         // Prescribed Medications
-        System.out.println("    Prescribed Medications:");
+        out.println("    Prescribed Medications:");
         if (allPrescribedMedicine == null || allPrescribedMedicine.isEmpty()) {
-            System.out.println("      - NULL"); // Inform if no medications are prescribed
+            out.println("      - NULL"); // Inform if no medications are prescribed
         } else {
             for (Prescription presc : allPrescribedMedicine) {
-                System.out.println("      - " + presc.getMedicationName() + " | Status: " + presc.getStatus()); // Print each prescribed medication
+                out.println("      - " + presc.getMedicationName() + " | Status: " + presc.getStatus()); // Print each prescribed medication
             }
         }
 
         // Treatment Comments
-        System.out.println("    Consultation Notes   : " + (treatmentComments != null && !treatmentComments.trim().isEmpty() ? treatmentComments : "None")); // Display comments
+        out.println("    Consultation Notes   : " + (treatmentComments != null && !treatmentComments.trim().isEmpty() ? treatmentComments : "None")); // Display comments
         
         // Display Doctor ID
-        System.out.println("    Doctor ID            : " + (doctorId != null ? doctorId : "N/A")); // Display doctor ID
-        System.out.println("  ------------------------------------------------");
+        out.println("    Doctor ID            : " + (doctorId != null ? doctorId : "N/A")); // Display doctor ID
+        out.println("  ------------------------------------------------");
     }
 
     /**
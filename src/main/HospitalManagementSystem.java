@@ -2,35 +2,57 @@ package main;
 
 import db.TextDB;
 import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.List;
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import menus.*;
+import services.UserService;
 import user_classes.*;
 
 /**
  * Entry point for the Hospital Management System application.
  */
 public final class HospitalManagementSystem {
-	private static final String DEFAULT_PASSWORD = "password";
     public static void main(String[] args) throws IOException {
+        // Serve terminals over the network instead of the console
+        if (args.length > 0 && args[0].equals("--server")) {
+            HospitalServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         TextDB textDB = TextDB.getInstance();
 
+        runSession(scanner, System.out, textDB);
+
+        scanner.close();
+    }
+    /**
+     * Runs the login loop for one user until they choose to exit.
+     *
+     * The console and every network session run this same loop, each with
+     * its own input and output.
+     *
+     * @param scanner Scanner reading the user's input.
+     * @param out     Stream the prompts and results are printed to.
+     * @param textDB  Database instance shared by all sessions.
+     * @throws IOException If an error occurs while handling a menu.
+     */
+    static void runSession(Scanner scanner, PrintStream out, TextDB textDB) throws IOException {
         boolean systemRunning = true;
 
         // Main system loop
         while (systemRunning) {
-            System.out.println("\n=== Welcome to the Hospital Management System ===");
-            System.out.println("1. Administrator Login");
-            System.out.println("2. Doctor Login");
-            System.out.println("3. Pharmacist Login");
-            System.out.println("4. Patient Login");
-            System.out.println("5. Save Changes");
-            System.out.println("6. Exit");
-            System.out.print("Please select your role (1-6): ");
+            out.println("\n=== Welcome to the Hospital Management System ===");
+            out.println("1. Administrator Login");
+            out.println("2. Doctor Login");
+            out.println("3. Pharmacist Login");
+            out.println("4. Patient Login");
+            out.println("5. Save Changes");
+            out.println("6. Exit");
+            out.print("Please select your role (1-6): ");
 
             String input = scanner.nextLine();
             int choice;
@@ -38,7 +60,7 @@ public final class HospitalManagementSystem {
             try {
                 choice = Integer.parseInt(input);
             } catch (NumberFormatException e) {
-                System.out.println("Invalid input! Please enter a number between 1 and 6.");
+                out.println("Invalid input! Please enter a number between 1 and 6.");
                 continue;
             }
 
@@ -46,69 +68,43 @@ public final class HospitalManagementSystem {
             switch (choice) {
                 case 1:
                     // Administrator Login
-                    handleLogin(scanner, textDB, "Administrator");
+                    handleLogin(scanner, out, textDB, "Administrator");
                     break;
                 case 2:
                     // Doctor Login
-                    handleLogin(scanner, textDB, "Doctor");
+                    handleLogin(scanner, out, textDB, "Doctor");
                     break;
                 case 3:
                     // Pharmacist Login
-                    handleLogin(scanner, textDB, "Pharmacist");
+                    handleLogin(scanner, out, textDB, "Pharmacist");
                     break;
                 case 4:
                     // Patient Login
-                    handleLogin(scanner, textDB, "Patient");
+                    handleLogin(scanner, out, textDB, "Patient");
                     break;
                 case 5:
                     // Save Changes
                     try {
-                        TextDB.saveToFile("users.txt");
-                        System.out.println("Changes saved successfully!");
+                        // Wait for the journal and every queued table rewrite too, not just users.txt
+                        CompletableFuture<Void> users = TextDB.saveToFile("users.txt");
+                        CompletableFuture.allOf(users, textDB.whenDurable()).join();
+                        out.println("Changes saved successfully!");
                     } catch (IOException e) {
-                        System.out.println("Error saving user file: " + e.getMessage());
+                        out.println("Error saving user file: " + e.getMessage());
+                    } catch (CompletionException e) {
+                        out.println("Error saving user file: " + e.getCause().getMessage());
                     }
                     break;
                 case 6:
                     // Exit
-                    System.out.println("Exiting system...");
+                    out.println("Exiting system...");
                     systemRunning = false;
                     break;
                 default:
-                    System.out.println("Invalid choice! Please select a number between 1 and 6.");
+                    out.println("Invalid choice! Please select a number between 1 and 6.");
                     break;
             }
         }
-
-        scanner.close();
-    }
-    /**
-     * Checks if the provided password hash matches the default password for a given hospital ID.
-     *
-     * @param hospitalID   The hospital ID associated with the user.
-     * @param passwordHash The hashed password to verify.
-     * @return True if the password hash matches the default password, false otherwise.
-     */
-    private static boolean isDefaultPassword(String hospitalID, String passwordHash) {
-        return passwordHash.equals(hashPassword(hospitalID, DEFAULT_PASSWORD));
-    }
-    /**
-     * Generates a SHA-256 hash for the combination of hospital ID and password.
-     *
-     * @param hospitalID The hospital ID associated with the user.
-     * @param password   The plain text password to be hashed.
-     * @return The base64-encoded hash of the combined hospital ID and password.
-     * @throws RuntimeException If the hashing algorithm is not found.
-     */
-    private static String hashPassword(String hospitalID, String password) {
-        String combined = hospitalID + password;
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = digest.digest(combined.getBytes());
-            return Base64.getEncoder().encodeToString(hashedBytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hashing algorithm not found", e);
-        }
     }
     /**
      * Prompts the user to update their password and saves the new hashed password.
@@ -116,128 +112,107 @@ public final class HospitalManagementSystem {
      * The method continuously prompts the user until they enter matching passwords.
      *
      * @param scanner A Scanner object to read input from the user.
+     * @param out     The stream to prompt the user on.
      * @param user    The user whose password is to be updated.
      * @throws IOException If an error occurs during user input or saving the password.
      */
-    private static void updatePassword(Scanner scanner, User user) throws IOException {
+    private static void updatePassword(Scanner scanner, PrintStream out, UserService userService, User user) throws IOException {
         String newPassword;
         while (true) {
-            System.out.print("Enter new password: ");
+            out.print("Enter new password: ");
             newPassword = scanner.nextLine();
-            System.out.print("Confirm new password: ");
+            out.print("Confirm new password: ");
             String confirmPassword = scanner.nextLine();
             if (newPassword.equals(confirmPassword)) {
                 break;
             } else {
-                System.out.println("Passwords do not match. Try again.");
+                out.println("Passwords do not match. Try again.");
             }
         }
 
         // Update user's password hash
-        String newHashedPassword = hashPassword(user.getHospitalID(), newPassword);
-        user.setPassword(newHashedPassword);
-        System.out.println("Password updated successfully!");
+        userService.setPassword(user, newPassword);
+        out.println("Password updated successfully!");
     }
     /**
      * Handles the login process for a specific role.
      * 
      * @param scanner   Scanner instance for input.
+     * @param out       Stream to print to.
      * @param textDB    Database instance.
      * @param role      Role of the user attempting to log in.
      */
-    private static void handleLogin(Scanner scanner, TextDB textDB, String role) throws IOException {
-        System.out.print("Enter Hospital ID: ");
+    private static void handleLogin(Scanner scanner, PrintStream out, TextDB textDB, String role) throws IOException {
+        out.print("Enter Hospital ID: ");
         String inputHospitalID = scanner.nextLine();
-        System.out.print("Enter Password: ");
+        out.print("Enter Password: ");
         String inputPass = scanner.nextLine();
 
-        User user = getUserByRoleAndID(textDB.getUsers(), role, inputHospitalID);
-        
-        if (user != null) {
-            String hashedInputPassword = hashPassword(inputHospitalID, inputPass);
-
-            if (user.getPassword().equals(hashedInputPassword)) {
-                System.out.println(role + " logged in successfully!");
+        UserService userService = new UserService(textDB);
+        User user = userService.authenticate(role, inputHospitalID, inputPass);
 
-                // Check if the password is the default
-                if (isDefaultPassword(inputHospitalID, hashedInputPassword)) {
-                    System.out.println("Your password is the default. Please change your password.");
-                    updatePassword(scanner, user);
-                }
+        if (user != null) {
+            out.println(role + " logged in successfully!");
 
-                navigateToMenu(scanner, user, textDB);
-            } else {
-                System.out.println("Invalid Hospital ID or Password!");
+            // Check if the password is the default
+            if (userService.hasDefaultPassword(user)) {
+                out.println("Your password is the default. Please change your password.");
+                updatePassword(scanner, out, userService, user);
             }
+
+            navigateToMenu(scanner, out, user, textDB);
         } else {
-            System.out.println("Invalid Hospital ID or Password!");
+            out.println("Invalid Hospital ID or Password!");
         }
         /*
         if (user != null && user.getPassword().equals(inputPass)) {
-            System.out.println(role + " logged in successfully!");
-            navigateToMenu(scanner, user, textDB);
+            out.println(role + " logged in successfully!");
+            navigateToMenu(scanner, out, user, textDB);
         } else {
-            System.out.println("Invalid Hospital ID or Password!");
+            out.println("Invalid Hospital ID or Password!");
         }
         */
     }
 
-    /**
-     * Retrieves a user by role and hospital ID.
-     * 
-     * @param userList    List of all users in the system.
-     * @param role        Role of the user to find.
-     * @param hospitalID  Hospital ID of the user to find.
-     * @return            User object if a match is found, null otherwise.
-     */
-    private static User getUserByRoleAndID(List<User> userList, String role, String hospitalID) {
-        for (User user : userList) {
-            if (user.getClass().getSimpleName().equalsIgnoreCase(role) &&
-                user.getHospitalID().equalsIgnoreCase(hospitalID)) {
-                return user; // Return the matching user
-            }
-        }
-        return null; // No matching user found
-    }
-
     /**
      * Navigates to the appropriate menu based on the user's role.
      * 
      * @param scanner Scanner instance for input.
+     * @param out     Stream the menu prints to.
      * @param user    User who has logged in.
      * @param textDB  Database instance.
      */
-    private static void navigateToMenu(Scanner scanner, User user, TextDB textDB) {
+    private static void navigateToMenu(Scanner scanner, PrintStream out, User user, TextDB textDB) {
         if (user instanceof Administrator) {
-            AdministratorMenu adminMenu = new AdministratorMenu(textDB);
+            AdministratorMenu adminMenu = new AdministratorMenu(textDB, out);
             try {
                 adminMenu.showMenu(scanner, (Administrator) user);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         } else if (user instanceof Doctor) {
-            DoctorMenu doctorMenu = new DoctorMenu(textDB);
+            DoctorMenu doctorMenu = new DoctorMenu(textDB, out);
             try {
                 doctorMenu.showMenu(scanner, (Doctor) user);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         } else if (user instanceof Pharmacist) {
-            PharmacistMenu pharmacistMenu = new PharmacistMenu(textDB);
+            PharmacistMenu pharmacistMenu = new PharmacistMenu(textDB, out);
             try {
                 pharmacistMenu.showMenu(scanner, (Pharmacist) user);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         } else if (user instanceof Patient) {
-            PatientMenu patientMenu = new PatientMenu(textDB);
+            PatientMenu patientMenu = new PatientMenu(textDB, out);
             try {
                 patientMenu.showMenu(scanner, (Patient) user);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         } else {
-            System.out.println("Unknown role. Access denied.");
+            out.println("Unknown role. Access denied.");
         }
     }
 }
@@ -0,0 +1,202 @@
+package main;
+
+import db.TextDB;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HospitalServer
+ * Serves the hospital management system to many terminals at once.
+ *
+ * Every TCP connection (for example from telnet or netcat) is a session
+ * that runs the same login and menu loop as the console, against the shared
+ * TextDB. A session reads from and prints to its own connection, so a slow
+ * terminal only holds up its own session.
+ *
+ * Each session has its own thread, which is blocked on the connection while
+ * the user is idle. Virtual threads are used when the runtime provides them;
+ * otherwise sessions run on platform threads with a small stack.
+ */
+public final class HospitalServer {
+    /** Port used when none is given. */
+    private static final int DEFAULT_PORT = 5050;
+
+    /** Connections waiting to be accepted before new ones are refused. */
+    private static final int ACCEPT_BACKLOG = 1024;
+
+    /** Stack size of platform session threads; the menus recurse very little. */
+    private static final long SESSION_STACK_SIZE = 256 * 1024;
+
+    /** Socket buffer for a session's output, flushed before each read. */
+    private static final int OUTPUT_BUFFER_SIZE = 4096;
+
+    /** A session idle for this long is disconnected; 0 waits forever. */
+    private final int idleTimeoutMillis = Integer.getInteger("hms.server.idleTimeoutMillis", 30 * 60 * 1000);
+
+    /** The socket sessions are accepted on. */
+    private final ServerSocket serverSocket;
+
+    /** The database shared by all sessions. */
+    private final TextDB textDB;
+
+    /** Runs one task per session. */
+    private final ExecutorService sessions = newSessionExecutor();
+
+    /** Number of sessions currently connected. */
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    /**
+     * Opens the server socket.
+     * @param port The port to listen on, or 0 for any free port.
+     * @param textDB The database shared by all sessions.
+     * @throws IOException If the port cannot be bound.
+     */
+    public HospitalServer(int port, TextDB textDB) throws IOException {
+        this.serverSocket = new ServerSocket(port, ACCEPT_BACKLOG);
+        this.textDB = textDB;
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of connected sessions.
+     * @return The number of sessions.
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Accepts connections and starts a session for each until the server is closed.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // The server socket was closed
+                break;
+            } catch (IOException e) {
+                System.err.println("Error accepting connection: " + e.getMessage());
+                continue;
+            }
+            sessions.execute(() -> runSession(socket));
+        }
+    }
+
+    /**
+     * Stops accepting connections. Connected sessions end when their users log out.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sessions.shutdown();
+    }
+
+    /**
+     * Runs the menu loop for one connection and closes it when the user
+     * exits, disconnects or stays idle too long.
+     * @param socket The accepted connection.
+     */
+    private void runSession(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (Socket s = socket) {
+            s.setSoTimeout(idleTimeoutMillis);
+            s.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(s.getOutputStream(), OUTPUT_BUFFER_SIZE), false);
+            InputStream in = flushingInput(s.getInputStream(), out);
+
+            try {
+                HospitalManagementSystem.runSession(new Scanner(in), out, textDB);
+            } catch (NoSuchElementException e) {
+                // The terminal disconnected or the session timed out
+            } finally {
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Session error: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wraps a session's input so the pending output, such as a prompt, is
+     * sent before the session waits for the user.
+     * @param in The session's input.
+     * @param out The session's output.
+     * @return The input stream to read the session from.
+     */
+    private static InputStream flushingInput(InputStream in, PrintStream out) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                out.flush();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                out.flush();
+                return super.read(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Creates the executor sessions run on: one virtual thread per session
+     * when the runtime supports them, else one small platform thread per session.
+     * @return The session executor.
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Virtual threads are unavailable before Java 21
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(null, r, "session-" + threadNumber.incrementAndGet(), SESSION_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Starts the server.
+     * @param args Optionally the port to listen on; defaults to the
+     *             hms.server.port property or 5050.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("hms.server.port", DEFAULT_PORT);
+        HospitalServer server = new HospitalServer(port, TextDB.getInstance());
+        System.out.println("Hospital Management System listening on port " + server.getPort());
+        server.serve();
+    }
+}
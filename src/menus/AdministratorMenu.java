@@ -1,19 +1,18 @@
 package menus;
 
-import HospitalNotificationSystem.NotifyPharmacist;
 import db.TextDB;
 import items.*;
 import items.appointments.Appointment;
-import items.appointments.Schedule;
 import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Base64;
 import java.util.List;
 import java.util.Scanner;
+import services.AppointmentService;
+import services.PharmacyService;
+import services.UserService;
 import user_classes.*;
 
 /**
@@ -24,14 +23,23 @@ import user_classes.*;
 public final class AdministratorMenu {
 
     private TextDB textDB;
+    private final PrintStream out;
+    private final UserService userService;
+    private final AppointmentService appointmentService;
+    private final PharmacyService pharmacyService;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     /**
      * Constructor to initialize the AdministratorMenu with a database.
      * @param textDB The database object that handles data storage and retrieval.
+     * @param out The stream this menu prints to.
      */
-    public AdministratorMenu(TextDB textDB) {
+    public AdministratorMenu(TextDB textDB, PrintStream out) {
         this.textDB = textDB;
+        this.out = out;
+        this.userService = new UserService(textDB);
+        this.appointmentService = new AppointmentService(textDB);
+        this.pharmacyService = new PharmacyService(textDB);
     }
 
     /**
@@ -44,13 +52,13 @@ public final class AdministratorMenu {
         boolean exit = false;
 
         while (!exit) {
-            System.out.println("\nAdministrator Menu:");
-            System.out.println("1. View and Manage Hospital Staff");
-            System.out.println("2. View Appointments Details");
-            System.out.println("3. View and Manage Medication Inventory");
-            System.out.println("4. Approve Replenishment Requests");
-            System.out.println("5. Logout");
-            System.out.print("Enter your choice: ");
+            out.println("\nAdministrator Menu:");
+            out.println("1. View and Manage Hospital Staff");
+            out.println("2. View Appointments Details");
+            out.println("3. View and Manage Medication Inventory");
+            out.println("4. Approve Replenishment Requests");
+            out.println("5. Logout");
+            out.print("Enter your choice: ");
             
             int choice = getIntInput(scanner);
 
@@ -69,10 +77,10 @@ public final class AdministratorMenu {
                     break;
                 case 5:
                     exit = true;
-                    System.out.println("Logging out...");
+                    out.println("Logging out...");
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -88,13 +96,13 @@ public final class AdministratorMenu {
         boolean back = false;
 
         while (!back) {
-            System.out.println("\nManage Hospital Staff:");
-            System.out.println("1. Add User");
-            System.out.println("2. Remove User");
-            System.out.println("3. View All Users");
-            System.out.println("4. Reset User Password");
-            System.out.println("5. Back");
-            System.out.print("Enter your choice: ");
+            out.println("\nManage Hospital Staff:");
+            out.println("1. Add User");
+            out.println("2. Remove User");
+            out.println("3. View All Users");
+            out.println("4. Reset User Password");
+            out.println("5. Back");
+            out.print("Enter your choice: ");
             
             int choice = getIntInput(scanner);
 
@@ -115,20 +123,10 @@ public final class AdministratorMenu {
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
-    private static String hashPassword(String hospitalID, String password) {
-        String combined = hospitalID + password;
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = digest.digest(combined.getBytes());
-            return Base64.getEncoder().encodeToString(hashedBytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hashing algorithm not found", e);
-        }
-    }
 
     /**
      * Adds a new user to the hospital staff based on role and provided details.
@@ -136,22 +134,21 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void addUser(Scanner scanner) throws IOException {
-        System.out.println("\nAdd New User:");
+        out.println("\nAdd New User:");
 
         String role = getNonEmptyString(scanner, "Enter role (Administrator/Doctor/Pharmacist/Patient): ").toLowerCase();
 
         // Validate role
-        if (!role.equals("administrator") && !role.equals("doctor") && 
-            !role.equals("pharmacist") && !role.equals("patient")) {
-            System.out.println("Invalid role. User not added.");
+        if (!userService.isValidRole(role)) {
+            out.println("Invalid role. User not added.");
             return;
         }
 
         String hospitalID = getNonEmptyString(scanner, "Enter Hospital ID: ");
 
         // Check if Hospital ID already exists
-        if (textDB.getUserByHospitalID(hospitalID) != null) {
-            System.out.println("Hospital ID already exists. User not added.");
+        if (userService.exists(hospitalID)) {
+            out.println("Hospital ID already exists. User not added.");
             return;
         }
 
@@ -160,38 +157,20 @@ public final class AdministratorMenu {
         String gender = getNonEmptyString(scanner, "Enter Gender (Male/Female): ");
         String email = getNonEmptyString(scanner, "Enter Email: ");
         String phone = getNonEmptyString(scanner, "Enter Phone Number: ");
-        String default_password = "password"; // Default password
-        String password = hashPassword(hospitalID, default_password);
-
-        User newUser = null;
 
-        switch (role) {
-            case "administrator":
-                newUser = new Administrator(hospitalID, password, name, dateOfBirth, gender);
-                break;
-            case "doctor":
-                newUser = new Doctor(hospitalID, password, name, dateOfBirth, gender, new Schedule());
-                break;
-            case "pharmacist":
-                newUser = new Pharmacist(hospitalID, password, name, dateOfBirth, gender);
-                break;
-            case "patient":
-                newUser = new Patient(hospitalID, password, name, dateOfBirth, gender);
-                break;
-            default:
-                System.out.println("Invalid role. User not added.");
-                return;
+        // New users get the default password
+        if (userService.addUser(role, hospitalID, name, dateOfBirth, gender) == null) {
+            out.println("Invalid role. User not added.");
+            return;
         }
-
-        textDB.addUser(newUser);
-        System.out.println("User added successfully!");
+        out.println("User added successfully!");
 
         // Save immediately after adding
         try {
-            TextDB.saveToFile("users.txt");
-            System.out.println("Changes saved to file.");
+            userService.saveUsers();
+            out.println("Changes saved to file.");
         } catch (IOException e) {
-            System.out.println("Error saving to file: " + e.getMessage());
+            out.println("Error saving to file: " + e.getMessage());
         }
     }
 
@@ -201,24 +180,21 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void removeUser(Scanner scanner) throws IOException {
-        System.out.println("\nRemove User:");
+        out.println("\nRemove User:");
         String hospitalID = getNonEmptyString(scanner, "Enter Hospital ID of user to remove: ");
 
-        User userToRemove = textDB.getUserByHospitalID(hospitalID);
-
-        if (userToRemove != null) {
-            textDB.removeUser(userToRemove);
-            System.out.println("User removed successfully!");
+        if (userService.removeUser(hospitalID)) {
+            out.println("User removed successfully!");
 
             // Save changes after removal
             try {
-                TextDB.saveToFile("users.txt");
-                System.out.println("Changes saved to file.");
+                userService.saveUsers();
+                out.println("Changes saved to file.");
             } catch (IOException e) {
-                System.out.println("Error saving to file: " + e.getMessage());
+                out.println("Error saving to file: " + e.getMessage());
             }
         } else {
-            System.out.println("User not found.");
+            out.println("User not found.");
         }
     }
 
@@ -226,10 +202,10 @@ public final class AdministratorMenu {
      * Displays a list of all users in the hospital staff.
      */
     private void viewAllUsers() {
-        System.out.println("\nList of All Users:");
-        for (User user : textDB.getUsers()) {
-            System.out.println(user);
-            System.out.println("======================================");
+        out.println("\nList of All Users:");
+        for (User user : userService.getUsers()) {
+            out.println(user);
+            out.println("======================================");
         }
     }
 
@@ -239,17 +215,12 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void resetUserPassword(Scanner scanner) throws IOException {
-        System.out.print("Enter Hospital ID of the user: ");
+        out.print("Enter Hospital ID of the user: ");
         String hospitalID = scanner.nextLine().trim();
-        User user = textDB.getUserByHospitalID(hospitalID);
-        if (user != null) {
-            String newPassword = "password"; // Default password
-            newPassword = hashPassword(hospitalID, newPassword);
-            user.setPassword(newPassword);
-            System.out.println("Password reset successfully for user with Hospital ID: " + hospitalID);
-            textDB.updateUserPassword(user);
+        if (userService.resetPassword(hospitalID)) {
+            out.println("Password reset successfully for user with Hospital ID: " + hospitalID);
         } else {
-            System.out.println("User with Hospital ID " + hospitalID + " not found.");
+            out.println("User with Hospital ID " + hospitalID + " not found.");
         }
     }
 
@@ -263,11 +234,11 @@ public final class AdministratorMenu {
         boolean back = false;
 
         while (!back) {
-            System.out.println("\nView Appointments Details:");
-            System.out.println("1. View All Appointments");
-            System.out.println("2. View Appointment by ID");
-            System.out.println("3. Back");
-            System.out.print("Enter your choice: ");
+            out.println("\nView Appointments Details:");
+            out.println("1. View All Appointments");
+            out.println("2. View Appointment by ID");
+            out.println("3. Back");
+            out.print("Enter your choice: ");
             
             int choice = getIntInput(scanner);
 
@@ -282,7 +253,7 @@ public final class AdministratorMenu {
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -291,16 +262,16 @@ public final class AdministratorMenu {
      * Displays all appointments in the database.
      */
     private void viewAllAppointments() {
-        List<Appointment> appointments = textDB.getAppointments();
+        List<Appointment> appointments = appointmentService.getAppointments();
         if (appointments.isEmpty()) {
-            System.out.println("\nNo appointments found.");
+            out.println("\nNo appointments found.");
             return;
         }
 
-        System.out.println("\nAll Appointments:");
+        out.println("\nAll Appointments:");
         for (Appointment appointment : appointments) {
-            appointment.print();
-            System.out.println("-------------------------");
+            appointment.print(out);
+            out.println("-------------------------");
         }
     }
 
@@ -309,23 +280,23 @@ public final class AdministratorMenu {
      * @param scanner The Scanner object for user input.
      */
     private void viewAppointmentById(Scanner scanner) {
-        System.out.print("Enter Appointment ID to view details: ");
+        out.print("Enter Appointment ID to view details: ");
         String input = scanner.nextLine().trim();
         int appointmentId;
 
         try {
             appointmentId = Integer.parseInt(input);
         } catch (NumberFormatException e) {
-            System.out.println("Invalid Appointment ID format.");
+            out.println("Invalid Appointment ID format.");
             return;
         }
 
-        Appointment appointment = textDB.getAppointmentById(appointmentId);
+        Appointment appointment = appointmentService.getAppointment(appointmentId);
         if (appointment != null) {
-            System.out.println("\nAppointment Details:");
-            appointment.print();
+            out.println("\nAppointment Details:");
+            appointment.print(out);
         } else {
-            System.out.println("Appointment with ID " + appointmentId + " not found.");
+            out.println("Appointment with ID " + appointmentId + " not found.");
         }
     }
 
@@ -340,13 +311,13 @@ public final class AdministratorMenu {
         boolean back = false;
 
         while (!back) {
-            System.out.println("\nManage Medication Inventory:");
-            System.out.println("1. View Inventory");
-            System.out.println("2. Add Medication");
-            System.out.println("3. Update Medication");
-            System.out.println("4. Remove Medication");
-            System.out.println("5. Back");
-            System.out.print("Enter your choice: ");
+            out.println("\nManage Medication Inventory:");
+            out.println("1. View Inventory");
+            out.println("2. Add Medication");
+            out.println("3. Update Medication");
+            out.println("4. Remove Medication");
+            out.println("5. Back");
+            out.print("Enter your choice: ");
             
             int choice = getIntInput(scanner);
 
@@ -367,7 +338,7 @@ public final class AdministratorMenu {
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -376,17 +347,17 @@ public final class AdministratorMenu {
      * Displays the current medication inventory.
      */
     private void viewMedicationInventory() {
-        List<Medication> medications = textDB.getMedications();
+        List<Medication> medications = pharmacyService.getMedications();
         if (medications.isEmpty()) {
-            System.out.println("\nMedication inventory is empty.");
+            out.println("\nMedication inventory is empty.");
             return;
         }
 
-        System.out.println("\nMedication Inventory:");
-        System.out.printf("%-20s %-10s %-20s%n", "Medication Name", "Quantity", "Supplier");
-        System.out.println("-------------------------------------------------------------");
+        out.println("\nMedication Inventory:");
+        out.printf("%-20s %-10s %-20s%n", "Medication Name", "Quantity", "Supplier");
+        out.println("-------------------------------------------------------------");
         for (Medication med : medications) {
-            System.out.printf("%-20s %-10d %-20s%n",
+            out.printf("%-20s %-10d %-20s%n",
                     med.getName(),
                     med.getQuantity(),
                     med.getSupplier() != null ? med.getSupplier() : "N/A");
@@ -399,27 +370,21 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void addMedication(Scanner scanner) throws IOException {
-        System.out.println("\nAdd New Medication:");
+        out.println("\nAdd New Medication:");
         String name = getNonEmptyString(scanner, "Enter Medication Name: ");
 
         // Check if medication already exists
-        for (Medication med : textDB.getMedications()) {
-            if (med.getName().equalsIgnoreCase(name)) {
-                System.out.println("Medication already exists in inventory.");
-                return;
-            }
+        if (pharmacyService.findMedication(name) != null) {
+            out.println("Medication already exists in inventory.");
+            return;
         }
 
         int quantity = getPositiveInt(scanner, "Enter Quantity: ");
         String supplier = getNonEmptyString(scanner, "Enter Supplier Name: ");
 
-        Medication newMedication = new Medication(name, quantity, supplier);
-        textDB.getMedications().add(newMedication);
-        textDB.saveMedicationInventory("inventory.txt");
-        System.out.println("Medication added successfully.");
-
-        // Notify Pharmacist's telegram
-        NotifyPharmacist.getInstance().notifyPharmacistUser("New Medicine called " + newMedication.getName() + " added to inventory");
+        // The pharmacists are notified of the new medication
+        pharmacyService.addMedication(name, quantity, supplier);
+        out.println("Medication added successfully.");
     }
 
     /**
@@ -428,32 +393,24 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void updateMedication(Scanner scanner) throws IOException {
-        System.out.print("Enter Medication Name to update: ");
+        out.print("Enter Medication Name to update: ");
         String name = scanner.nextLine().trim();
 
-        Medication medication = null;
-        for (Medication med : textDB.getMedications()) {
-            if (med.getName().equalsIgnoreCase(name)) {
-                medication = med;
-                break;
-            }
-        }
+        Medication medication = pharmacyService.findMedication(name);
 
         if (medication == null) {
-            System.out.println("Medication not found in inventory.");
+            out.println("Medication not found in inventory.");
             return;
         }
 
-        System.out.println("Current Quantity: " + medication.getQuantity());
+        out.println("Current Quantity: " + medication.getQuantity());
         int newQuantity = getPositiveInt(scanner, "Enter new Quantity: ");
-        medication.setQuantity(newQuantity);
 
-        System.out.println("Current Supplier: " + (medication.getSupplier() != null ? medication.getSupplier() : "N/A"));
+        out.println("Current Supplier: " + (medication.getSupplier() != null ? medication.getSupplier() : "N/A"));
         String newSupplier = getNonEmptyString(scanner, "Enter new Supplier Name: ");
-        medication.setSupplier(newSupplier);
 
-        textDB.updateMedication(medication);
-        System.out.println("Medication updated successfully.");
+        pharmacyService.updateMedication(medication, newQuantity, newSupplier);
+        out.println("Medication updated successfully.");
     }
 
     /**
@@ -462,25 +419,18 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void removeMedication(Scanner scanner) throws IOException {
-        System.out.print("Enter Medication Name to remove: ");
+        out.print("Enter Medication Name to remove: ");
         String name = scanner.nextLine().trim();
 
-        Medication medication = null;
-        for (Medication med : textDB.getMedications()) {
-            if (med.getName().equalsIgnoreCase(name)) {
-                medication = med;
-                break;
-            }
-        }
+        Medication medication = pharmacyService.findMedication(name);
 
         if (medication == null) {
-            System.out.println("Medication not found in inventory.");
+            out.println("Medication not found in inventory.");
             return;
         }
 
-        textDB.getMedications().remove(medication);
-        textDB.saveMedicationInventory("inventory.txt");
-        System.out.println("Medication removed successfully.");
+        pharmacyService.removeMedication(medication);
+        out.println("Medication removed successfully.");
     }
 
     // ----------------------- 4. Approve Replenishment Requests ----------------------- //
@@ -494,12 +444,12 @@ public final class AdministratorMenu {
         boolean back = false;
 
         while (!back) {
-            System.out.println("\nApprove Replenishment Requests:");
-            System.out.println("1. View All Requests");
-            System.out.println("2. Approve a Request");
-            System.out.println("3. Reject a Request");
-            System.out.println("4. Back");
-            System.out.print("Enter your choice: ");
+            out.println("\nApprove Replenishment Requests:");
+            out.println("1. View All Requests");
+            out.println("2. Approve a Request");
+            out.println("3. Reject a Request");
+            out.println("4. Back");
+            out.print("Enter your choice: ");
             
             int choice = getIntInput(scanner);
 
@@ -517,7 +467,7 @@ public final class AdministratorMenu {
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -526,16 +476,16 @@ public final class AdministratorMenu {
      * Displays all replenishment requests awaiting approval.
      */
     private void viewAllReplenishmentRequests() {
-        List<ReplenishmentRequest> requests = textDB.replenishmentRequests;
+        List<ReplenishmentRequest> requests = pharmacyService.getReplenishmentRequests();
         if (requests.isEmpty()) {
-            System.out.println("\nNo replenishment requests found.");
+            out.println("\nNo replenishment requests found.");
             return;
         }
 
-        System.out.println("\nReplenishment Requests:");
+        out.println("\nReplenishment Requests:");
         for (int i = 0; i < requests.size(); i++) {
             ReplenishmentRequest req = requests.get(i);
-            System.out.println((i + 1) + ". Medication: " + req.getMedicationName() +
+            out.println((i + 1) + ". Medication: " + req.getMedicationName() +
                                ", Quantity: " + req.getQuantity() +
                                ", Requested By: " + req.getRequestedBy() +
                                ", Request Date: " + req.getRequestDate().format(DATE_FORMATTER));
@@ -549,55 +499,33 @@ public final class AdministratorMenu {
      * @throws IOException If an error occurs during file operations.
      */
     private void processReplenishmentRequest(Scanner scanner, boolean isApprove) throws IOException {
-        List<ReplenishmentRequest> requests = textDB.replenishmentRequests;
+        List<ReplenishmentRequest> requests = pharmacyService.getReplenishmentRequests();
         if (requests.isEmpty()) {
-            System.out.println("\nNo replenishment requests to process.");
+            out.println("\nNo replenishment requests to process.");
             return;
         }
 
         viewAllReplenishmentRequests();
 
-        System.out.print("Enter the number of the request to " + (isApprove ? "approve" : "reject") + " (or 0 to cancel): ");
+        out.print("Enter the number of the request to " + (isApprove ? "approve" : "reject") + " (or 0 to cancel): ");
         int choice = getIntInput(scanner) - 1;
 
         if (choice == -1 || choice >= requests.size()) {
-            System.out.println("Operation cancelled or invalid selection.");
+            out.println("Operation cancelled or invalid selection.");
             return;
         }
 
-        ReplenishmentRequest selectedRequest = requests.get(choice);
-        String medicationName = selectedRequest.getMedicationName();
-        int quantity = selectedRequest.getQuantity();
-
+        // The processed request is removed and the pharmacists are notified
         if (isApprove) {
-            // Find the medication in inventory
-            Medication medication = null;
-            for (Medication med : textDB.getMedications()) {
-                if (med.getName().equalsIgnoreCase(medicationName)) {
-                    medication = med;
-                    break;
-                }
-            }
-
-            if (medication != null) {
-                medication.setQuantity(medication.getQuantity() + quantity);
-                textDB.updateMedication(medication);
-                System.out.println("Replenishment request approved. Inventory updated.");
-                // Notify Pharmacist's telegram
-                NotifyPharmacist.getInstance().notifyPharmacistUser("Replenishment request for " + medication.getName() + " approved");
+            if (pharmacyService.approveReplenishmentRequest(choice)) {
+                out.println("Replenishment request approved. Inventory updated.");
             } else {
-                System.out.println("Medication not found in inventory. Cannot approve request.");
-                // Notify Pharmacist's telegram
-                NotifyPharmacist.getInstance().notifyPharmacistUser("Replenishment request for " + medication.getName() + " rejected");
-                return;
+                out.println("Medication not found in inventory. Cannot approve request.");
             }
         } else {
-            System.out.println("Replenishment request rejected.");
+            pharmacyService.rejectReplenishmentRequest(choice);
+            out.println("Replenishment request rejected.");
         }
-
-        // Remove the processed request
-        requests.remove(choice);
-        textDB.saveReplenishmentRequests("replenishment_requests.txt");
     }
 
     
@@ -613,9 +541,9 @@ public final class AdministratorMenu {
      * @param admin The Administrator object whose profile is being displayed.
      */
     private void viewProfile(Administrator admin) {
-        System.out.println("\nAdministrator Profile:");
-        System.out.println("ID: " + admin.getHospitalID());
-        System.out.println("Name: " + admin.getName());
+        out.println("\nAdministrator Profile:");
+        out.println("ID: " + admin.getHospitalID());
+        out.println("Name: " + admin.getName());
     }
 
     /**
@@ -631,7 +559,7 @@ public final class AdministratorMenu {
                 input = Integer.parseInt(line);
                 break;
             } catch (NumberFormatException e) {
-                System.out.print("Invalid input! Please enter a number: ");
+                out.print("Invalid input! Please enter a number: ");
             }
         }
         return input;
@@ -645,14 +573,14 @@ public final class AdministratorMenu {
      */
     private int getPositiveInt(Scanner scanner, String string) {
         int input;
-        System.out.println(string);
+        out.println(string);
         while (true) {
             String line = scanner.nextLine();
             try {
                 input = Integer.parseInt(line);
                 break;
             } catch (NumberFormatException e) {
-                System.out.print("Invalid input! Please enter a number: ");
+                out.print("Invalid input! Please enter a number: ");
             }
         }
         return input;
@@ -667,12 +595,12 @@ public final class AdministratorMenu {
     private String getNonEmptyString(Scanner scanner, String prompt) {
         String input;
         while (true) {
-            System.out.print(prompt);
+            out.print(prompt);
             input = scanner.nextLine().trim();
             if (!input.isEmpty()) {
                 break;
             }
-            System.out.println("Input cannot be empty. Please try again.");
+            out.println("Input cannot be empty. Please try again.");
         }
         return input;
     }
@@ -686,13 +614,13 @@ public final class AdministratorMenu {
     private LocalDate getValidDate(Scanner scanner, String prompt) {
         LocalDate date;
         while (true) {
-            System.out.print(prompt);
+            out.print(prompt);
             String input = scanner.nextLine().trim();
             try {
                 date = LocalDate.parse(input, DATE_FORMATTER);
                 break;
             } catch (DateTimeParseException e) {
-                System.out.println("Invalid date format. Please enter date in yyyy-MM-dd format.");
+                out.println("Invalid date format. Please enter date in yyyy-MM-dd format.");
             }
         }
         return date;
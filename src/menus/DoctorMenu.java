@@ -3,18 +3,21 @@ package menus;
 import db.TextDB;
 import items.*;
 import items.appointments.Appointment;
-import items.appointments.Schedule;
 import items.appointments.TimeSlot;
 import items.medical_records.MedicalRecord;
 import items.medical_records.Treatment;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.stream.Collectors;
+import services.AppointmentService;
+import services.MedicalRecordService;
+import services.ScheduleService;
 import user_classes.Doctor;
 
 /**
@@ -24,6 +27,14 @@ import user_classes.Doctor;
 public final class DoctorMenu {
     /** Reference to the database handling text-based storage operations. */
     private TextDB textDB;
+    /** Where this menu prints; the console or a remote session. */
+    private final PrintStream out;
+    /** Appointment requests, upcoming appointments and outcomes. */
+    private final AppointmentService appointmentService;
+    /** Availability for appointments. */
+    private final ScheduleService scheduleService;
+    /** Patients' medical records. */
+    private final MedicalRecordService medicalRecordService;
     /** Date format used for user interaction. */
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     /** Time format used for user interaction. */
@@ -32,9 +43,14 @@ public final class DoctorMenu {
     /**
      * Constructor that initializes the DoctorMenu with the given database.
      * @param textDB The database to interact with for data persistence.
+     * @param out The stream this menu prints to.
      */
-    public DoctorMenu(TextDB textDB) {
+    public DoctorMenu(TextDB textDB, PrintStream out) {
         this.textDB = textDB;
+        this.out = out;
+        this.appointmentService = new AppointmentService(textDB);
+        this.scheduleService = new ScheduleService(textDB);
+        this.medicalRecordService = new MedicalRecordService(textDB);
     }
 
     /**
@@ -47,16 +63,16 @@ public final class DoctorMenu {
         boolean back = false;
 
         while (!back) {
-            System.out.println("\nDoctor Menu:");
-            System.out.println("1. View Patient Medical Records");
-            System.out.println("2. Update Patient Medical Records");
-            System.out.println("3. View Personal Schedule");
-            System.out.println("4. Set Availability for Appointments");
-            System.out.println("5. Accept or Decline Appointment Requests");
-            System.out.println("6. View Upcoming Appointments");
-            System.out.println("7. Record Appointment Outcome");
-            System.out.println("0. Logout");
-            System.out.print("Enter your choice: ");
+            out.println("\nDoctor Menu:");
+            out.println("1. View Patient Medical Records");
+            out.println("2. Update Patient Medical Records");
+            out.println("3. View Personal Schedule");
+            out.println("4. Set Availability for Appointments");
+            out.println("5. Accept or Decline Appointment Requests");
+            out.println("6. View Upcoming Appointments");
+            out.println("7. Record Appointment Outcome");
+            out.println("0. Logout");
+            out.print("Enter your choice: ");
 
             int choice = getIntInput(scanner);
 
@@ -84,10 +100,10 @@ public final class DoctorMenu {
                     break;
                 case 0:
                     back = true;
-                    System.out.println("Logging out...");
+                    out.println("Logging out...");
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -99,17 +115,17 @@ public final class DoctorMenu {
      * @param doctor  The currently logged-in doctor
      */
     private void viewPatientMedicalRecords(Scanner scanner, Doctor doctor) {
-        System.out.print("Enter Patient ID to view medical records: ");
+        out.print("Enter Patient ID to view medical records: ");
         String patientId = scanner.nextLine().trim();
 
-        MedicalRecord record = textDB.getMedicalRecordByPatientId(patientId);
+        MedicalRecord record = medicalRecordService.getMedicalRecord(patientId);
         if (record == null) {
-            System.out.println("Medical record for Patient ID " + patientId + " not found.");
+            out.println("Medical record for Patient ID " + patientId + " not found.");
             return;
         }
 
-        System.out.println();
-        record.display();
+        out.println();
+        record.display(out);
     }
 
     /**
@@ -120,26 +136,26 @@ public final class DoctorMenu {
      * @throws IOException If an I/O error occurs during data saving
      */
     private void updatePatientMedicalRecords(Scanner scanner, Doctor doctor) throws IOException {
-        System.out.print("Enter Patient ID to update medical records: ");
+        out.print("Enter Patient ID to update medical records: ");
         String patientId = scanner.nextLine().trim();
 
-        MedicalRecord record = textDB.getMedicalRecordByPatientId(patientId);
+        MedicalRecord record = medicalRecordService.getMedicalRecord(patientId);
         if (record == null) {
-            System.out.println("Medical record for Patient ID " + patientId + " not found.");
+            out.println("Medical record for Patient ID " + patientId + " not found.");
             return;
         }
 
-        System.out.println("Existing Medical Record:");
-        record.display();
+        out.println("Existing Medical Record:");
+        record.display(out);
 
         // Create a new Treatment
         Treatment treatment = new Treatment();
 
         // Service Type
-        System.out.print("Enter the type of service provided (e.g., consultation, X-ray, blood test): ");
+        out.print("Enter the type of service provided (e.g., consultation, X-ray, blood test): ");
         String serviceType = scanner.nextLine().trim();
         while (serviceType.isEmpty()) {
-            System.out.print("Service type cannot be empty. Please enter again: ");
+            out.print("Service type cannot be empty. Please enter again: ");
             serviceType = scanner.nextLine().trim();
         }
         treatment.setServiceType(serviceType);
@@ -147,38 +163,38 @@ public final class DoctorMenu {
         // Date of Appointment
         LocalDate dateOfAppointment = null;
         while (dateOfAppointment == null) {
-            System.out.print("Enter date of appointment (yyyy-MM-dd): ");
+            out.print("Enter date of appointment (yyyy-MM-dd): ");
             String dateStr = scanner.nextLine().trim();
             try {
                 dateOfAppointment = LocalDate.parse(dateStr, DATE_FORMATTER);
             } catch (Exception e) {
-                System.out.println("Invalid date format. Please try again.");
+                out.println("Invalid date format. Please try again.");
             }
         }
         treatment.setDateOfAppointment(dateOfAppointment);
 
         // Treatment Comments
-        System.out.print("Enter treatment comments: ");
+        out.print("Enter treatment comments: ");
         String treatmentComments = scanner.nextLine().trim();
         while (treatmentComments.isEmpty()) {
-            System.out.print("Treatment comments cannot be empty. Please enter again: ");
+            out.print("Treatment comments cannot be empty. Please enter again: ");
             treatmentComments = scanner.nextLine().trim();
         }
         treatment.setTreatmentComments(treatmentComments);
 
         // Prescribed Medications
-        System.out.println("Enter prescribed medications (enter 'done' when finished):");
+        out.println("Enter prescribed medications (enter 'done' when finished):");
         while (true) {
-            System.out.print("Medication Name (or 'done'): ");
+            out.print("Medication Name (or 'done'): ");
             String medName = scanner.nextLine().trim();
             if (medName.equalsIgnoreCase("done")) {
                 break;
             }
             if (medName.isEmpty()) {
-                System.out.println("Medication name cannot be empty.");
+                out.println("Medication name cannot be empty.");
                 continue;
             }
-            System.out.print("Status for " + medName + " (default is 'pending'): ");
+            out.print("Status for " + medName + " (default is 'pending'): ");
             String status = scanner.nextLine().trim();
             if (status.isEmpty()) {
                 status = "pending";
@@ -186,13 +202,11 @@ public final class DoctorMenu {
             // POSSIBLE UPDATE: Include confirmation of medication
             treatment.addPrescription(new Prescription(medName, status));
         }
-        treatment.setDoctorId(doctor.getHospitalID());
 
         // Add the new Treatment to the Medical Record
-        record.addTreatment(treatment);
-        textDB.updateMedicalRecord(record);
+        medicalRecordService.addTreatment(doctor, record, treatment);
 
-        System.out.println("Medical record updated successfully.");
+        out.println("Medical record updated successfully.");
     }
 
     /**
@@ -201,17 +215,15 @@ public final class DoctorMenu {
      * @param doctor The currently logged-in doctor
      */
     private void viewPersonalSchedule(Doctor doctor) {
-        Schedule schedule = doctor.getSchedule();
-        System.out.println("Availability slots:");
-        for (LocalDate date : schedule.getAvailability().keySet()) {
-            System.out.println("Date: " + date.format(DATE_FORMATTER));
-            List<TimeSlot> slots = schedule.getAvailableTimeSlots(date);
-            for (TimeSlot slot : slots) {
-                System.out.println("  " + slot.getStartTime().toLocalTime().format(TIME_FORMATTER) +
+        out.println("Availability slots:");
+        for (Map.Entry<LocalDate, List<TimeSlot>> entry : scheduleService.getAvailability(doctor).entrySet()) {
+            out.println("Date: " + entry.getKey().format(DATE_FORMATTER));
+            for (TimeSlot slot : entry.getValue()) {
+                out.println("  " + slot.getStartTime().toLocalTime().format(TIME_FORMATTER) +
                                    " - " + slot.getEndTime().toLocalTime().format(TIME_FORMATTER));
             }
         }
-        System.out.println();
+        out.println();
         viewUpcomingAppointments(doctor);
     }
 
@@ -223,13 +235,13 @@ public final class DoctorMenu {
      * @throws IOException If an I/O error occurs during data saving
      */
     private void setAvailabilityForAppointments(Scanner scanner, Doctor doctor) throws IOException {
-        System.out.print("Enter date to set availability (yyyy-MM-dd): ");
+        out.print("Enter date to set availability (yyyy-MM-dd): ");
         String dateStr = scanner.nextLine();
         LocalDate date;
         try {
             date = LocalDate.parse(dateStr, DATE_FORMATTER);
         } catch (Exception e) {
-            System.out.println("Invalid date format.");
+            out.println("Invalid date format.");
             return;
         }
 
@@ -237,13 +249,13 @@ public final class DoctorMenu {
         boolean addingSlots = true;
 
         while (addingSlots) {
-            System.out.print("Enter start time for available slot (HH:mm) or 'done' to finish: ");
+            out.print("Enter start time for available slot (HH:mm) or 'done' to finish: ");
             String startStr = scanner.nextLine();
             if (startStr.equalsIgnoreCase("done")) {
                 break;
             }
 
-            System.out.print("Enter end time for available slot (HH:mm): ");
+            out.print("Enter end time for available slot (HH:mm): ");
             String endStr = scanner.nextLine();
 
             try {
@@ -251,7 +263,7 @@ public final class DoctorMenu {
                 LocalDateTime endTime = LocalDateTime.of(date, java.time.LocalTime.parse(endStr, TIME_FORMATTER));
 
                 if (endTime.isBefore(startTime) || endTime.equals(startTime)) {
-                    System.out.println("End time must be after start time. Please try again.");
+                    out.println("End time must be after start time. Please try again.");
                     continue;
                 }
 
@@ -262,17 +274,16 @@ public final class DoctorMenu {
                 );
                 availableSlots.add(slot);
             } catch (Exception e) {
-                System.out.println("Invalid time format. Please try again.");
+                out.println("Invalid time format. Please try again.");
             }
         }
 
         if (!availableSlots.isEmpty()) {
             // Update the Doctor's schedule in TextDB to ensure persistence
-            doctor.setAvailability(date, availableSlots);
-            textDB.updateDoctorSchedule(doctor.getHospitalID(), doctor.getSchedule());
-            System.out.println("Availability updated successfully.");
+            scheduleService.setAvailability(doctor, date, availableSlots);
+            out.println("Availability updated successfully.");
         } else {
-            System.out.println("No availability slots added.");
+            out.println("No availability slots added.");
         }
     }
 
@@ -284,55 +295,55 @@ public final class DoctorMenu {
      * @throws IOException If an I/O error occurs during data saving
      */
     private void acceptOrDeclineAppointmentRequests(Scanner scanner, Doctor doctor) throws IOException {
-        List<Appointment> requestedAppointments = textDB.getRequestedAppointmentsByDoctor(doctor.getHospitalID());
+        List<Appointment> requestedAppointments = appointmentService.getRequestedAppointments(doctor);
 
         if (requestedAppointments.isEmpty()) {
-            System.out.println("You have no appointment requests to review.");
+            out.println("You have no appointment requests to review.");
             return;
         }
 
-        System.out.println("\nAppointment Requests:");
+        out.println("\nAppointment Requests:");
         for (int i = 0; i < requestedAppointments.size(); i++) {
             Appointment appt = requestedAppointments.get(i);
-            System.out.println((i + 1) + ". Appointment ID: " + appt.getId() +
+            out.println((i + 1) + ". Appointment ID: " + appt.getId() +
                             ", Patient ID: " + appt.getPatientId() +
                             ", Date: " + appt.getDate().format(DATE_FORMATTER) +
                             ", Time: " + appt.getTimeSlot().getStartTime().toLocalTime().format(TIME_FORMATTER) +
                             " - " + appt.getTimeSlot().getEndTime().toLocalTime().format(TIME_FORMATTER));
         }
 
-        System.out.print("Enter the number of the appointment you want to review (or 0 to cancel): ");
+        out.print("Enter the number of the appointment you want to review (or 0 to cancel): ");
         int choice = getIntInput(scanner) - 1;
 
         if (choice == -1) {
-            System.out.println("Operation cancelled.");
+            out.println("Operation cancelled.");
             return;
         }
 
         if (choice < 0 || choice >= requestedAppointments.size()) {
-            System.out.println("Invalid selection. Please try again.");
+            out.println("Invalid selection. Please try again.");
             return;
         }
 
         Appointment selectedAppointment = requestedAppointments.get(choice);
-        selectedAppointment.print();
+        selectedAppointment.print(out);
 
-        System.out.print("Do you want to accept this appointment? (y/n): ");
+        out.print("Do you want to accept this appointment? (y/n): ");
         String decision = scanner.nextLine().trim().toLowerCase();
 
         switch (decision) {
             case "y":
             case "yes":
-                textDB.updateAppointmentStatus(selectedAppointment.getId(), "Confirmed");
-                System.out.println("Appointment ID " + selectedAppointment.getId() + " has been accepted and scheduled.");
+                appointmentService.respondToRequest(selectedAppointment, true);
+                out.println("Appointment ID " + selectedAppointment.getId() + " has been accepted and scheduled.");
                 break;
             case "n":
             case "no":
-                textDB.updateAppointmentStatus(selectedAppointment.getId(), "Cancelled");
-                System.out.println("Appointment ID " + selectedAppointment.getId() + " has been declined.");
+                appointmentService.respondToRequest(selectedAppointment, false);
+                out.println("Appointment ID " + selectedAppointment.getId() + " has been declined.");
                 break;
             default:
-                System.out.println("Invalid input. Please enter 'y' or 'n'.");
+                out.println("Invalid input. Please enter 'y' or 'n'.");
         } // POSSIBLE UPDATE: Ensure that decision is case sensitive
     }
 
@@ -342,35 +353,21 @@ public final class DoctorMenu {
      * @param doctor The currently logged-in doctor
      */
     private void viewUpcomingAppointments(Doctor doctor) {
-        // Fetch all appointments
-        List<Appointment> allAppointments = textDB.getAppointments();
-
-        // Current date and time for comparison
-        LocalDateTime now = LocalDateTime.now();
-
-        // Filter appointments based on:
-        // 1. Assigned to the current doctor
-        // 2. Status is "Confirmed"
-        // 3. Start time is after the current time
-        List<Appointment> upcomingAppointments = allAppointments.stream()
-                .filter(appt -> appt.getDoctorId().equals(doctor.getHospitalID()))
-                .filter(appt -> appt.getStatus().equalsIgnoreCase("Confirmed"))
-                .filter(appt -> appt.getTimeSlot().getStartTime().isAfter(now))
-                .sorted((a1, a2) -> a1.getTimeSlot().getStartTime().compareTo(a2.getTimeSlot().getStartTime()))
-                .collect(Collectors.toList());
+        // Confirmed appointments whose start time is after the current time
+        List<Appointment> upcomingAppointments = appointmentService.getUpcomingAppointments(doctor);
 
         if (upcomingAppointments.isEmpty()) {
-            System.out.println("You have no upcoming appointments.");
+            out.println("You have no upcoming appointments.");
             return;
         }
 
-        System.out.println("\nUpcoming Appointments:");
+        out.println("\nUpcoming Appointments:");
         for (int i = 0; i < upcomingAppointments.size(); i++) {
             Appointment appt = upcomingAppointments.get(i);
             String date = appt.getTimeSlot().getStartTime().format(DATE_FORMATTER);
             String startTime = appt.getTimeSlot().getStartTime().format(TIME_FORMATTER);
             String endTime = appt.getTimeSlot().getEndTime().format(TIME_FORMATTER);
-            System.out.println((i + 1) + ". Appointment ID: " + appt.getId() +
+            out.println((i + 1) + ". Appointment ID: " + appt.getId() +
                     ", Patient ID: " + appt.getPatientId() +
                     ", Date: " + date +
                     ", Time: " + startTime + " - " + endTime);
@@ -385,25 +382,19 @@ public final class DoctorMenu {
      * @throws IOException If an I/O error occurs during data saving
      */
     public void recordAppointmentOutcome(Scanner scanner, Doctor doctor) throws IOException {
-        LocalDateTime now = LocalDateTime.now();
         // Step 1: Fetch eligible appointments
-        List<Appointment> eligibleAppointments = textDB.getAppointments().stream()
-            .filter(appt -> appt.getDoctorId().equals(doctor.getHospitalID()))
-            .filter(appt -> appt.getStatus().equalsIgnoreCase("Confirmed"))
-            .filter(appt -> appt.getTimeSlot().getStartTime().isBefore(now))
-            .sorted((a1, a2) -> a1.getTimeSlot().getStartTime().compareTo(a2.getTimeSlot().getStartTime()))
-            .collect(Collectors.toList());
+        List<Appointment> eligibleAppointments = appointmentService.getAppointmentsAwaitingOutcome(doctor);
 
         if (eligibleAppointments.isEmpty()) {
-            System.out.println("You have no completed appointments to record outcomes for.");
+            out.println("You have no completed appointments to record outcomes for.");
             return;
         }
 
         // Step 2: Display the eligible appointments
-        System.out.println("\nCompleted Appointments:");
+        out.println("\nCompleted Appointments:");
         for (int i = 0; i < eligibleAppointments.size(); i++) {
             Appointment appt = eligibleAppointments.get(i);
-            System.out.println((i + 1) + ". Appointment ID: " + appt.getId() +
+            out.println((i + 1) + ". Appointment ID: " + appt.getId() +
                     ", Patient ID: " + appt.getPatientId() +
                     ", Date: " + appt.getDate().format(DATE_FORMATTER) +
                     ", Time: " + appt.getTimeSlot().getStartTime().toLocalTime().format(TIME_FORMATTER) +
@@ -411,41 +402,41 @@ public final class DoctorMenu {
         }
 
         // Step 3: Select an appointment
-        System.out.print("Enter the number of the appointment to record outcome (or 0 to cancel): ");
+        out.print("Enter the number of the appointment to record outcome (or 0 to cancel): ");
         int choice = getIntInput(scanner) - 1;
 
         if (choice == -1 || choice >= eligibleAppointments.size()) {
-            System.out.println("Operation cancelled or invalid selection.");
+            out.println("Operation cancelled or invalid selection.");
             return;
         }
 
         Appointment selectedAppt = eligibleAppointments.get(choice);
 
         // Step 4: Input outcome data
-        System.out.println("\nRecording outcome for Appointment ID: " + selectedAppt.getId());
+        out.println("\nRecording outcome for Appointment ID: " + selectedAppt.getId());
 
         // Type of service
-        System.out.print("Enter the type of service provided (e.g., consultation, X-ray, blood test): ");
+        out.print("Enter the type of service provided (e.g., consultation, X-ray, blood test): ");
         String serviceType = scanner.nextLine().trim();
         while (serviceType.isEmpty()) {
-            System.out.print("Service type cannot be empty. Please enter again: ");
+            out.print("Service type cannot be empty. Please enter again: ");
             serviceType = scanner.nextLine().trim();
         }
 
         // Prescribed medications
         List<Prescription> prescriptions = new ArrayList<>();
-        System.out.println("Enter prescribed medications (enter 'done' when finished):");
+        out.println("Enter prescribed medications (enter 'done' when finished):");
         while (true) {
-            System.out.print("Medication Name (or 'done'): ");
+            out.print("Medication Name (or 'done'): ");
             String medName = scanner.nextLine().trim();
             if (medName.equalsIgnoreCase("done")) {
                 break;
             }
             if (medName.isEmpty()) {
-                System.out.println("Medication name cannot be empty.");
+                out.println("Medication name cannot be empty.");
                 continue;
             }
-            System.out.print("Status for " + medName + " (default is 'pending'): ");
+            out.print("Status for " + medName + " (default is 'pending'): ");
             String status = scanner.nextLine().trim();
             if (status.isEmpty()) {
                 status = "pending";
@@ -454,38 +445,20 @@ public final class DoctorMenu {
         }
 
         // Consultation notes
-        System.out.print("Enter consultation notes: ");
+        out.print("Enter consultation notes: ");
         String consultationNotes = scanner.nextLine().trim();
         while (consultationNotes.isEmpty()) {
-            System.out.print("Consultation notes cannot be empty. Please enter again: ");
+            out.print("Consultation notes cannot be empty. Please enter again: ");
             consultationNotes = scanner.nextLine().trim();
         }
 
-        // Step 5: Create Treatment object
-        Treatment treatment = new Treatment();
-        treatment.setServiceType(serviceType);
-        treatment.setDateOfAppointment(selectedAppt.getTimeSlot().getStartTime().toLocalDate());
-        treatment.setTreatmentComments(consultationNotes);
-        for (Prescription p : prescriptions) {
-            treatment.addPrescription(p);
-        }
-
-        // Step 6: Update MedicalRecord
-        MedicalRecord record = textDB.getMedicalRecordByPatientId(selectedAppt.getPatientId());
-        if (record == null) {
-            System.out.println("Medical record for Patient ID " + selectedAppt.getPatientId() + " not found.");
+        // Step 5: Add the treatment to the MedicalRecord and complete the appointment
+        if (!appointmentService.recordAppointmentOutcome(doctor, selectedAppt, serviceType, prescriptions, consultationNotes)) {
+            out.println("Medical record for Patient ID " + selectedAppt.getPatientId() + " or the appointment was not found.");
             return;
         }
-        treatment.setDoctorId(doctor.getHospitalID());
-        record.addTreatment(treatment);
-        textDB.updateMedicalRecord(record);
-
-        // Step 7: Update Appointment status to "Completed" and set outcomeRecord
-        selectedAppt.setStatus("Completed");
-        selectedAppt.setOutcomeRecord(treatment.serialize());
-        textDB.updateAppointment(selectedAppt);
 
-        System.out.println("Appointment outcome recorded successfully.");
+        out.println("Appointment outcome recorded successfully.");
     }
 
     /**
@@ -501,7 +474,7 @@ public final class DoctorMenu {
                 scanner.nextLine(); // consume the newline character
                 return num;
             } else {
-                System.out.print("Invalid input. Please enter a valid number: ");
+                out.print("Invalid input. Please enter a valid number: ");
                 scanner.nextLine(); // consume the invalid input
             }
         }
@@ -1,19 +1,19 @@
 package menus;
-import HospitalNotificationSystem.NotifyDoctor;
 import db.TextDB;
 import items.appointments.Appointment;
 import items.appointments.TimeSlot;
 import items.medical_records.MedicalRecord;
 import items.medical_records.Treatment;
 import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
 import java.util.List;
 import java.util.Scanner;
-import java.util.stream.Collectors;
+import services.AppointmentService;
+import services.MedicalRecordService;
+import services.ScheduleService;
+import services.UserService;
 import user_classes.Doctor;
 import user_classes.Patient;
 
@@ -23,15 +23,26 @@ import user_classes.Patient;
  */
 public final class PatientMenu {
     private TextDB textDB;
+    private final PrintStream out;
+    private final AppointmentService appointmentService;
+    private final ScheduleService scheduleService;
+    private final MedicalRecordService medicalRecordService;
+    private final UserService userService;
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     /**
      * Constructor to initialize PatientMenu with a TextDB instance.
      * @param textDB A TextDB instance for data retrieval and storage.
+     * @param out The stream this menu prints to.
      */
-    public PatientMenu(TextDB textDB) {
+    public PatientMenu(TextDB textDB, PrintStream out) {
         this.textDB = textDB;
+        this.out = out;
+        this.appointmentService = new AppointmentService(textDB);
+        this.scheduleService = new ScheduleService(textDB);
+        this.medicalRecordService = new MedicalRecordService(textDB);
+        this.userService = new UserService(textDB);
     }
 
     /**
@@ -42,18 +53,18 @@ public final class PatientMenu {
      */
     public void showMenu(Scanner scanner, Patient patient) throws IOException {
         while (true) {
-            System.out.println("\nPatient Menu:");
-            System.out.println("1. View Medical Record");
-            System.out.println("2. Update Contact Information");
-            System.out.println("3. View Available Appointment Slots");
-            System.out.println("4. Schedule Appointment");
-            System.out.println("5. Reschedule Appointment");
-            System.out.println("6. Cancel Appointment");
-            System.out.println("7. View Appointment Status");
-            System.out.println("8. View Appointment Outcome Records");
-            System.out.println("9. Change Password");
-            System.out.println("0. Log out");
-            System.out.print("Enter your choice: ");
+            out.println("\nPatient Menu:");
+            out.println("1. View Medical Record");
+            out.println("2. Update Contact Information");
+            out.println("3. View Available Appointment Slots");
+            out.println("4. Schedule Appointment");
+            out.println("5. Reschedule Appointment");
+            out.println("6. Cancel Appointment");
+            out.println("7. View Appointment Status");
+            out.println("8. View Appointment Outcome Records");
+            out.println("9. Change Password");
+            out.println("0. Log out");
+            out.print("Enter your choice: ");
             int choice = getIntInput(scanner);
 
             switch (choice) {
@@ -87,7 +98,7 @@ public final class PatientMenu {
                 case 0:
                     return;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -97,23 +108,23 @@ public final class PatientMenu {
      * @param patient The patient whose records are being accessed.
      */
     private void viewPastAppointmentOutcomeRecords(Patient patient) {
-    	MedicalRecord record = textDB.getMedicalRecordByPatientId(patient.getHospitalID());
+    	MedicalRecord record = medicalRecordService.getMedicalRecord(patient.getHospitalID());
     	if (record == null) {
-    		System.out.println("No appointment recorded.");
+    		out.println("No appointment recorded.");
     		return;
     	}
-    	System.out.println();
+    	out.println();
     	List<Treatment> pastTreatments = record.getPastTreatments();
     	
-        System.out.println("Appointment records:");
+        out.println("Appointment records:");
         if (pastTreatments == null || pastTreatments.isEmpty()) {
-            System.out.println("  - No appointment recorded.");
+            out.println("  - No appointment recorded.");
         } else {
             for (Treatment treat : pastTreatments) {
-                treat.display();
+                treat.display(out);
             }
         }
-        System.out.println();	
+        out.println();	
     }
     
     /**
@@ -121,13 +132,13 @@ public final class PatientMenu {
      * @param patient The patient whose medical record is being viewed.
      */
     private void viewMedicalRecord(Patient patient) {
-        MedicalRecord record = textDB.getMedicalRecordByPatientId(patient.getHospitalID());
+        MedicalRecord record = medicalRecordService.getMedicalRecord(patient.getHospitalID());
         if (record == null) {
-            System.out.println("No medical record found.");
+            out.println("No medical record found.");
             return;
         }
-        System.out.println();
-        record.display();
+        out.println();
+        record.display(out);
     }
 
     /**
@@ -136,24 +147,20 @@ public final class PatientMenu {
      * @param patient The patient whose contact information is updated.
      */
     private void updateContactInformation(Scanner scanner, Patient patient) {
-        System.out.print("Enter new email address: ");
+        out.print("Enter new email address: ");
         String email = scanner.nextLine();
-        System.out.print("Enter new phone number: ");
+        out.print("Enter new phone number: ");
         String phone = scanner.nextLine();
         
-        MedicalRecord medicalRecord = patient.getMedicalRecord();
-        if (medicalRecord != null) {
-            medicalRecord.getContactInformation().setEmailAddress(email);
-            medicalRecord.getContactInformation().setPhoneNumber(phone);
-            try {
-                textDB.updateMedicalRecord(medicalRecord);
-                System.out.println("Contact information updated successfully.");
-            } catch (IOException e) {
-                System.out.println("Failed to update contact information.");
-                e.printStackTrace();
+        try {
+            if (medicalRecordService.updateContactInformation(patient, email, phone)) {
+                out.println("Contact information updated successfully.");
+            } else {
+                out.println("Medical record not found. Cannot update contact information.");
             }
-        } else {
-            System.out.println("Medical record not found. Cannot update contact information.");
+        } catch (IOException e) {
+            out.println("Failed to update contact information.");
+            e.printStackTrace();
         }
     }
     
@@ -162,18 +169,16 @@ public final class PatientMenu {
      * @param patient The patient whose appointments are being viewed.
      */
     private void viewAppointmentStatus(Patient patient) {
-        List<Appointment> appointments = textDB.getAppointments().stream()
-            .filter(appt -> appt.getPatientId().equals(patient.getHospitalID()))
-            .collect(Collectors.toList());
+        List<Appointment> appointments = appointmentService.getAppointments(patient);
 
         if (appointments.isEmpty()) {
-            System.out.println("You have no appointments.");
+            out.println("You have no appointments.");
             return;
         }
 
-        System.out.println("\nYour Appointments:");
+        out.println("\nYour Appointments:");
         for (Appointment appointment : appointments) {
-            Doctor doctor = (Doctor) textDB.getUserByHospitalID(appointment.getDoctorId());
+            Doctor doctor = appointmentService.getDoctor(appointment.getDoctorId());
             String doctorName = (doctor != null) ? doctor.getName() : "Unknown Doctor";
 
             // Extract date and time from TimeSlot
@@ -182,7 +187,7 @@ public final class PatientMenu {
             String formattedStartTime = appointment.getTimeSlot().getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
             String formattedEndTime = appointment.getTimeSlot().getEndTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
 
-            System.out.println("Appointment ID: " + appointment.getId() +
+            out.println("Appointment ID: " + appointment.getId() +
                             ", Doctor: Dr. " + doctorName +
                             ", Date: " + formattedDate +
                             ", Time: " + formattedStartTime + " - " + formattedEndTime +
@@ -196,27 +201,27 @@ public final class PatientMenu {
      */
     private void viewAvailableAppointmentSlotsWithDoctor(Scanner scanner) {
         // Step 1: Display list of available doctors
-        List<Doctor> doctors = textDB.getAllDoctors();
+        List<Doctor> doctors = appointmentService.getDoctors();
         if (doctors.isEmpty()) {
-            System.out.println("No doctors are currently available.");
+            out.println("No doctors are currently available.");
             return;
         }
 
-        System.out.println("\nAvailable Doctors:");
+        out.println("\nAvailable Doctors:");
         for (int i = 0; i < doctors.size(); i++) {
-            System.out.println((i + 1) + ". Dr. " + doctors.get(i).getName() + " (ID: " + doctors.get(i).getHospitalID() + ")");
+            out.println((i + 1) + ". Dr. " + doctors.get(i).getName() + " (ID: " + doctors.get(i).getHospitalID() + ")");
         }
 
-        System.out.print("Enter the number corresponding to the doctor you want to view available slots for: ");
+        out.print("Enter the number corresponding to the doctor you want to view available slots for: ");
         int doctorIndex = getIntInput(scanner) - 1;
 
         if (doctorIndex < 0 || doctorIndex >= doctors.size()) {
-            System.out.println("Invalid selection. Please try again.");
+            out.println("Invalid selection. Please try again.");
             return;
         }
 
         Doctor selectedDoctor = doctors.get(doctorIndex);
-        System.out.println("You have selected Dr. " + selectedDoctor.getName());
+        out.println("You have selected Dr. " + selectedDoctor.getName());
 
         // Step 2: Call the updated viewAvailableAppointmentSlots method
         viewAvailableAppointmentSlots(scanner, selectedDoctor);
@@ -228,32 +233,31 @@ public final class PatientMenu {
      * @param doctor The doctor for whom to view available slots.
      */
     private void viewAvailableAppointmentSlots(Scanner scanner, Doctor doctor) {
-        System.out.print("Enter the date (yyyy-MM-dd) for which you want to see available slots: ");
+        out.print("Enter the date (yyyy-MM-dd) for which you want to see available slots: ");
         String dateInput = scanner.nextLine();
         LocalDate date;
 
         try {
             date = LocalDate.parse(dateInput, DATE_FORMATTER);
         } catch (Exception e) {
-            System.out.println("Invalid date format. Please try again.");
+            out.println("Invalid date format. Please try again.");
             return;
         }
 
-        List<TimeSlot> availableSlots = textDB.getAvailableAppointmentSlots(date, doctor);
+        List<TimeSlot> availableSlots = appointmentService.getAvailableSlots(date, doctor);
 
         if (availableSlots.isEmpty()) {
             // Check if the doctor has set availability for this date
-            List<TimeSlot> doctorAvailableSlots = doctor.getAvailableTimeSlots(date);
-            if (doctorAvailableSlots.isEmpty()) {
-                System.out.println("Dr. " + doctor.getName() + " has not set availability for " + date + ".");
+            if (!scheduleService.hasAvailability(doctor, date)) {
+                out.println("Dr. " + doctor.getName() + " has not set availability for " + date + ".");
             } else {
-                System.out.println("No available slots for Dr. " + doctor.getName() + " on " + date + ".");
+                out.println("No available slots for Dr. " + doctor.getName() + " on " + date + ".");
             }
         } else {
-            System.out.println("\nAvailable Appointment Slots with Dr. " + doctor.getName() + " on " + date + ":");
+            out.println("\nAvailable Appointment Slots with Dr. " + doctor.getName() + " on " + date + ":");
             for (int i = 0; i < availableSlots.size(); i++) {
                 TimeSlot slot = availableSlots.get(i);
-                System.out.println((i + 1) + ". " + slot.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")) +
+                out.println((i + 1) + ". " + slot.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")) +
                         " - " + slot.getEndTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")));
             }
         }
@@ -266,73 +270,73 @@ public final class PatientMenu {
      */
     private void scheduleAppointment(Scanner scanner, Patient patient) {
         // Step 1: Ask for the date of the appointment
-        System.out.print("Enter the date (yyyy-MM-dd) for which you want to schedule an appointment: ");
+        out.print("Enter the date (yyyy-MM-dd) for which you want to schedule an appointment: ");
         String dateInput = scanner.nextLine();
         LocalDate date;
         
         try {
             date = LocalDate.parse(dateInput, DATE_FORMATTER);
         } catch (Exception e) {
-            System.out.println("Invalid date format. Please try again.");
+            out.println("Invalid date format. Please try again.");
             return;
         }
 
         // Step 2: Display list of available doctors
-        List<Doctor> doctors = textDB.getAllDoctors();
+        List<Doctor> doctors = appointmentService.getDoctors();
         if (doctors.isEmpty()) {
-            System.out.println("No doctors are currently available.");
+            out.println("No doctors are currently available.");
             return;
         }
 
-        System.out.println("\nAvailable Doctors:");
+        out.println("\nAvailable Doctors:");
         for (int i = 0; i < doctors.size(); i++) {
-            System.out.println((i + 1) + ". Dr. " + doctors.get(i).getName() + " (ID: " + doctors.get(i).getHospitalID() + ")");
+            out.println((i + 1) + ". Dr. " + doctors.get(i).getName() + " (ID: " + doctors.get(i).getHospitalID() + ")");
         }
 
-        System.out.print("Enter the number corresponding to the doctor you want to book an appointment with: ");
+        out.print("Enter the number corresponding to the doctor you want to book an appointment with: ");
         int doctorIndex = getIntInput(scanner) - 1;
 
         if (doctorIndex < 0 || doctorIndex >= doctors.size()) {
-            System.out.println("Invalid selection. Please try again.");
+            out.println("Invalid selection. Please try again.");
             return;
         }
 
         Doctor selectedDoctor = doctors.get(doctorIndex);
-        System.out.println("You have selected Dr. " + selectedDoctor.getName());
+        out.println("You have selected Dr. " + selectedDoctor.getName());
 
         // Step 3: Display available time slots for the selected doctor and date
-        List<TimeSlot> availableSlots = textDB.getAvailableAppointmentSlots(date, selectedDoctor);
+        List<TimeSlot> availableSlots = appointmentService.getAvailableSlots(date, selectedDoctor);
         
         if (availableSlots.isEmpty()) {
-            System.out.println("No available slots for Dr. " + selectedDoctor.getName() + " on " + date + ". Please choose a different date or doctor.");
+            out.println("No available slots for Dr. " + selectedDoctor.getName() + " on " + date + ". Please choose a different date or doctor.");
             return;
         }
 
-        System.out.println("\nAvailable Appointment Slots with Dr. " + selectedDoctor.getName() + " on " + date + ":");
+        out.println("\nAvailable Appointment Slots with Dr. " + selectedDoctor.getName() + " on " + date + ":");
         for (int i = 0; i < availableSlots.size(); i++) {
-            System.out.println((i + 1) + ". " + availableSlots.get(i));
+            out.println((i + 1) + ". " + availableSlots.get(i));
         }
 
         // Step 4: Ask the user to select a time slot by entering its index
-        System.out.print("Enter the number corresponding to the time slot you want to book: ");
+        out.print("Enter the number corresponding to the time slot you want to book: ");
         int slotIndex = getIntInput(scanner) - 1;
 
         if (slotIndex < 0 || slotIndex >= availableSlots.size()) {
-            System.out.println("Invalid selection. Please try again.");
+            out.println("Invalid selection. Please try again.");
             return;
         }
 
         TimeSlot selectedSlot = availableSlots.get(slotIndex);
-        System.out.println("You have selected " + selectedSlot);
+        out.println("You have selected " + selectedSlot);
 
-        // Step 5: Use the updated addAppointment method in TextDB
-        boolean success = textDB.addAppointment(patient, selectedDoctor, date, selectedSlot);
+        // Step 5: Book the appointment; the doctor is notified when it is added
+        boolean success = appointmentService.bookAppointment(patient, selectedDoctor, date, selectedSlot);
 
-        if (!success) {
-            System.out.println("Failed to submit appointment request. Please try again.");
+        if (success) {
+            out.println("Appointment request successfully submitted with Dr. " + selectedDoctor.getName() + " on " + date + " at " + selectedSlot + ".");
+            out.println("Please await doctor's approval.");
         } else {
-            // Notify doctor when appointment is added
-            NotifyDoctor.getInstance().notifyDoctorUser("New Appointment request from " + patient + " on " + dateInput);
+            out.println("Failed to submit appointment request. Please try again.");
         }
     }
 
@@ -348,24 +352,22 @@ public final class PatientMenu {
      */
     private void rescheduleAppointment(Scanner scanner, Patient patient) {
         // Step 1: Retrieve and display the patient's appointments
-        List<Appointment> patientAppointments = textDB.getAppointments().stream()
-            .filter(appt -> appt.getPatientId().equals(patient.getHospitalID()))
-            .collect(Collectors.toList());
+        List<Appointment> patientAppointments = appointmentService.getAppointments(patient);
     
         if (patientAppointments.isEmpty()) {
-            System.out.println("You have no appointments to reschedule.");
+            out.println("You have no appointments to reschedule.");
             return;
         }
     
-        System.out.println("\nYour Appointments:");
+        out.println("\nYour Appointments:");
         for (Appointment appointment : patientAppointments) {
             LocalDate appointmentDate = appointment.getTimeSlot().getStartTime().toLocalDate();
             String formattedDate = appointmentDate.format(DATE_FORMATTER);
             String formattedStartTime = appointment.getTimeSlot().getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
             String formattedEndTime = appointment.getTimeSlot().getEndTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
 
-            System.out.println("Appointment ID: " + appointment.getId() +
-                            ", Doctor: " + textDB.getUserByHospitalID(appointment.getDoctorId()).getName() +
+            out.println("Appointment ID: " + appointment.getId() +
+                            ", Doctor: " + appointmentService.getDoctor(appointment.getDoctorId()).getName() +
                             ", Date: " + formattedDate +
                             ", Time: " + formattedStartTime + " - " + formattedEndTime +
                             ", Status: " + appointment.getStatus());
@@ -373,126 +375,117 @@ public final class PatientMenu {
         }
     
         // Step 2: Prompt user to enter the Appointment ID to reschedule
-        System.out.print("\nEnter the ID of the appointment you want to reschedule: ");
+        out.print("\nEnter the ID of the appointment you want to reschedule: ");
         int appointmentId = getIntInput(scanner);
     
         // Step 3: Verify if the appointment exists and belongs to the patient
-        Appointment appointmentToReschedule = textDB.getAppointmentById(appointmentId);
-        if (appointmentToReschedule == null || !appointmentToReschedule.getPatientId().equals(patient.getHospitalID())) {
-            System.out.println("No such appointment found. Please check the Appointment ID and try again.");
+        Appointment appointmentToReschedule = appointmentService.getAppointment(patient, appointmentId);
+        if (appointmentToReschedule == null) {
+            out.println("No such appointment found. Please check the Appointment ID and try again.");
             return;
         }
     
         // Step 4: Choose a new date
-        System.out.print("Enter the new date for the appointment (yyyy-MM-dd): ");
+        out.print("Enter the new date for the appointment (yyyy-MM-dd): ");
         String newDateInput = scanner.nextLine();
         LocalDate newDate;
         try {
             newDate = LocalDate.parse(newDateInput, DATE_FORMATTER);
         } catch (Exception e) {
-            System.out.println("Invalid date format. Please try again.");
+            out.println("Invalid date format. Please try again.");
             return;
         }
 
         if (newDate.isBefore(LocalDate.now())) {
-            System.out.println("Cannot reschedule to a past date. Please choose a future date.");
+            out.println("Cannot reschedule to a past date. Please choose a future date.");
             return;
         }
     
         // Step 5: Choose a doctor (optional: keep the same doctor)
-        System.out.print("Do you want to keep the same doctor? (yes/no): ");
+        out.print("Do you want to keep the same doctor? (yes/no): ");
         String keepDoctor = scanner.nextLine().trim().toLowerCase();
     
         Doctor selectedDoctor;
         if (keepDoctor.equals("yes")) {
-            selectedDoctor = (Doctor) textDB.getUserByHospitalID(appointmentToReschedule.getDoctorId());
-            System.out.println("You have chosen to keep Dr. " + selectedDoctor.getName());
+            selectedDoctor = appointmentService.getDoctor(appointmentToReschedule.getDoctorId());
+            out.println("You have chosen to keep Dr. " + selectedDoctor.getName());
         } else if (keepDoctor.equals("no")) {
             // Display list of available doctors
-            List<Doctor> doctors = textDB.getAllDoctors();
+            List<Doctor> doctors = appointmentService.getDoctors();
             if (doctors.isEmpty()) {
-                System.out.println("No doctors are currently available.");
+                out.println("No doctors are currently available.");
                 return;
             }
     
-            System.out.println("\nAvailable Doctors:");
+            out.println("\nAvailable Doctors:");
             for (int i = 0; i < doctors.size(); i++) {
-                System.out.println((i + 1) + ". Dr. " + doctors.get(i).getName() + " (ID: " + doctors.get(i).getHospitalID() + ")");
+                out.println((i + 1) + ". Dr. " + doctors.get(i).getName() + " (ID: " + doctors.get(i).getHospitalID() + ")");
             }
     
-            System.out.print("Enter the number corresponding to the doctor you want to book an appointment with: ");
+            out.print("Enter the number corresponding to the doctor you want to book an appointment with: ");
             int doctorIndex = getIntInput(scanner) - 1;
     
             if (doctorIndex < 0 || doctorIndex >= doctors.size()) {
-                System.out.println("Invalid selection. Please try again.");
+                out.println("Invalid selection. Please try again.");
                 return;
             }
     
             selectedDoctor = doctors.get(doctorIndex);
-            System.out.println("You have selected Dr. " + selectedDoctor.getName());
+            out.println("You have selected Dr. " + selectedDoctor.getName());
         } else {
-            System.out.println("Invalid input. Please enter 'yes' or 'no'.");
+            out.println("Invalid input. Please enter 'yes' or 'no'.");
             return;
         }
     
         // Step 6: Display available time slots for the selected doctor and new date
-        List<TimeSlot> availableSlots = textDB.getAvailableAppointmentSlots(newDate, selectedDoctor);
+        List<TimeSlot> availableSlots = appointmentService.getAvailableSlots(newDate, selectedDoctor);
     
         if (availableSlots.isEmpty()) {
             // Check if the doctor has set availability for this date
-            List<TimeSlot> doctorAvailableSlots = selectedDoctor.getAvailableTimeSlots(newDate);
-            if (doctorAvailableSlots.isEmpty()) {
-                System.out.println("Dr. " + selectedDoctor.getName() + " has not set availability for " + newDate + ".");
+            if (!scheduleService.hasAvailability(selectedDoctor, newDate)) {
+                out.println("Dr. " + selectedDoctor.getName() + " has not set availability for " + newDate + ".");
             } else {
-                System.out.println("No available slots for Dr. " + selectedDoctor.getName() + " on " + newDate + ".");
+                out.println("No available slots for Dr. " + selectedDoctor.getName() + " on " + newDate + ".");
             }
             return;
         }
     
-        System.out.println("\nAvailable Appointment Slots with Dr. " + selectedDoctor.getName() + " on " + newDate + ":");
+        out.println("\nAvailable Appointment Slots with Dr. " + selectedDoctor.getName() + " on " + newDate + ":");
         for (int i = 0; i < availableSlots.size(); i++) {
             TimeSlot slot = availableSlots.get(i);
-            System.out.println((i + 1) + ". " + slot.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")) +
+            out.println((i + 1) + ". " + slot.getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")) +
                                " - " + slot.getEndTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm")));
         }
     
         // Step 7: Prompt user to select a new time slot
-        System.out.print("Enter the number corresponding to the new time slot you want to book: ");
+        out.print("Enter the number corresponding to the new time slot you want to book: ");
         int slotIndex = getIntInput(scanner) - 1;
     
         if (slotIndex < 0 || slotIndex >= availableSlots.size()) {
-            System.out.println("Invalid selection. Please try again.");
+            out.println("Invalid selection. Please try again.");
             return;
         }
     
         TimeSlot selectedSlot = availableSlots.get(slotIndex);
-        System.out.println("You have selected " + selectedSlot);
+        out.println("You have selected " + selectedSlot);
     
         // Step 8: Confirm rescheduling
-        System.out.print("Are you sure you want to reschedule this appointment? (yes/no): ");
+        out.print("Are you sure you want to reschedule this appointment? (yes/no): ");
         String confirmation = scanner.nextLine().trim().toLowerCase();
         if (!confirmation.equals("yes")) {
-            System.out.println("Appointment rescheduling aborted.");
+            out.println("Appointment rescheduling aborted.");
             return;
         }
     
-        // Step 9: Proceed with rescheduling
+        // Step 9: Proceed with rescheduling; the doctor is notified
         try {
-            // Create a new TimeSlot object (assuming TimeSlot is mutable)
-            TimeSlot newTimeSlot = new TimeSlot(selectedSlot.getStartTime(), selectedSlot.getEndTime(), false);
-    
-            // Update the appointment details
-            appointmentToReschedule.setDoctorId(selectedDoctor.getHospitalID());
-            appointmentToReschedule.setTimeSlot(newTimeSlot);
-            appointmentToReschedule.setStatus("Rescheduled");
-    
-            // Update the appointment in TextDB
-            textDB.updateAppointment(appointmentToReschedule);
-    
-            System.out.println("Appointment rescheduled successfully to " + newDate + " at " + newTimeSlot + ".");
-            NotifyDoctor.getInstance().notifyDoctorUser("Appointment rescheduled from " + patient + " on " + newDate + "at" + newTimeSlot);
+            if (!appointmentService.rescheduleAppointment(patient, appointmentToReschedule, selectedDoctor, selectedSlot)) {
+                out.println("Failed to reschedule the appointment. Please try again.");
+                return;
+            }
+            out.println("Appointment rescheduled successfully to " + newDate + " at " + selectedSlot + ".");
         } catch (IOException e) {
-            System.out.println("Failed to reschedule appointment due to an internal error. Please try again later.");
+            out.println("Failed to reschedule appointment due to an internal error. Please try again later.");
             e.printStackTrace();
         }
     }
@@ -509,24 +502,22 @@ public final class PatientMenu {
      */
     private void cancelAppointment(Scanner scanner, Patient patient) {
         // Step 1: Retrieve and display the patient's appointments
-        List<Appointment> patientAppointments = textDB.getAppointments().stream()
-            .filter(appt -> appt.getPatientId().equals(patient.getHospitalID()))
-            .collect(Collectors.toList());
+        List<Appointment> patientAppointments = appointmentService.getAppointments(patient);
     
         if (patientAppointments.isEmpty()) {
-            System.out.println("You have no appointments to cancel.");
+            out.println("You have no appointments to cancel.");
             return;
         }
     
-        System.out.println("\nYour Appointments:");
+        out.println("\nYour Appointments:");
         for (Appointment appointment : patientAppointments) {
             LocalDate appointmentDate = appointment.getTimeSlot().getStartTime().toLocalDate();
             String formattedDate = appointmentDate.format(DATE_FORMATTER);
             String formattedStartTime = appointment.getTimeSlot().getStartTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
             String formattedEndTime = appointment.getTimeSlot().getEndTime().toLocalTime().format(DateTimeFormatter.ofPattern("HH:mm"));
 
-            System.out.println("Appointment ID: " + appointment.getId() +
-                            ", Doctor: " + textDB.getUserByHospitalID(appointment.getDoctorId()).getName() +
+            out.println("Appointment ID: " + appointment.getId() +
+                            ", Doctor: " + appointmentService.getDoctor(appointment.getDoctorId()).getName() +
                             ", Date: " + formattedDate +
                             ", Time: " + formattedStartTime + " - " + formattedEndTime +
                             ", Status: " + appointment.getStatus());
@@ -534,44 +525,33 @@ public final class PatientMenu {
         }
     
         // Step 2: Prompt user to enter the Appointment ID to cancel
-        System.out.print("\nEnter the ID of the appointment you want to cancel: ");
+        out.print("\nEnter the ID of the appointment you want to cancel: ");
         int appointmentId = getIntInput(scanner);
     
         // Step 3: Verify if the appointment exists and belongs to the patient
-        Appointment appointmentToCancel = textDB.getAppointmentById(appointmentId);
-        if (appointmentToCancel == null || !appointmentToCancel.getPatientId().equals(patient.getHospitalID())) {
-            System.out.println("No such appointment found. Please check the Appointment ID and try again.");
+        Appointment appointmentToCancel = appointmentService.getAppointment(patient, appointmentId);
+        if (appointmentToCancel == null) {
+            out.println("No such appointment found. Please check the Appointment ID and try again.");
             return;
         }
     
         // Step 4: Confirm cancellation with the user
-        System.out.print("Are you sure you want to cancel this appointment? (yes/no): ");
+        out.print("Are you sure you want to cancel this appointment? (yes/no): ");
         String confirmation = scanner.nextLine().trim().toLowerCase();
         if (!confirmation.equals("yes")) {
-            System.out.println("Appointment cancellation aborted.");
+            out.println("Appointment cancellation aborted.");
             return;
         }
     
-        // Step 5: Proceed with cancellation
-        boolean success = textDB.cancelAppointment(patient, appointmentId);
+        // Step 5: Proceed with cancellation; the doctor is notified
+        boolean success = appointmentService.cancelAppointment(patient, appointmentId);
         if (success) {
-            System.out.println("Appointment canceled successfully.");
-            NotifyDoctor.getInstance().notifyDoctorUser("Appointment >> " + appointmentToCancel.toString() + " has been cancelled.");
+            out.println("Appointment canceled successfully.");
         } else {
-            System.out.println("Failed to cancel appointment. Please try again.");
+            out.println("Failed to cancel appointment. Please try again.");
         }
     }
     
-    private static String hashPassword(String hospitalID, String password) {
-        String combined = hospitalID + password;
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = digest.digest(combined.getBytes());
-            return Base64.getEncoder().encodeToString(hashedBytes);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Hashing algorithm not found", e);
-        }
-    }
     /**
      * Changes the password of a patient.
      * 
@@ -582,21 +562,22 @@ public final class PatientMenu {
      * @param patient The patient whose password is being changed.
      */
     private void changePassword(Scanner scanner, Patient patient) {
-        System.out.print("Enter current password: ");
+        out.print("Enter current password: ");
         String currentPassword = scanner.nextLine();
-        System.out.print("Enter new password: ");
+        out.print("Enter new password: ");
         String newPassword = scanner.nextLine();
         
-        // Assuming Patient class has a method to verify the current password
-        if (patient.getPassword().equals(hashPassword(patient.getHospitalID(), currentPassword))) {
-            try {
-                patient.setPassword(hashPassword(patient.getHospitalID(), newPassword));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            System.out.println("Password changed successfully.");
+        boolean changed;
+        try {
+            changed = userService.changePassword(patient, currentPassword, newPassword);
+        } catch (IOException e) {
+            e.printStackTrace();
+            changed = true;
+        }
+        if (changed) {
+            out.println("Password changed successfully.");
         } else {
-            System.out.println("Failed to change password. Please try again.");
+            out.println("Failed to change password. Please try again.");
         }
     }
 
@@ -610,11 +591,11 @@ public final class PatientMenu {
      */
     private int getIntInput(Scanner scanner) {
         while (!scanner.hasNextInt()) {
-            System.out.print("Invalid input. Please enter a number: ");
+            out.print("Invalid input. Please enter a number: ");
             scanner.next();
         }
-        int out = scanner.nextInt();
+        int value = scanner.nextInt();
         scanner.nextLine();
-        return out;
+        return value;
     }
 }
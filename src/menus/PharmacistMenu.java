@@ -1,14 +1,16 @@
 package menus;
 
-import HospitalNotificationSystem.NotifyAdministrator;
 import db.TextDB;
 import items.*;
 import items.medical_records.MedicalRecord;
 import items.medical_records.Treatment;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Scanner;
+import services.MedicalRecordService;
+import services.PharmacyService;
 import user_classes.Pharmacist;
 
 /**
@@ -17,15 +19,22 @@ import user_classes.Pharmacist;
  */
 public final class PharmacistMenu {
     private TextDB textDB;
+    private final PrintStream out;
+    private final MedicalRecordService medicalRecordService;
+    private final PharmacyService pharmacyService;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     /**
      * Constructs a PharmacistMenu object with the given TextDB instance.
      * 
      * @param textDB The TextDB instance for accessing the database.
+     * @param out The stream this menu prints to.
      */
-    public PharmacistMenu(TextDB textDB) {
+    public PharmacistMenu(TextDB textDB, PrintStream out) {
         this.textDB = textDB;
+        this.out = out;
+        this.medicalRecordService = new MedicalRecordService(textDB);
+        this.pharmacyService = new PharmacyService(textDB);
     }
 
     /**
@@ -39,13 +48,13 @@ public final class PharmacistMenu {
         boolean back = false;
 
         while (!back) {
-            System.out.println("\nPharmacist Menu:");
-            System.out.println("1. View Appointment Outcome Records");
-            System.out.println("2. Update Prescription Status");
-            System.out.println("3. View Medication Inventory");
-            System.out.println("4. Submit Replenishment Request");
-            System.out.println("5. Back");
-            System.out.print("Enter your choice: ");
+            out.println("\nPharmacist Menu:");
+            out.println("1. View Appointment Outcome Records");
+            out.println("2. Update Prescription Status");
+            out.println("3. View Medication Inventory");
+            out.println("4. Submit Replenishment Request");
+            out.println("5. Back");
+            out.print("Enter your choice: ");
 
             int choice = getIntInput(scanner);
 
@@ -66,7 +75,7 @@ public final class PharmacistMenu {
                     back = true;
                     break;
                 default:
-                    System.out.println("Invalid choice. Please try again.");
+                    out.println("Invalid choice. Please try again.");
             }
         }
     }
@@ -78,17 +87,17 @@ public final class PharmacistMenu {
      * @param pharmacist The pharmacist viewing the medical records.
      */
     private void viewPatientMedicalRecords(Scanner scanner, Pharmacist pharmacist) {
-        System.out.print("Enter Patient ID to view medical records: ");
+        out.print("Enter Patient ID to view medical records: ");
         String patientId = scanner.nextLine().trim();
 
-        MedicalRecord record = textDB.getMedicalRecordByPatientId(patientId);
+        MedicalRecord record = medicalRecordService.getMedicalRecord(patientId);
         if (record == null) {
-            System.out.println("Medical record for Patient ID " + patientId + " not found.");
+            out.println("Medical record for Patient ID " + patientId + " not found.");
             return;
         }
 
-        System.out.println();
-        record.display();
+        out.println();
+        record.display(out);
     }
 
     /**
@@ -99,42 +108,42 @@ public final class PharmacistMenu {
      * @throws IOException If an I/O error occurs while updating the record.
      */
     private void updatePrescriptionStatus(Scanner scanner, Pharmacist pharmacist) throws IOException {
-        System.out.print("Enter Patient ID: ");
+        out.print("Enter Patient ID: ");
         String patientId = scanner.nextLine().trim();
 
-        MedicalRecord record = textDB.getMedicalRecordByPatientId(patientId);
+        MedicalRecord record = medicalRecordService.getMedicalRecord(patientId);
         if (record == null) {
-            System.out.println("Medical record for Patient ID " + patientId + " not found.");
+            out.println("Medical record for Patient ID " + patientId + " not found.");
             return;
         }
 
         List<Treatment> treatments = record.getPastTreatments();
         if (treatments.isEmpty()) {
-            System.out.println("No treatments found for this patient.");
+            out.println("No treatments found for this patient.");
             return;
         }
 
         // Display treatments and their prescriptions
-        System.out.println("\nPast Treatments:");
+        out.println("\nPast Treatments:");
         for (int i = 0; i < treatments.size(); i++) {
             Treatment treatment = treatments.get(i);
-            System.out.println((i + 1) + ". " + treatment.getServiceType() + " on " + treatment.getDateOfAppointment().format(DATE_FORMATTER));
+            out.println((i + 1) + ". " + treatment.getServiceType() + " on " + treatment.getDateOfAppointment().format(DATE_FORMATTER));
             List<Prescription> prescriptions = treatment.getAllPrescribedMedicine();
             if (prescriptions.isEmpty()) {
-                System.out.println("   No prescriptions found for this treatment.");
+                out.println("   No prescriptions found for this treatment.");
             } else {
                 for (int j = 0; j < prescriptions.size(); j++) {
                     Prescription p = prescriptions.get(j);
-                    System.out.println("   " + (j + 1) + ". " + p.getMedicationName() + " | Status: " + p.getStatus());
+                    out.println("   " + (j + 1) + ". " + p.getMedicationName() + " | Status: " + p.getStatus());
                 }
             }
         }
 
-        System.out.print("Enter the number of the treatment to update prescriptions (or 0 to cancel): ");
+        out.print("Enter the number of the treatment to update prescriptions (or 0 to cancel): ");
         int treatmentChoice = getIntInput(scanner) - 1;
 
         if (treatmentChoice == -1 || treatmentChoice >= treatments.size()) {
-            System.out.println("Operation cancelled or invalid selection.");
+            out.println("Operation cancelled or invalid selection.");
             return;
         }
 
@@ -142,54 +151,53 @@ public final class PharmacistMenu {
         List<Prescription> prescriptions = selectedTreatment.getAllPrescribedMedicine();
 
         if (prescriptions.isEmpty()) {
-            System.out.println("No prescriptions to update for this treatment.");
+            out.println("No prescriptions to update for this treatment.");
             return;
         }
 
-        System.out.println("\nPrescriptions:");
+        out.println("\nPrescriptions:");
         for (int j = 0; j < prescriptions.size(); j++) {
             Prescription p = prescriptions.get(j);
-            System.out.println((j + 1) + ". " + p.getMedicationName() + " | Status: " + p.getStatus());
+            out.println((j + 1) + ". " + p.getMedicationName() + " | Status: " + p.getStatus());
         }
 
-        System.out.print("Enter the number of the prescription to update (or 0 to cancel): ");
+        out.print("Enter the number of the prescription to update (or 0 to cancel): ");
         int prescriptionChoice = getIntInput(scanner) - 1;
 
         if (prescriptionChoice == -1 || prescriptionChoice >= prescriptions.size()) {
-            System.out.println("Operation cancelled or invalid selection.");
+            out.println("Operation cancelled or invalid selection.");
             return;
         }
 
         Prescription selectedPrescription = prescriptions.get(prescriptionChoice);
-        System.out.println("Current Status: " + selectedPrescription.getStatus());
-        System.out.print("Enter new status (e.g., Approved, Rejected, Dispensed): ");
+        out.println("Current Status: " + selectedPrescription.getStatus());
+        out.print("Enter new status (e.g., Approved, Rejected, Dispensed): ");
         String newStatus = scanner.nextLine().trim();
 
         if (newStatus.isEmpty()) {
-            System.out.println("Status cannot be empty.");
+            out.println("Status cannot be empty.");
             return;
         }
 
-        selectedPrescription.setStatus(newStatus);
-        textDB.updateMedicalRecord(record);
-        System.out.println("Prescription status updated successfully.");
+        medicalRecordService.updatePrescriptionStatus(record, selectedPrescription, newStatus);
+        out.println("Prescription status updated successfully.");
     }
 
     /**
      * Displays the current medication inventory.
      */
     private void viewMedicationInventory() {
-        List<Medication> medications = textDB.getMedications();
+        List<Medication> medications = pharmacyService.getMedications();
         if (medications.isEmpty()) {
-            System.out.println("Medication inventory is empty.");
+            out.println("Medication inventory is empty.");
             return;
         }
 
-        System.out.println("\nMedication Inventory:");
-        System.out.printf("%-20s %-10s %-20s%n", "Medication Name", "Quantity", "Supplier");
-        System.out.println("-------------------------------------------------------------");
+        out.println("\nMedication Inventory:");
+        out.printf("%-20s %-10s %-20s%n", "Medication Name", "Quantity", "Supplier");
+        out.println("-------------------------------------------------------------");
         for (Medication med : medications) {
-            System.out.printf("%-20s %-10d %-20s%n",
+            out.printf("%-20s %-10d %-20s%n",
                     med.getName(),
                     med.getQuantity(),
                     med.getSupplier() != null ? med.getSupplier() : "N/A");
@@ -204,59 +212,40 @@ public final class PharmacistMenu {
      * @throws IOException If an I/O error occurs during the request submission.
      */
     private void submitReplenishmentRequest(Scanner scanner, Pharmacist pharmacist) throws IOException {
-        System.out.print("Enter Medication Name to replenish: ");
+        out.print("Enter Medication Name to replenish: ");
         String medicationName = scanner.nextLine().trim();
     
         if (medicationName.isEmpty()) {
-            System.out.println("Medication name cannot be empty.");
+            out.println("Medication name cannot be empty.");
             return;
         }
     
         // Check if medication exists in inventory
-        Medication medication = null;
-        for (Medication med : textDB.getMedications()) {
-            if (med.getName().equalsIgnoreCase(medicationName)) {
-                medication = med;
-                break;
-            }
-        }
-    
-        if (medication == null) {
-            System.out.println("Medication " + medicationName + " not found in inventory.");
+        if (pharmacyService.findMedication(medicationName) == null) {
+            out.println("Medication " + medicationName + " not found in inventory.");
             return;
         }
     
-        System.out.print("Enter quantity to replenish: ");
+        out.print("Enter quantity to replenish: ");
         int quantity;
         while (true) {
             if (scanner.hasNextInt()) {
                 quantity = scanner.nextInt();
                 scanner.nextLine(); // Consume newline
                 if (quantity <= 0) {
-                    System.out.print("Quantity must be positive. Enter again: ");
+                    out.print("Quantity must be positive. Enter again: ");
                 } else {
                     break;
                 }
             } else {
-                System.out.print("Invalid input. Please enter a number: ");
+                out.print("Invalid input. Please enter a number: ");
                 scanner.next(); // Consume invalid input
             }
         }
     
-        // Create a new ReplenishmentRequest
-        ReplenishmentRequest request = new ReplenishmentRequest(
-                medicationName,
-                quantity,
-                "Pharmacist: " + pharmacist.getHospitalID(),
-                java.time.LocalDate.now()
-        );
-    
-        // Add the request to TextDB
-        textDB.addReplenishmentRequest(request);
-        System.out.println("Replenishment request submitted successfully.");
-
-        // Notify Administrator
-        NotifyAdministrator.getInstance().notifyAdminUser(request.toString());
+        // Add the request to TextDB; the administrators are notified
+        pharmacyService.submitReplenishmentRequest(pharmacist, medicationName, quantity);
+        out.println("Replenishment request submitted successfully.");
     }
 
     /**
@@ -267,11 +256,11 @@ public final class PharmacistMenu {
      */
     private int getIntInput(Scanner scanner) {
         while (!scanner.hasNextInt()) {
-            System.out.print("Invalid input. Please enter a number: ");
+            out.print("Invalid input. Please enter a number: ");
             scanner.next();
         }
-        int out = scanner.nextInt();
+        int value = scanner.nextInt();
         scanner.nextLine(); // Consume newline
-        return out;
+        return value;
     }
 }
@@ -1,21 +1,35 @@
 package services;
 
+import HospitalNotificationSystem.NotifyDoctor;
 import db.TextDB;
+import db.Transaction;
+import items.Prescription;
 import items.appointments.Appointment;
+import items.appointments.TimeSlot;
+import items.medical_records.Treatment;
+import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import user_classes.Doctor;
 import user_classes.Patient;
+import user_classes.User;
 
 /**
  * AppointmentService
- * Manages appointment-related operations for patients.
+ * Manages appointment-related operations for patients and doctors.
  *
- * This service provides methods for retrieving past and current appointments
- * from the database, based on the patient's hospital ID and the date of the appointment.
+ * This service looks up appointments and free slots, books, reschedules and
+ * cancels appointments for patients, lets doctors accept or decline requests
+ * and record outcomes, and notifies the doctor concerned. It neither reads
+ * input nor formats output, so the menus and other front ends share the same
+ * booking rules.
  */
 public class AppointmentService {
-    private static TextDB textDB;
+    /** Reference to the database handling text-based storage operations. */
+    private final TextDB textDB;
 
     /**
      * Constructor for AppointmentService.
@@ -25,7 +39,7 @@ public class AppointmentService {
      * TextDB instance.
      */
     public AppointmentService(TextDB textDB) {
-        this.textDB = TextDB.getInstance();
+        this.textDB = textDB;
     }
 
     /**
@@ -33,12 +47,12 @@ public class AppointmentService {
      * @param patient The patient whose past appointments are to be retrieved.
      * @return A list of past appointments for the specified patient.
      *
-     * This method filters appointments by the patient's hospital ID and ensures
-     * that only past appointments (before the current date) are returned.
+     * This method looks up the patient's appointments in the appointment index and
+     * ensures that only past appointments (before the current date) are returned.
      */
-    public static List<Appointment> getPastAppointments(Patient patient) {
-        return textDB.getAppointments().stream()
-                .filter(appointment -> appointment.getPatientId().equals(patient.getHospitalID()) && appointment.isPast())
+    public List<Appointment> getPastAppointments(Patient patient) {
+        return textDB.getAppointmentsByPatientId(patient.getHospitalID()).stream()
+                .filter(Appointment::isPast)
                 .collect(Collectors.toList());
     }
 
@@ -56,4 +70,201 @@ public class AppointmentService {
                 .filter(appointment -> !appointment.getDate().isBefore(today))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Retrieves all appointments.
+     * @return The list of appointments.
+     */
+    public List<Appointment> getAppointments() {
+        return textDB.getAppointments();
+    }
+
+    /**
+     * Retrieves an appointment by its ID.
+     * @param appointmentId The unique ID of the appointment.
+     * @return The appointment, or null if not found.
+     */
+    public Appointment getAppointment(int appointmentId) {
+        return textDB.getAppointmentById(appointmentId);
+    }
+
+    /**
+     * Retrieves all appointments of a patient.
+     * @param patient The patient.
+     * @return The patient's appointments.
+     */
+    public List<Appointment> getAppointments(Patient patient) {
+        return textDB.getAppointmentsByPatientId(patient.getHospitalID());
+    }
+
+    /**
+     * Retrieves one of a patient's appointments.
+     * @param patient The patient.
+     * @param appointmentId The unique ID of the appointment.
+     * @return The appointment, or null if it does not exist or belongs to another patient.
+     */
+    public Appointment getAppointment(Patient patient, int appointmentId) {
+        Appointment appointment = textDB.getAppointmentById(appointmentId);
+        if (appointment == null || !appointment.getPatientId().equals(patient.getHospitalID())) {
+            return null;
+        }
+        return appointment;
+    }
+
+    /**
+     * Retrieves all doctors patients can book.
+     * @return The list of doctors.
+     */
+    public List<Doctor> getDoctors() {
+        return textDB.getAllDoctors();
+    }
+
+    /**
+     * Retrieves a doctor by hospital ID.
+     * @param doctorId The hospital ID of the doctor.
+     * @return The doctor, or null if no doctor has the ID.
+     */
+    public Doctor getDoctor(String doctorId) {
+        User user = textDB.getUserByHospitalID(doctorId);
+        return user instanceof Doctor ? (Doctor) user : null;
+    }
+
+    /**
+     * Retrieves the free slots of a doctor on a date.
+     * @param date The date.
+     * @param doctor The doctor.
+     * @return The slots of the doctor's availability that are not booked.
+     */
+    public List<TimeSlot> getAvailableSlots(LocalDate date, Doctor doctor) {
+        return textDB.getAvailableAppointmentSlots(date, doctor);
+    }
+
+    /**
+     * Books an appointment request for a patient and notifies the doctor.
+     * @param patient The patient booking the appointment.
+     * @param doctor The doctor for the appointment.
+     * @param date The date of the appointment.
+     * @param timeSlot The time slot for the appointment.
+     * @return True if the request was submitted, false if the slot is taken or it could not be saved.
+     */
+    public boolean bookAppointment(Patient patient, Doctor doctor, LocalDate date, TimeSlot timeSlot) {
+        if (!textDB.addAppointment(patient, doctor, date, timeSlot)) {
+            return false;
+        }
+        NotifyDoctor.getInstance().notifyDoctorUser("New Appointment request from " + patient + " on " + date, doctor.getHospitalID());
+        return true;
+    }
+
+    /**
+     * Moves an appointment to another doctor or slot and notifies the new doctor.
+     * @param patient The patient who owns the appointment.
+     * @param appointment The appointment to move.
+     * @param doctor The doctor for the appointment.
+     * @param timeSlot The new time slot.
+     * @return True if the appointment was moved, false if the slot is taken or the appointment no longer exists.
+     * @throws IOException If the appointment cannot be saved.
+     */
+    public boolean rescheduleAppointment(Patient patient, Appointment appointment, Doctor doctor, TimeSlot timeSlot) throws IOException {
+        LocalDate date = timeSlot.getStartTime().toLocalDate();
+        if (!textDB.rescheduleAppointment(patient, appointment.getId(), doctor, date, timeSlot)) {
+            return false;
+        }
+
+        NotifyDoctor.getInstance().notifyDoctorUser("Appointment rescheduled from " + patient + " on " + date + " at " + timeSlot, doctor.getHospitalID());
+        return true;
+    }
+
+    /**
+     * Cancels one of a patient's appointments and notifies the doctor.
+     * @param patient The patient who owns the appointment.
+     * @param appointmentId The unique ID of the appointment.
+     * @return True if the appointment was cancelled.
+     */
+    public boolean cancelAppointment(Patient patient, int appointmentId) {
+        Appointment appointment = getAppointment(patient, appointmentId);
+        if (appointment == null || !textDB.cancelAppointment(patient, appointmentId)) {
+            return false;
+        }
+        NotifyDoctor.getInstance().notifyDoctorUser("Appointment >> " + appointment.toString() + " has been cancelled.", appointment.getDoctorId());
+        return true;
+    }
+
+    /**
+     * Retrieves the appointment requests waiting for a doctor's answer.
+     * @param doctor The doctor.
+     * @return The requested appointments.
+     */
+    public List<Appointment> getRequestedAppointments(Doctor doctor) {
+        return textDB.getRequestedAppointmentsByDoctor(doctor.getHospitalID());
+    }
+
+    /**
+     * Accepts or declines an appointment request.
+     * @param appointment The requested appointment.
+     * @param accept True to confirm the appointment, false to cancel it.
+     * @throws IOException If the appointment cannot be saved.
+     */
+    public void respondToRequest(Appointment appointment, boolean accept) throws IOException {
+        textDB.updateAppointmentStatus(appointment.getId(), accept ? "Confirmed" : "Cancelled");
+    }
+
+    /**
+     * Retrieves a doctor's confirmed appointments that have not started yet.
+     * @param doctor The doctor.
+     * @return The appointments, earliest first.
+     */
+    public List<Appointment> getUpcomingAppointments(Doctor doctor) {
+        LocalDateTime now = LocalDateTime.now();
+        return textDB.getAppointmentsByDoctorIdAndStatus(doctor.getHospitalID(), "Confirmed").stream()
+                .filter(appt -> appt.getTimeSlot().getStartTime().isAfter(now))
+                .sorted(Comparator.comparing(appt -> appt.getTimeSlot().getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Retrieves a doctor's confirmed appointments that have started and have no outcome yet.
+     * @param doctor The doctor.
+     * @return The appointments, earliest first.
+     */
+    public List<Appointment> getAppointmentsAwaitingOutcome(Doctor doctor) {
+        LocalDateTime now = LocalDateTime.now();
+        return textDB.getAppointmentsByDoctorIdAndStatus(doctor.getHospitalID(), "Confirmed").stream()
+                .filter(appt -> appt.getTimeSlot().getStartTime().isBefore(now))
+                .sorted(Comparator.comparing(appt -> appt.getTimeSlot().getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Records the outcome of an appointment: adds the treatment to the
+     * patient's medical record and completes the appointment.
+     * @param doctor The doctor recording the outcome.
+     * @param appointment The appointment.
+     * @param serviceType The type of service provided.
+     * @param prescriptions The medications prescribed.
+     * @param consultationNotes The consultation notes.
+     * @return True if the outcome was recorded, false if the patient's medical record or
+     *         the appointment no longer exists, in which case neither is changed.
+     * @throws IOException If the medical record or appointment cannot be saved.
+     */
+    public boolean recordAppointmentOutcome(Doctor doctor, Appointment appointment, String serviceType,
+                                            List<Prescription> prescriptions, String consultationNotes) throws IOException {
+        Treatment treatment = new Treatment();
+        treatment.setServiceType(serviceType);
+        treatment.setDateOfAppointment(appointment.getTimeSlot().getStartTime().toLocalDate());
+        treatment.setTreatmentComments(consultationNotes);
+        for (Prescription p : prescriptions) {
+            treatment.addPrescription(p);
+        }
+        treatment.setDoctorId(doctor.getHospitalID());
+        String outcomeRecord = treatment.serialize();
+
+        // The treatment and the completed appointment are persisted together
+        Transaction transaction = textDB.beginTransaction();
+        transaction.updateMedicalRecord(appointment.getPatientId(), record -> record.addTreatment(treatment));
+        transaction.updateAppointment(appointment, appt -> {
+            appt.setStatus("Completed");
+            appt.setOutcomeRecord(outcomeRecord);
+        });
+        return transaction.commit();
+    }
 }
@@ -0,0 +1,83 @@
+package services;
+
+import db.TextDB;
+import items.Prescription;
+import items.medical_records.MedicalRecord;
+import items.medical_records.Treatment;
+import java.io.IOException;
+import user_classes.Doctor;
+import user_classes.Patient;
+
+/**
+ * MedicalRecordService
+ * Manages patients' medical records.
+ *
+ * This service looks up medical records, updates contact information, adds
+ * treatments and changes prescription statuses, without reading input or
+ * printing results.
+ */
+public class MedicalRecordService {
+    /** Reference to the database handling text-based storage operations. */
+    private final TextDB textDB;
+
+    /**
+     * Constructor for MedicalRecordService.
+     * @param textDB The instance of the TextDB database used for accessing medical records.
+     */
+    public MedicalRecordService(TextDB textDB) {
+        this.textDB = textDB;
+    }
+
+    /**
+     * Retrieves a patient's medical record.
+     * @param patientId The hospital ID of the patient.
+     * @return The medical record, or null if not found.
+     */
+    public MedicalRecord getMedicalRecord(String patientId) {
+        return textDB.getMedicalRecordByPatientId(patientId);
+    }
+
+    /**
+     * Updates a patient's email address and phone number.
+     * @param patient The patient.
+     * @param email The new email address.
+     * @param phone The new phone number.
+     * @return True if updated, false if the patient has no medical record.
+     * @throws IOException If the medical record cannot be saved.
+     */
+    public boolean updateContactInformation(Patient patient, String email, String phone) throws IOException {
+        MedicalRecord medicalRecord = patient.getMedicalRecord();
+        if (medicalRecord == null) {
+            return false;
+        }
+        medicalRecord.getContactInformation().setEmailAddress(email);
+        medicalRecord.getContactInformation().setPhoneNumber(phone);
+        textDB.updateMedicalRecord(medicalRecord);
+        return true;
+    }
+
+    /**
+     * Adds a treatment given by a doctor to a medical record and saves it.
+     * @param doctor The doctor who gave the treatment.
+     * @param record The medical record.
+     * @param treatment The treatment.
+     * @throws IOException If the medical record cannot be saved.
+     */
+    public void addTreatment(Doctor doctor, MedicalRecord record, Treatment treatment) throws IOException {
+        treatment.setDoctorId(doctor.getHospitalID());
+        record.addTreatment(treatment);
+        textDB.updateMedicalRecord(record);
+    }
+
+    /**
+     * Changes the status of a prescription in a medical record and saves it.
+     * @param record The medical record holding the prescription.
+     * @param prescription The prescription.
+     * @param status The new status, e.g. Approved, Rejected or Dispensed.
+     * @throws IOException If the medical record cannot be saved.
+     */
+    public void updatePrescriptionStatus(MedicalRecord record, Prescription prescription, String status) throws IOException {
+        prescription.setStatus(status);
+        textDB.updateMedicalRecord(record);
+    }
+}
@@ -0,0 +1,164 @@
+package services;
+
+import HospitalNotificationSystem.NotifyAdministrator;
+import HospitalNotificationSystem.NotifyPharmacist;
+import db.TextDB;
+import items.Medication;
+import items.ReplenishmentRequest;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import user_classes.Pharmacist;
+
+/**
+ * PharmacyService
+ * Manages the medication inventory and replenishment requests.
+ *
+ * This service looks up, adds, updates and removes medications, and lets
+ * pharmacists submit and administrators approve or reject replenishment
+ * requests, notifying the other side. It neither reads input nor prints
+ * results.
+ */
+public class PharmacyService {
+    /** Reference to the database handling text-based storage operations. */
+    private final TextDB textDB;
+
+    /**
+     * Constructor for PharmacyService.
+     * @param textDB The instance of the TextDB database used for accessing the inventory.
+     */
+    public PharmacyService(TextDB textDB) {
+        this.textDB = textDB;
+    }
+
+    /**
+     * Retrieves the medication inventory.
+     * @return The list of medications.
+     */
+    public List<Medication> getMedications() {
+        return textDB.getMedications();
+    }
+
+    /**
+     * Finds a medication by name, ignoring case.
+     * @param name The medication name.
+     * @return The medication, or null if it is not in the inventory.
+     */
+    public Medication findMedication(String name) {
+        for (Medication med : textDB.getMedications()) {
+            if (med.getName().equalsIgnoreCase(name)) {
+                return med;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a medication to the inventory and notifies the pharmacists.
+     * @param name The medication name.
+     * @param quantity The quantity in stock.
+     * @param supplier The supplier name.
+     * @return The new medication, or null if a medication with the name exists.
+     * @throws IOException If the inventory cannot be saved.
+     */
+    public Medication addMedication(String name, int quantity, String supplier) throws IOException {
+        Medication newMedication = new Medication(name, quantity, supplier);
+        if (!textDB.addMedication(newMedication)) {
+            return null;
+        }
+        textDB.saveMedicationInventory("inventory.txt");
+
+        NotifyPharmacist.getInstance().notifyPharmacistUser("New Medicine called " + newMedication.getName() + " added to inventory");
+        return newMedication;
+    }
+
+    /**
+     * Updates the quantity and supplier of a medication.
+     * @param medication The medication.
+     * @param quantity The new quantity.
+     * @param supplier The new supplier name.
+     * @throws IOException If the inventory cannot be saved.
+     */
+    public void updateMedication(Medication medication, int quantity, String supplier) throws IOException {
+        medication.setQuantity(quantity);
+        medication.setSupplier(supplier);
+        textDB.updateMedication(medication);
+    }
+
+    /**
+     * Removes a medication from the inventory.
+     * @param medication The medication.
+     * @throws IOException If the inventory cannot be saved.
+     */
+    public void removeMedication(Medication medication) throws IOException {
+        textDB.removeMedication(medication);
+        textDB.saveMedicationInventory("inventory.txt");
+    }
+
+    /**
+     * Submits a replenishment request and notifies the administrators.
+     * @param pharmacist The pharmacist submitting the request.
+     * @param medicationName The medication to replenish.
+     * @param quantity The quantity requested.
+     * @return The request, or null if the medication is not in the inventory.
+     * @throws IOException If the request cannot be saved.
+     */
+    public ReplenishmentRequest submitReplenishmentRequest(Pharmacist pharmacist, String medicationName, int quantity) throws IOException {
+        if (findMedication(medicationName) == null) {
+            return null;
+        }
+        ReplenishmentRequest request = new ReplenishmentRequest(
+                medicationName,
+                quantity,
+                "Pharmacist: " + pharmacist.getHospitalID(),
+                LocalDate.now()
+        );
+        textDB.addReplenishmentRequest(request);
+
+        NotifyAdministrator.getInstance().notifyAdminUser(request.toString());
+        return request;
+    }
+
+    /**
+     * Retrieves the replenishment requests awaiting approval.
+     * @return The list of requests.
+     */
+    public List<ReplenishmentRequest> getReplenishmentRequests() {
+        return textDB.getReplenishmentRequests();
+    }
+
+    /**
+     * Approves a replenishment request: adds its quantity to the inventory,
+     * removes the request and notifies the pharmacists. A request for a
+     * medication no longer in the inventory is left in place. A request already
+     * handled by another administrator is not applied again.
+     * @param index Position of the request in getReplenishmentRequests.
+     * @return True if approved, false if the medication is not in the inventory.
+     * @throws IOException If the inventory or requests cannot be saved.
+     */
+    public boolean approveReplenishmentRequest(int index) throws IOException {
+        ReplenishmentRequest request = textDB.getReplenishmentRequests().get(index);
+        if (findMedication(request.getMedicationName()) == null) {
+            NotifyPharmacist.getInstance().notifyPharmacistUser("Replenishment request for " + request.getMedicationName() + " rejected");
+            return false;
+        }
+        if (!textDB.removeReplenishmentRequest(request)) {
+            return true;
+        }
+        Medication medication = textDB.restockMedication(request.getMedicationName(), request.getQuantity());
+        NotifyPharmacist.getInstance().notifyPharmacistUser("Replenishment request for " + medication.getName() + " approved");
+
+        textDB.saveReplenishmentRequests("replenishment_requests.txt");
+        return true;
+    }
+
+    /**
+     * Rejects and removes a replenishment request.
+     * @param index Position of the request in getReplenishmentRequests.
+     * @throws IOException If the requests cannot be saved.
+     */
+    public void rejectReplenishmentRequest(int index) throws IOException {
+        textDB.removeReplenishmentRequest(textDB.getReplenishmentRequests().get(index));
+        textDB.saveReplenishmentRequests("replenishment_requests.txt");
+    }
+}
@@ -0,0 +1,67 @@
+package services;
+
+import db.TextDB;
+import items.appointments.Schedule;
+import items.appointments.TimeSlot;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import user_classes.Doctor;
+
+/**
+ * ScheduleService
+ * Manages the availability doctors offer for appointments.
+ *
+ * This service reads and sets a doctor's availability and saves it, without
+ * reading input or printing results.
+ */
+public class ScheduleService {
+    /** Reference to the database handling text-based storage operations. */
+    private final TextDB textDB;
+
+    /**
+     * Constructor for ScheduleService.
+     * @param textDB The instance of the TextDB database used for saving schedules.
+     */
+    public ScheduleService(TextDB textDB) {
+        this.textDB = textDB;
+    }
+
+    /**
+     * Retrieves a doctor's availability.
+     * @param doctor The doctor.
+     * @return The available time slots per date, in date order.
+     */
+    public Map<LocalDate, List<TimeSlot>> getAvailability(Doctor doctor) {
+        Schedule schedule = doctor.getSchedule();
+        Map<LocalDate, List<TimeSlot>> availability = new LinkedHashMap<>();
+        for (LocalDate date : schedule.getDates()) {
+            availability.put(date, schedule.getAvailableTimeSlots(date));
+        }
+        return availability;
+    }
+
+    /**
+     * Checks if a doctor has set availability for a date.
+     * @param doctor The doctor.
+     * @param date The date.
+     * @return True if the doctor has availability on the date.
+     */
+    public boolean hasAvailability(Doctor doctor, LocalDate date) {
+        return doctor.getSchedule().hasAvailability(date);
+    }
+
+    /**
+     * Replaces a doctor's availability on a date and saves the schedule.
+     * @param doctor The doctor.
+     * @param date The date.
+     * @param slots The available time slots.
+     * @throws IOException If the schedule cannot be saved.
+     */
+    public void setAvailability(Doctor doctor, LocalDate date, List<TimeSlot> slots) throws IOException {
+        // Doctor.setAvailability saves the schedule itself
+        doctor.setAvailability(date, slots);
+    }
+}
@@ -0,0 +1,238 @@
+package services;
+
+import db.TextDB;
+import items.appointments.Schedule;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import user_classes.Administrator;
+import user_classes.Doctor;
+import user_classes.Patient;
+import user_classes.Pharmacist;
+import user_classes.User;
+
+/**
+ * UserService
+ * Manages user accounts and passwords.
+ *
+ * This service authenticates users, changes and resets passwords, and adds
+ * and removes users, without reading input or printing results, so it can be
+ * called from the menus as well as from other front ends.
+ */
+public class UserService {
+
+    /** Password given to new users and on a password reset. */
+    public static final String DEFAULT_PASSWORD = "password";
+
+    /** Reference to the database handling text-based storage operations. */
+    private final TextDB textDB;
+
+    /**
+     * Constructor for UserService.
+     * @param textDB The instance of the TextDB database used for accessing users.
+     */
+    public UserService(TextDB textDB) {
+        this.textDB = textDB;
+    }
+
+    /**
+     * Generates a SHA-256 hash for the combination of hospital ID and password.
+     *
+     * @param hospitalID The hospital ID associated with the user.
+     * @param password   The plain text password to be hashed.
+     * @return The base64-encoded hash of the combined hospital ID and password.
+     * @throws RuntimeException If the hashing algorithm is not found.
+     */
+    public static String hashPassword(String hospitalID, String password) {
+        String combined = hospitalID + password;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashedBytes = digest.digest(combined.getBytes());
+            return Base64.getEncoder().encodeToString(hashedBytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Hashing algorithm not found", e);
+        }
+    }
+
+    /**
+     * Finds the user with a role and hospital ID whose password matches.
+     *
+     * @param role       Role of the user attempting to log in.
+     * @param hospitalID The hospital ID entered.
+     * @param password   The plain text password entered.
+     * @return The user, or null if the ID or password is wrong.
+     */
+    public User authenticate(String role, String hospitalID, String password) {
+        User user = textDB.getUserByRoleAndID(role, hospitalID);
+        if (user == null || !user.getPassword().equals(hashPassword(hospitalID, password))) {
+            return null;
+        }
+        return user;
+    }
+
+    /**
+     * Checks if a user still has the default password.
+     *
+     * @param user The user to check.
+     * @return True if the user's password is the default.
+     */
+    public boolean hasDefaultPassword(User user) {
+        return user.getPassword().equals(hashPassword(user.getHospitalID(), DEFAULT_PASSWORD));
+    }
+
+    /**
+     * Sets a user's password.
+     *
+     * @param user        The user whose password is set.
+     * @param newPassword The plain text password.
+     * @throws IOException If the password cannot be saved.
+     */
+    public void setPassword(User user, String newPassword) throws IOException {
+        user.setPassword(hashPassword(user.getHospitalID(), newPassword));
+    }
+
+    /**
+     * Changes a user's password after checking the current one.
+     *
+     * @param user            The user whose password is changed.
+     * @param currentPassword The current plain text password.
+     * @param newPassword     The new plain text password.
+     * @return True if the current password was correct and the password was changed.
+     * @throws IOException If the password cannot be saved.
+     */
+    public boolean changePassword(User user, String currentPassword, String newPassword) throws IOException {
+        if (!user.getPassword().equals(hashPassword(user.getHospitalID(), currentPassword))) {
+            return false;
+        }
+        setPassword(user, newPassword);
+        return true;
+    }
+
+    /**
+     * Resets a user's password to the default password.
+     *
+     * @param hospitalID The hospital ID of the user.
+     * @return True if the user exists and the password was reset.
+     * @throws IOException If the password cannot be saved.
+     */
+    public boolean resetPassword(String hospitalID) throws IOException {
+        User user = textDB.getUserByHospitalID(hospitalID);
+        if (user == null) {
+            return false;
+        }
+        setPassword(user, DEFAULT_PASSWORD);
+        return true;
+    }
+
+    /**
+     * Checks if a role can be given to a new user.
+     *
+     * @param role The role, in any case.
+     * @return True for administrator, doctor, pharmacist and patient.
+     */
+    public boolean isValidRole(String role) {
+        switch (role.toLowerCase()) {
+            case "administrator":
+            case "doctor":
+            case "pharmacist":
+            case "patient":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if a hospital ID is taken.
+     *
+     * @param hospitalID The hospital ID.
+     * @return True if a user has the hospital ID.
+     */
+    public boolean exists(String hospitalID) {
+        return textDB.getUserByHospitalID(hospitalID) != null;
+    }
+
+    /**
+     * Gets a user by hospital ID.
+     *
+     * @param hospitalID The hospital ID.
+     * @return The user, or null if not found.
+     */
+    public User getUser(String hospitalID) {
+        return textDB.getUserByHospitalID(hospitalID);
+    }
+
+    /**
+     * Gets all users.
+     *
+     * @return The list of users.
+     */
+    public List<User> getUsers() {
+        return textDB.getUsers();
+    }
+
+    /**
+     * Adds a user with the default password.
+     *
+     * @param role        The role of the user, in any case.
+     * @param hospitalID  The hospital ID of the user.
+     * @param name        The name of the user.
+     * @param dateOfBirth The date of birth of the user.
+     * @param gender      The gender of the user.
+     * @return The new user, or null if the role is invalid or the hospital ID is taken.
+     */
+    public User addUser(String role, String hospitalID, String name, LocalDate dateOfBirth, String gender) {
+        if (exists(hospitalID)) {
+            return null;
+        }
+        String password = hashPassword(hospitalID, DEFAULT_PASSWORD);
+        User newUser;
+        switch (role.toLowerCase()) {
+            case "administrator":
+                newUser = new Administrator(hospitalID, password, name, dateOfBirth, gender);
+                break;
+            case "doctor":
+                newUser = new Doctor(hospitalID, password, name, dateOfBirth, gender, new Schedule());
+                break;
+            case "pharmacist":
+                newUser = new Pharmacist(hospitalID, password, name, dateOfBirth, gender);
+                break;
+            case "patient":
+                newUser = new Patient(hospitalID, password, name, dateOfBirth, gender);
+                break;
+            default:
+                return null;
+        }
+        textDB.addUser(newUser);
+        return newUser;
+    }
+
+    /**
+     * Removes a user.
+     *
+     * @param hospitalID The hospital ID of the user.
+     * @return True if the user existed and was removed.
+     */
+    public boolean removeUser(String hospitalID) {
+        User user = textDB.getUserByHospitalID(hospitalID);
+        if (user == null) {
+            return false;
+        }
+        textDB.removeUser(user);
+        return true;
+    }
+
+    /**
+     * Writes all users to the users file, when the commit policy says so.
+     *
+     * @return Future completed once the file is written.
+     * @throws IOException If the file cannot be written under the immediate commit policy.
+     */
+    public CompletableFuture<Void> saveUsers() throws IOException {
+        return TextDB.saveToFile("users.txt");
+    }
+}
@@ -136,9 +136,8 @@ public class Doctor extends User {
      * @throws IOException If an I/O error occurs during the update
      */
     public void setAvailability(LocalDate date, List<TimeSlot> availability) throws IOException {
-        schedule.setAvailability(date, availability);
-        // Update the schedule in TextDB
-        TextDB.getInstance().updateDoctorSchedule(this.hospitalID, this.schedule);
+        // TextDB changes the schedule under its locks and saves it
+        TextDB.getInstance().updateDoctorSchedule(this.hospitalID, date, availability);
     }
 
     /**